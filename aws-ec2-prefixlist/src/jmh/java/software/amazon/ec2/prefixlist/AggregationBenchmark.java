@@ -0,0 +1,60 @@
+package software.amazon.ec2.prefixlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of collapsing host addresses with CidrAggregator. Contiguous addresses merge all the way up,
+ * while every other address leaves nothing to merge; both are shuffled so the sort does real work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"1", "2"})
+    public int stride;
+
+    @Param({BenchmarkData.IPV4, BenchmarkData.IPV6})
+    public String addressFamily;
+
+    private List<Entry> entries;
+
+    @Setup
+    public void setup() {
+        entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(Entry.builder()
+                    .cidr(BenchmarkData.cidr(addressFamily, i * stride))
+                    .description("entry " + i)
+                    .build());
+        }
+        Collections.shuffle(entries, new Random(42));
+    }
+
+    @Benchmark
+    public List<Entry> aggregate() {
+        return CidrAggregator.aggregate(entries);
+    }
+}
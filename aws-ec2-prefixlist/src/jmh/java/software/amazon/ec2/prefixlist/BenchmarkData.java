@@ -0,0 +1,57 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.PrefixListEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Deterministic inputs shared by the benchmarks: host CIDRs numbered from a start index, so that
+ * different ranges overlap predictably, and key/value tags.
+ */
+final class BenchmarkData {
+    static final String IPV4 = "IPv4";
+    static final String IPV6 = "IPv6";
+
+    private BenchmarkData() {
+    }
+
+    static String cidr(final String addressFamily, final int index) {
+        if (IPV6.equals(addressFamily)) {
+            return String.format("2001:db8:%x:%x::/64", index >>> 16, index & 0xFFFF);
+        }
+        return String.format("10.%d.%d.%d/32", (index >>> 16) & 0xFF, (index >>> 8) & 0xFF, index & 0xFF);
+    }
+
+    static List<Entry> entries(final String addressFamily, final int start, final int size, final String description) {
+        final List<Entry> entries = new ArrayList<>(size);
+        for (int i = start; i < start + size; i++) {
+            entries.add(Entry.builder()
+                    .cidr(cidr(addressFamily, i))
+                    .description(description + i)
+                    .build());
+        }
+        return entries;
+    }
+
+    static List<PrefixListEntry> prefixListEntries(final String addressFamily, final int size) {
+        final List<PrefixListEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new PrefixListEntry()
+                    .withCidr(cidr(addressFamily, i))
+                    .withDescription("entry " + i));
+        }
+        return entries;
+    }
+
+    static List<Tag> tags(final int size) {
+        final List<Tag> tags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tags.add(Tag.builder()
+                    .key("key-" + i)
+                    .value("value-" + i)
+                    .build());
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,117 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * What a warm invocation saves by looking its client up in the ClientBuilder cache instead of building
+ * one: the build alone, and a DescribeManagedPrefixLists call against a local endpoint, where a fresh
+ * client also has to open a new connection that the cached client keeps alive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientBuilderBenchmark {
+    private static final String REGION = "us-east-1";
+    private static final byte[] DESCRIBE_RESPONSE = ColdStartPrimer.DESCRIBE_RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private String endpoint;
+    private AmazonEC2 cachedClient;
+
+    @Setup
+    public void setup() throws IOException {
+        // Without TCP_NODELAY every call waits out a delayed ACK, which would swamp the difference
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            drain(exchange.getRequestBody());
+            exchange.getResponseHeaders().add("Content-Type", "text/xml");
+            exchange.sendResponseHeaders(200, DESCRIBE_RESPONSE.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(DESCRIBE_RESPONSE);
+            }
+        });
+        server.start();
+        endpoint = "http://localhost:" + server.getAddress().getPort();
+        cachedClient = buildEndpointClient();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cachedClient.shutdown();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public AmazonEC2 freshBuild() {
+        final AmazonEC2 client = AmazonEC2ClientBuilder.standard()
+                .withRegion(REGION)
+                .withClientConfiguration(ClientBuilder.getClientConfiguration())
+                .build();
+        client.shutdown();
+        return client;
+    }
+
+    @Benchmark
+    public AmazonEC2 cachedLookup() {
+        return ClientBuilder.getClient(REGION);
+    }
+
+    @Benchmark
+    public DescribeManagedPrefixListsResult freshClientDescribe() {
+        final AmazonEC2 client = buildEndpointClient();
+        try {
+            return client.describeManagedPrefixLists(new DescribeManagedPrefixListsRequest());
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Benchmark
+    public DescribeManagedPrefixListsResult cachedClientDescribe() {
+        return cachedClient.describeManagedPrefixLists(new DescribeManagedPrefixListsRequest());
+    }
+
+    private AmazonEC2 buildEndpointClient() {
+        return AmazonEC2ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, REGION))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("access-key", "secret-key")))
+                .withClientConfiguration(ClientBuilder.getClientConfiguration())
+                .build();
+    }
+
+    private static void drain(final InputStream input) throws IOException {
+        final byte[] chunk = new byte[4096];
+        while (input.read(chunk) != -1) {
+            // the request is not inspected
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * What a fresh container pays before and during its first request. Every fork is a new JVM and each
+ * benchmark runs exactly once in it, so the numbers are cold: constructing the handlers, priming, and
+ * the first Read against a local endpoint serving canned EC2 responses, with and without priming
+ * during setup (which stands in for Lambda init). Add -prof cl -prof comp for the classes loaded and
+ * the JIT time behind each number, e.g.
+ *     -Djmh.args="ColdStartBenchmark -prof cl -prof comp"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ColdStartBenchmark {
+
+    @Benchmark
+    public Object constructHandlers() {
+        return new Object[] {
+            new CreateHandler(), new ReadHandler(), new UpdateHandler(), new DeleteHandler(), new ListHandler()
+        };
+    }
+
+    @Benchmark
+    public Map<String, Long> prime(final Endpoint endpoint) {
+        return ColdStartPrimer.prime(endpoint.clientFactory, endpoint.configuration);
+    }
+
+    @Benchmark
+    public ProgressEvent<ResourceModel, CallbackContext> firstRead(final Endpoint endpoint, final Init init) {
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(new LoggerProxy(),
+                new Credentials("access-key", "secret-key", "session-token"), () -> 60_000L);
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder().prefixListId(ColdStartPrimer.PRIME_ID).build())
+                .region(Endpoint.REGION)
+                .build();
+        return new ReadHandler(Ec2Invoker.DEFAULT_FACTORY, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES), endpoint.clientFactory)
+                .handleRequest(proxy, request, null, message -> { });
+    }
+
+    /*
+     * A local endpoint answering DescribeManagedPrefixLists and GetManagedPrefixListEntries with canned
+     * responses, and a lazily built client pointed at it
+     */
+    @State(Scope.Benchmark)
+    public static class Endpoint {
+        static final String REGION = "us-east-1";
+
+        private final BaseConfiguration configuration = new BaseConfiguration("aws-ec2-prefixlist.json") { };
+        private HttpServer server;
+        private ClientBuilder.Factory clientFactory;
+        private AmazonEC2 client;
+
+        @Setup
+        public void setup() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", exchange -> {
+                final String body = read(exchange.getRequestBody());
+                final byte[] response = (body.contains("Action=GetManagedPrefixListEntries")
+                        ? ColdStartPrimer.ENTRIES_RESPONSE
+                        : ColdStartPrimer.DESCRIBE_RESPONSE).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/xml");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(response);
+                }
+            });
+            server.start();
+
+            final String endpoint = "http://localhost:" + server.getAddress().getPort();
+            clientFactory = region -> {
+                if (client == null) {
+                    client = AmazonEC2ClientBuilder.standard()
+                            .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, REGION))
+                            .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("access-key", "secret-key")))
+                            .withClientConfiguration(ClientBuilder.getClientConfiguration())
+                            .build();
+                }
+                return client;
+            };
+        }
+
+        @TearDown
+        public void tearDown() {
+            server.stop(0);
+        }
+    }
+
+    /*
+     * Lambda init as seen by the first request: with priming on, the primer runs before the request arrives
+     */
+    @State(Scope.Benchmark)
+    public static class Init {
+        @Param({"false", "true"})
+        public boolean primed;
+
+        @Setup
+        public void setup(final Endpoint endpoint) {
+            if (primed) {
+                ColdStartPrimer.prime(endpoint.clientFactory, endpoint.configuration);
+            }
+        }
+    }
+
+    private static String read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
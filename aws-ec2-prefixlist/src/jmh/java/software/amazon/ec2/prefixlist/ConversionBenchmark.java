@@ -0,0 +1,73 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.AddPrefixListEntry;
+import com.amazonaws.services.ec2.model.PrefixListEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of converting between the resource model and EC2 SDK shapes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({BenchmarkData.IPV4, BenchmarkData.IPV6})
+    public String addressFamily;
+
+    private List<PrefixListEntry> prefixListEntries;
+    private List<Entry> entries;
+
+    @Setup
+    public void setup() {
+        prefixListEntries = BenchmarkData.prefixListEntries(addressFamily, size);
+        entries = BenchmarkData.entries(addressFamily, 0, size, "entry ");
+    }
+
+    @Benchmark
+    public List<Entry> convertToEntries() {
+        return ModuleHelper.convertToEntries(prefixListEntries);
+    }
+
+    @Benchmark
+    public List<AddPrefixListEntry> convertToAddPrefixListEntries() {
+        return ModuleHelper.convertToAddPrefixListEntries(entries);
+    }
+
+    @Benchmark
+    public List<com.amazonaws.services.ec2.model.Tag> convertToEc2Tags(final TagState state) {
+        return ModuleHelper.convertToEc2Tags(state.tags);
+    }
+
+    @State(Scope.Benchmark)
+    public static class TagState {
+        @Param({"50"})
+        public int tagCount;
+
+        List<Tag> tags;
+
+        @Setup
+        public void setup() {
+            tags = BenchmarkData.tags(tagCount);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package software.amazon.ec2.prefixlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Cost of the UpdateHandler entry diff. A tenth of the current entries is removed, a tenth gets a
+ * new description and a tenth of new entries is added. The set-based diff the handler used before
+ * the numeric-key merge is kept as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntryDiffBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({BenchmarkData.IPV4, BenchmarkData.IPV6})
+    public String addressFamily;
+
+    private List<Entry> currentEntries;
+    private List<Entry> desiredEntries;
+
+    @Setup
+    public void setup() {
+        final int changed = Math.max(1, size / 10);
+        currentEntries = BenchmarkData.entries(addressFamily, 0, size, "entry ");
+        desiredEntries = new ArrayList<>(size + changed);
+        desiredEntries.addAll(BenchmarkData.entries(addressFamily, changed, changed, "changed "));
+        desiredEntries.addAll(currentEntries.subList(Math.min(2 * changed, size), size));
+        desiredEntries.addAll(BenchmarkData.entries(addressFamily, size, changed, "entry "));
+    }
+
+    @Benchmark
+    public void entryDiff(final Blackhole blackhole) {
+        final EntryDiff diff = EntryDiff.compute(currentEntries, desiredEntries);
+        blackhole.consume(diff.getAddEntries());
+        blackhole.consume(diff.getRemoveEntries());
+    }
+
+    @Benchmark
+    public void setBasedDiff(final Blackhole blackhole) {
+        final Set<Entry> currentSet = new HashSet<>(currentEntries);
+        blackhole.consume(desiredEntries.stream()
+                .filter(entry -> !currentSet.contains(entry))
+                .collect(Collectors.toList()));
+
+        final Set<String> desiredCidrs = new HashSet<>();
+        desiredEntries.forEach(entry -> desiredCidrs.add(entry.getCidr()));
+        blackhole.consume(currentEntries.stream()
+                .filter(entry -> !desiredCidrs.contains(entry.getCidr()))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,156 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
+import com.amazonaws.services.ec2.model.PrefixListEntry;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Latency and allocation of reading a large prefix list through PrefixListEntryReader, against a local
+ * endpoint that pages the entries the way GetManagedPrefixListEntries does. The baseline pages through
+ * the same endpoint but keeps every SDK entry until the last page arrived and converts them afterwards.
+ * Run with -prof gc for the allocation per read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntryReaderBenchmark {
+    private static final String REGION = "us-east-1";
+    private static final String PREFIX_LIST_ID = "pl-00000000000000000";
+    private static final Pattern NEXT_TOKEN = Pattern.compile("NextToken=page-(\\d+)");
+
+    @Param({"1000"})
+    public int size;
+
+    @Param({"20", "100"})
+    public int maxResults;
+
+    private HttpServer server;
+    private AmazonEC2 client;
+    private Ec2Invoker invoker;
+    private PrefixListEntryReader reader;
+
+    @Setup
+    public void setup() throws IOException {
+        final List<byte[]> pages = pages(BenchmarkData.prefixListEntries(BenchmarkData.IPV4, size), maxResults);
+        // Without TCP_NODELAY every page waits out a delayed ACK, which would swamp the read itself
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            final Matcher token = NEXT_TOKEN.matcher(URLDecoder.decode(read(exchange.getRequestBody()), "UTF-8"));
+            final byte[] response = pages.get(token.find() ? Integer.parseInt(token.group(1)) : 0);
+            exchange.getResponseHeaders().add("Content-Type", "text/xml");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(response);
+            }
+        });
+        server.start();
+
+        client = AmazonEC2ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
+                        "http://localhost:" + server.getAddress().getPort(), REGION))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("access-key", "secret-key")))
+                .withClientConfiguration(ClientBuilder.getClientConfiguration())
+                .build();
+        final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(new LoggerProxy(),
+                new Credentials("access-key", "secret-key", "session-token"), () -> Long.MAX_VALUE);
+        invoker = new Ec2Invoker(proxy, new HandlerMetrics("Benchmark"), p -> Long.MAX_VALUE,
+                ActionRateLimiter.UNLIMITED, ModuleHelper::sleepQuietly);
+        reader = new PrefixListEntryReader(invoker, client, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES), maxResults);
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public List<Entry> streamingRead() {
+        return reader.readEntries(PREFIX_LIST_ID);
+    }
+
+    @Benchmark
+    public List<Entry> collectThenConvert() {
+        final List<PrefixListEntry> prefixListEntries = new ArrayList<>();
+        String nextToken = null;
+        do {
+            final GetManagedPrefixListEntriesResult result = invoker.invoke(new GetManagedPrefixListEntriesRequest()
+                    .withPrefixListId(PREFIX_LIST_ID)
+                    .withMaxResults(maxResults)
+                    .withNextToken(nextToken), client::getManagedPrefixListEntries, PREFIX_LIST_ID);
+            prefixListEntries.addAll(result.getEntries());
+            nextToken = result.getNextToken();
+        } while (nextToken != null);
+        final List<Entry> entries = new ArrayList<>(prefixListEntries.size());
+        for (final PrefixListEntry prefixListEntry : prefixListEntries) {
+            entries.add(ModuleHelper.convertToEntry(prefixListEntry));
+        }
+        return entries;
+    }
+
+    // One canned response per page, each but the last pointing at the next one
+    private static List<byte[]> pages(final List<PrefixListEntry> entries, final int pageSize) {
+        final List<byte[]> pages = new ArrayList<>();
+        for (int start = 0; start < entries.size(); start += pageSize) {
+            final StringBuilder response = new StringBuilder("<GetManagedPrefixListEntriesResponse><requestId>page</requestId><entrySet>");
+            for (final PrefixListEntry entry : entries.subList(start, Math.min(start + pageSize, entries.size()))) {
+                response.append("<item><cidr>").append(entry.getCidr()).append("</cidr><description>")
+                        .append(entry.getDescription()).append("</description></item>");
+            }
+            response.append("</entrySet>");
+            if (start + pageSize < entries.size()) {
+                response.append("<nextToken>page-").append(pages.size() + 1).append("</nextToken>");
+            }
+            pages.add(response.append("</GetManagedPrefixListEntriesResponse>").toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return pages;
+    }
+
+    private static String read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
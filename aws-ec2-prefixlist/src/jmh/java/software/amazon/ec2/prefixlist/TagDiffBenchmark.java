@@ -0,0 +1,55 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of deciding which tags to change when one tag value differs. The containsAll list
+ * comparison UpdateHandler used before the key-level diff is kept as the baseline; it only
+ * answers whether anything changed, after which every tag was deleted and re-created.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagDiffBenchmark {
+
+    @Param({"10", "50"})
+    public int tagCount;
+
+    private List<Tag> currentTags;
+    private List<Tag> desiredTags;
+
+    @Setup
+    public void setup() {
+        currentTags = ModuleHelper.convertToEc2Tags(BenchmarkData.tags(tagCount));
+        desiredTags = new ArrayList<>(currentTags);
+        desiredTags.set(tagCount / 2, new Tag().withKey("key-" + tagCount / 2).withValue("changed"));
+    }
+
+    @Benchmark
+    public TagDiff tagDiff() {
+        return TagDiff.compute(currentTags, desiredTags);
+    }
+
+    @Benchmark
+    public boolean containsAllComparison() {
+        return desiredTags.size() != currentTags.size() || !desiredTags.containsAll(currentTags);
+    }
+}
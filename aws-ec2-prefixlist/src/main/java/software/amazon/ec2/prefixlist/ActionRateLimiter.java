@@ -0,0 +1,101 @@
+package software.amazon.ec2.prefixlist;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/*
+ * Client-side token buckets, one per EC2 API action, shared by every request handled in the container.
+ * Mutating actions (Create*, Modify*, Delete*) get a smaller rate than reads, in line with EC2's own
+ * request-rate buckets. A caller that finds its bucket empty is told how long to wait for its token.
+ */
+class ActionRateLimiter {
+    static final double READ_PERMITS_PER_SECOND = 20.0;
+    static final int READ_BURST = 40;
+    static final double MUTATING_PERMITS_PER_SECOND = 5.0;
+    static final int MUTATING_BURST = 10;
+    static final ActionRateLimiter UNLIMITED = new ActionRateLimiter(
+            Double.POSITIVE_INFINITY, 1, Double.POSITIVE_INFINITY, 1, System::nanoTime);
+
+    private final double readPermitsPerSecond;
+    private final int readBurst;
+    private final double mutatingPermitsPerSecond;
+    private final int mutatingBurst;
+    private final LongSupplier nanoClock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    ActionRateLimiter() {
+        this(READ_PERMITS_PER_SECOND, READ_BURST, MUTATING_PERMITS_PER_SECOND, MUTATING_BURST, System::nanoTime);
+    }
+
+    ActionRateLimiter(
+            final double readPermitsPerSecond,
+            final int readBurst,
+            final double mutatingPermitsPerSecond,
+            final int mutatingBurst,
+            final LongSupplier nanoClock) {
+        this.readPermitsPerSecond = readPermitsPerSecond;
+        this.readBurst = readBurst;
+        this.mutatingPermitsPerSecond = mutatingPermitsPerSecond;
+        this.mutatingBurst = mutatingBurst;
+        this.nanoClock = nanoClock;
+    }
+
+    /*
+     * Takes a token for the action and returns how many milliseconds the caller must wait before using it
+     */
+    long reserve(final String action) {
+        return buckets.computeIfAbsent(action, this::newBucket).reserve(nanoClock.getAsLong());
+    }
+
+    /*
+     * Hands back a token taken by reserve that the caller decided not to wait for, so the callers queued behind it move up
+     */
+    void release(final String action) {
+        buckets.computeIfAbsent(action, this::newBucket).release();
+    }
+
+    static boolean isMutating(final String action) {
+        return action.startsWith("Create") || action.startsWith("Modify") || action.startsWith("Delete");
+    }
+
+    private TokenBucket newBucket(final String action) {
+        return isMutating(action)
+                ? new TokenBucket(mutatingPermitsPerSecond, mutatingBurst, nanoClock.getAsLong())
+                : new TokenBucket(readPermitsPerSecond, readBurst, nanoClock.getAsLong());
+    }
+
+    private static class TokenBucket {
+        private final double permitsPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(final double permitsPerSecond, final int capacity, final long nowNanos) {
+            this.permitsPerNano = permitsPerSecond / 1e9;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        // Tokens may go negative: each waiting caller is queued behind the ones already waiting
+        synchronized long reserve(final long nowNanos) {
+            if (Double.isInfinite(permitsPerNano)) {
+                return 0L;
+            }
+            tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * permitsPerNano);
+            lastRefillNanos = nowNanos;
+            tokens -= 1;
+            if (tokens >= 0) {
+                return 0L;
+            }
+            return (long) Math.ceil(-tokens / permitsPerNano / 1e6);
+        }
+
+        synchronized void release() {
+            if (!Double.isInfinite(permitsPerNano)) {
+                tokens = Math.min(capacity, tokens + 1);
+            }
+        }
+    }
+}
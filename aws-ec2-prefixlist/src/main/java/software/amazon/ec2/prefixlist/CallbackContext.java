@@ -5,8 +5,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
-import java.util.List;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,4 +18,38 @@ public class CallbackContext {
     private boolean tagsUpdated = false;
 
     private String prefixListId;
+
+    // Links the spans of every invocation of one stack operation
+    private String traceId;
+
+    // Entry update plan, re-derived from the entries at the base version on each callback (see EntryUpdatePlan)
+    private Long planBaseVersion;
+
+    private String planHash;
+
+    @Builder.Default
+    private int chunkCount = 0;
+
+    @Builder.Default
+    private int chunkIndex = 0;
+
+    @Builder.Default
+    private int chunkEntryCount = 0;
+
+    // Version the prefix list is expected to have once the current chunk has been applied
+    private Long expectedVersion;
+
+    // Times the plan was rebuilt after another writer changed the prefix list under this update
+    @Builder.Default
+    private int rebaseCount = 0;
+
+    // Stabilization polling chosen by PollingDelayPolicy; the total delay approximates the time spent waiting
+    @Builder.Default
+    private int pollAttempts = 0;
+
+    @Builder.Default
+    private int lastPollDelaySeconds = 0;
+
+    @Builder.Default
+    private int totalPollDelaySeconds = 0;
 }
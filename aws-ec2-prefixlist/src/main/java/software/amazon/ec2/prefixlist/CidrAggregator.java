@@ -0,0 +1,125 @@
+package software.amazon.ec2.prefixlist;
+
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Collapses entries into the smallest set of CIDRs covering exactly the same addresses. Keys are sorted
+ * once and merged on a stack in a single pass: an entry inside the block on top of the stack is absorbed,
+ * and two sibling blocks on top of the stack are replaced by their parent until no siblings remain.
+ * A merged block keeps the description of its lowest-addressed entry; of two identical CIDRs, the
+ * smaller description is kept, so the result does not depend on the input order.
+ */
+class CidrAggregator {
+
+    private CidrAggregator() {
+    }
+
+    static List<Entry> aggregate(final List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return entries;
+        }
+        final int size = entries.size();
+        final CidrKeys keys = new CidrKeys(size);
+        for (int i = 0; i < size; i++) {
+            final String cidr = entries.get(i).getCidr();
+            if (!keys.set(i, cidr)) {
+                throw new CfnInvalidRequestException(String.format("Invalid CIDR %s.", cidr));
+            }
+            keys.clearHostBits(i);
+        }
+
+        final long[] high = new long[size];
+        final long[] low = new long[size];
+        final int[] family = new int[size];
+        final int[] prefixLength = new int[size];
+        final String[] description = new String[size];
+        int top = -1;
+        for (final int index : keys.sortedOrder()) {
+            final String entryDescription = entries.get(index).getDescription();
+            if (top >= 0 && covers(family[top], high[top], low[top], prefixLength[top], keys, index)) {
+                if (prefixLength[top] == keys.getPrefixLength(index)
+                        && normalize(entryDescription).compareTo(normalize(description[top])) < 0) {
+                    description[top] = entryDescription;
+                }
+                continue;
+            }
+            top++;
+            high[top] = keys.getHigh(index);
+            low[top] = keys.getLow(index);
+            family[top] = keys.getFamily(index);
+            prefixLength[top] = keys.getPrefixLength(index);
+            description[top] = entryDescription;
+
+            while (top >= 1 && areSiblings(family, high, low, prefixLength, top - 1, top)) {
+                top--;
+                prefixLength[top]--;
+            }
+        }
+
+        final List<Entry> aggregated = new ArrayList<>(top + 1);
+        for (int i = 0; i <= top; i++) {
+            aggregated.add(Entry.builder()
+                    .cidr(CidrKeys.format(family[i], high[i], low[i], prefixLength[i]))
+                    .description(description[i])
+                    .build());
+        }
+        return aggregated;
+    }
+
+    private static boolean covers(
+            final int family,
+            final long high,
+            final long low,
+            final int prefixLength,
+            final CidrKeys keys,
+            final int index) {
+        if (family != keys.getFamily(index) || prefixLength > keys.getPrefixLength(index)) {
+            return false;
+        }
+        final int width = family == CidrKeys.IPV4 ? CidrKeys.IPV4_MAX_PREFIX : CidrKeys.IPV6_MAX_PREFIX;
+        return high == (keys.getHigh(index) & highMask(width, prefixLength))
+                && low == (keys.getLow(index) & lowMask(width, prefixLength));
+    }
+
+    // Both blocks are aligned to their prefix, so siblings differ only in the last bit of the prefix
+    private static boolean areSiblings(
+            final int[] family,
+            final long[] high,
+            final long[] low,
+            final int[] prefixLength,
+            final int lower,
+            final int upper) {
+        if (family[lower] != family[upper] || prefixLength[lower] != prefixLength[upper] || prefixLength[lower] == 0) {
+            return false;
+        }
+        final int width = family[lower] == CidrKeys.IPV4 ? CidrKeys.IPV4_MAX_PREFIX : CidrKeys.IPV6_MAX_PREFIX;
+        final int bit = width - prefixLength[lower];
+        final long highBit = bit >= 64 ? 1L << (bit - 64) : 0L;
+        final long lowBit = bit < 64 ? 1L << bit : 0L;
+        return (high[lower] & highBit) == 0 && (low[lower] & lowBit) == 0
+                && high[upper] == (high[lower] | highBit)
+                && low[upper] == (low[lower] | lowBit);
+    }
+
+    private static long highMask(final int width, final int prefixLength) {
+        if (width == CidrKeys.IPV4_MAX_PREFIX || prefixLength == 0) {
+            return 0L;
+        }
+        return prefixLength >= 64 ? -1L : -1L << (64 - prefixLength);
+    }
+
+    private static long lowMask(final int width, final int prefixLength) {
+        final int hostBits = width - prefixLength;
+        if (hostBits >= 64) {
+            return 0L;
+        }
+        return -1L << hostBits;
+    }
+
+    private static String normalize(final String description) {
+        return description == null ? "" : description;
+    }
+}
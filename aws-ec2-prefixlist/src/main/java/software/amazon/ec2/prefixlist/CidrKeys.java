@@ -0,0 +1,381 @@
+package software.amazon.ec2.prefixlist;
+
+/*
+ * Parses CIDR strings into compact numeric keys held in parallel primitive arrays:
+ * IPv4 addresses live in the low word, IPv6 addresses span the high and low words,
+ * and the family and prefix length are packed into a single int.
+ * Keys order by family, then address (unsigned), then prefix length. An optional open-addressing
+ * index finds equal keys without sorting.
+ */
+class CidrKeys {
+    static final int IPV4 = 4;
+    static final int IPV6 = 6;
+    static final int IPV4_MAX_PREFIX = 32;
+    static final int IPV6_MAX_PREFIX = 128;
+
+    private final long[] high;
+    private final long[] low;
+    private final int[] familyAndPrefix;
+    private final int[] groups = new int[8];
+    // Slot + 1 of the first occurrence of each distinct key, 0 for an empty bucket
+    private int[] buckets;
+
+    CidrKeys(final int size) {
+        this.high = new long[size];
+        this.low = new long[size];
+        this.familyAndPrefix = new int[size];
+    }
+
+    int size() {
+        return high.length;
+    }
+
+    long getHigh(final int index) {
+        return high[index];
+    }
+
+    long getLow(final int index) {
+        return low[index];
+    }
+
+    int getFamily(final int index) {
+        return familyAndPrefix[index] >>> 8;
+    }
+
+    int getPrefixLength(final int index) {
+        return familyAndPrefix[index] & 0xFF;
+    }
+
+    /*
+     * Parses the cidr into the given slot, returning false if it is not a valid IPv4 or IPv6 CIDR.
+     */
+    boolean set(final int index, final String cidr) {
+        if (cidr == null) {
+            return false;
+        }
+        final int slash = cidr.indexOf('/');
+        if (slash <= 0 || slash == cidr.length() - 1) {
+            return false;
+        }
+        final int prefixLength = parseDecimal(cidr, slash + 1, cidr.length(), 3);
+        if (prefixLength < 0) {
+            return false;
+        }
+        if (cidr.lastIndexOf(':', slash) >= 0) {
+            if (prefixLength > IPV6_MAX_PREFIX || !parseIpv6(cidr, 0, slash)) {
+                return false;
+            }
+            high[index] = ((long) groups[0] << 48) | ((long) groups[1] << 32) | ((long) groups[2] << 16) | groups[3];
+            low[index] = ((long) groups[4] << 48) | ((long) groups[5] << 32) | ((long) groups[6] << 16) | groups[7];
+            familyAndPrefix[index] = (IPV6 << 8) | prefixLength;
+        } else {
+            final long address = parseIpv4(cidr, 0, slash);
+            if (prefixLength > IPV4_MAX_PREFIX || address < 0) {
+                return false;
+            }
+            high[index] = 0L;
+            low[index] = address;
+            familyAndPrefix[index] = (IPV4 << 8) | prefixLength;
+        }
+        return true;
+    }
+
+    void copy(final int index, final CidrKeys other, final int otherIndex) {
+        high[index] = other.high[otherIndex];
+        low[index] = other.low[otherIndex];
+        familyAndPrefix[index] = other.familyAndPrefix[otherIndex];
+    }
+
+    /*
+     * Clears the host bits below the prefix length, so "10.0.0.1/24" becomes the key of "10.0.0.0/24".
+     */
+    void clearHostBits(final int index) {
+        final int prefixLength = getPrefixLength(index);
+        if (getFamily(index) == IPV4) {
+            low[index] &= prefixLength == 0 ? 0L : (0xFFFFFFFFL << (IPV4_MAX_PREFIX - prefixLength)) & 0xFFFFFFFFL;
+        } else if (prefixLength >= 64) {
+            low[index] &= prefixLength == 64 ? 0L : -1L << (IPV6_MAX_PREFIX - prefixLength);
+        } else {
+            high[index] &= prefixLength == 0 ? 0L : -1L << (64 - prefixLength);
+            low[index] = 0L;
+        }
+    }
+
+    /*
+     * Returns whether any bit below the prefix length is set, as in "10.0.0.1/24".
+     */
+    boolean hasHostBits(final int index) {
+        final long keyHigh = high[index];
+        final long keyLow = low[index];
+        clearHostBits(index);
+        final boolean hasHostBits = keyHigh != high[index] || keyLow != low[index];
+        high[index] = keyHigh;
+        low[index] = keyLow;
+        return hasHostBits;
+    }
+
+    int compare(final int index, final CidrKeys other, final int otherIndex) {
+        final int family = Integer.compare(getFamily(index), other.getFamily(otherIndex));
+        if (family != 0) {
+            return family;
+        }
+        final int highComparison = Long.compareUnsigned(high[index], other.high[otherIndex]);
+        if (highComparison != 0) {
+            return highComparison;
+        }
+        final int lowComparison = Long.compareUnsigned(low[index], other.low[otherIndex]);
+        if (lowComparison != 0) {
+            return lowComparison;
+        }
+        return Integer.compare(getPrefixLength(index), other.getPrefixLength(otherIndex));
+    }
+
+    /*
+     * Returns the slot indices in key order.
+     */
+    int[] sortedOrder() {
+        final int[] order = new int[size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        sort(order, order.length);
+        return order;
+    }
+
+    /*
+     * Sorts the first count slot indices into key order. The sort is a stable bottom-up merge sort over
+     * int indices, so equal keys keep their given order and no boxed comparator is needed.
+     */
+    void sort(final int[] indices, final int count) {
+        int[] order = indices;
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width <<= 1) {
+            for (int start = 0; start < count; start += width << 1) {
+                final int middle = Math.min(start + width, count);
+                final int end = Math.min(start + (width << 1), count);
+                int left = start;
+                int right = middle;
+                int out = start;
+                while (left < middle && right < end) {
+                    buffer[out++] = compare(order[right], this, order[left]) < 0 ? order[right++] : order[left++];
+                }
+                while (left < middle) {
+                    buffer[out++] = order[left++];
+                }
+                while (right < end) {
+                    buffer[out++] = order[right++];
+                }
+            }
+            final int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        if (order != indices) {
+            System.arraycopy(order, 0, indices, 0, count);
+        }
+    }
+
+    /*
+     * Indexes every slot by key, keeping the first slot of duplicate keys. Needed before find.
+     */
+    void index() {
+        final int size = size();
+        buckets = new int[Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1];
+        final int mask = buckets.length - 1;
+        for (int index = 0; index < size; index++) {
+            int bucket = hash(high[index], low[index], familyAndPrefix[index]) & mask;
+            while (buckets[bucket] != 0 && !sameKey(buckets[bucket] - 1, this, index)) {
+                bucket = (bucket + 1) & mask;
+            }
+            if (buckets[bucket] == 0) {
+                buckets[bucket] = index + 1;
+            }
+        }
+    }
+
+    /*
+     * Returns the first slot holding the same key as the other slot, or -1 if there is none.
+     */
+    int find(final CidrKeys other, final int otherIndex) {
+        final int mask = buckets.length - 1;
+        int bucket = hash(other.high[otherIndex], other.low[otherIndex], other.familyAndPrefix[otherIndex]) & mask;
+        while (buckets[bucket] != 0) {
+            if (sameKey(buckets[bucket] - 1, other, otherIndex)) {
+                return buckets[bucket] - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean sameKey(final int index, final CidrKeys other, final int otherIndex) {
+        return low[index] == other.low[otherIndex]
+                && high[index] == other.high[otherIndex]
+                && familyAndPrefix[index] == other.familyAndPrefix[otherIndex];
+    }
+
+    private static int hash(final long high, final long low, final int familyAndPrefix) {
+        long hash = (high * 0x9E3779B97F4A7C15L) ^ low ^ ((long) familyAndPrefix << 40);
+        hash *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    String format(final int index) {
+        return format(getFamily(index), high[index], low[index], getPrefixLength(index));
+    }
+
+    /*
+     * Formats a key as a CIDR: dotted decimal for IPv4 and RFC 5952 compressed hex for IPv6.
+     */
+    static String format(final int family, final long high, final long low, final int prefixLength) {
+        final StringBuilder cidr = new StringBuilder(family == IPV4 ? 18 : 43);
+        if (family == IPV4) {
+            cidr.append((low >>> 24) & 0xFF).append('.')
+                    .append((low >>> 16) & 0xFF).append('.')
+                    .append((low >>> 8) & 0xFF).append('.')
+                    .append(low & 0xFF);
+        } else {
+            final int[] groups = new int[8];
+            for (int i = 0; i < 4; i++) {
+                groups[i] = (int) (high >>> (48 - 16 * i)) & 0xFFFF;
+                groups[i + 4] = (int) (low >>> (48 - 16 * i)) & 0xFFFF;
+            }
+            // The longest run of two or more zero groups (the first on a tie) is written as "::"
+            int runStart = -1;
+            int runLength = 1;
+            for (int i = 0; i < groups.length; ) {
+                int j = i;
+                while (j < groups.length && groups[j] == 0) {
+                    j++;
+                }
+                if (j - i > runLength) {
+                    runStart = i;
+                    runLength = j - i;
+                }
+                i = j == i ? i + 1 : j;
+            }
+            for (int i = 0; i < groups.length; i++) {
+                if (i == runStart) {
+                    cidr.append("::");
+                    i += runLength - 1;
+                    continue;
+                }
+                if (i > 0 && i != runStart + runLength) {
+                    cidr.append(':');
+                }
+                cidr.append(Integer.toHexString(groups[i]));
+            }
+        }
+        return cidr.append('/').append(prefixLength).toString();
+    }
+
+    private static int parseDecimal(final String value, final int start, final int end, final int maxDigits) {
+        if (start >= end || end - start > maxDigits) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static long parseIpv4(final String value, final int start, final int end) {
+        long address = 0L;
+        int octetStart = start;
+        int octets = 0;
+        for (int i = start; i <= end; i++) {
+            if (i == end || value.charAt(i) == '.') {
+                final int octet = parseDecimal(value, octetStart, i, 3);
+                if (octet < 0 || octet > 255 || ++octets > 4) {
+                    return -1L;
+                }
+                address = (address << 8) | octet;
+                octetStart = i + 1;
+            }
+        }
+        return octets == 4 ? address : -1L;
+    }
+
+    private boolean parseIpv6(final String value, final int start, final int end) {
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = 0;
+        }
+        final int compression = value.indexOf("::", start);
+        if (compression < 0 || compression >= end) {
+            return parseGroups(value, start, end, 0) == groups.length;
+        }
+        final int nextCompression = value.indexOf("::", compression + 1);
+        if (nextCompression >= 0 && nextCompression < end) {
+            return false;
+        }
+        final int headCount = compression == start ? 0 : parseGroups(value, start, compression, 0);
+        if (headCount < 0) {
+            return false;
+        }
+        final int tailStart = compression + 2;
+        final int tailEnd = tailStart == end ? headCount : parseGroups(value, tailStart, end, headCount);
+        final int tailCount = tailEnd - headCount;
+        // "::" stands for at least one zero group
+        if (tailEnd < 0 || headCount + tailCount > groups.length - 1) {
+            return false;
+        }
+        // The tail was parsed right after the head; move it to the end of the address
+        for (int i = tailCount - 1; i >= 0; i--) {
+            groups[groups.length - tailCount + i] = groups[headCount + i];
+        }
+        for (int i = headCount; i < groups.length - tailCount; i++) {
+            groups[i] = 0;
+        }
+        return true;
+    }
+
+    /*
+     * Parses colon-separated hex groups (optionally ending in a dotted IPv4 address) into the scratch
+     * space starting at the given group, returning the index after the last group written or -1.
+     */
+    private int parseGroups(final String value, final int start, final int end, final int firstGroup) {
+        int group = firstGroup;
+        int groupStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && value.charAt(i) == '.') {
+                // Embedded IPv4 address in the last two groups
+                final long address = parseIpv4(value, groupStart, end);
+                if (address < 0 || group + 2 > groups.length) {
+                    return -1;
+                }
+                groups[group++] = (int) (address >>> 16);
+                groups[group++] = (int) (address & 0xFFFF);
+                return group;
+            }
+            if (i == end || value.charAt(i) == ':') {
+                final int hexValue = parseHex(value, groupStart, i);
+                if (hexValue < 0 || group >= groups.length) {
+                    return -1;
+                }
+                groups[group++] = hexValue;
+                groupStart = i + 1;
+            }
+        }
+        return group;
+    }
+
+    private static int parseHex(final String value, final int start, final int end) {
+        if (start >= end || end - start > 4) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+}
@@ -1,13 +1,77 @@
 package software.amazon.ec2.prefixlist;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.regions.DefaultAwsRegionProviderChain;
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Clients are cached for the lifetime of the container, keyed by region, so that warm invocations
+ * (including every callback re-invocation) reuse the resolved region, the HTTP connection pool and
+ * any kept-alive TLS connections instead of building a new client per request. The SDK does not retry:
+ * Ec2Invoker is the only retry layer, so every send is rate limited, counted and traced.
+ */
 public class ClientBuilder {
+    static final int MAX_CONNECTIONS = 16;
+    static final int CONNECTION_TIMEOUT_MILLIS = 2_000;
+    static final int SOCKET_TIMEOUT_MILLIS = 10_000;
+    static final int REQUEST_TIMEOUT_MILLIS = 15_000;
+    static final long CONNECTION_TTL_MILLIS = 60_000L;
+    static final long CONNECTION_MAX_IDLE_MILLIS = 30_000L;
+
+    static final Factory DEFAULT_FACTORY = ClientBuilder::getClient;
+
+    private static final Map<String, AmazonEC2> CLIENTS = new ConcurrentHashMap<>();
+
+    private static volatile String defaultRegion;
+
     private ClientBuilder() {
     }
 
     static AmazonEC2 getClient() {
-        return AmazonEC2ClientBuilder.defaultClient();
+        return getClient(null);
+    }
+
+    static AmazonEC2 getClient(final String region) {
+        final String clientRegion = region == null ? getDefaultRegion() : region;
+        return CLIENTS.computeIfAbsent(clientRegion, ClientBuilder::buildClient);
+    }
+
+    static ClientConfiguration getClientConfiguration() {
+        return new ClientConfiguration()
+                .withMaxConnections(MAX_CONNECTIONS)
+                .withTcpKeepAlive(true)
+                .withConnectionTTL(CONNECTION_TTL_MILLIS)
+                .withConnectionMaxIdleMillis(CONNECTION_MAX_IDLE_MILLIS)
+                .withConnectionTimeout(CONNECTION_TIMEOUT_MILLIS)
+                .withSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+                .withRequestTimeout(REQUEST_TIMEOUT_MILLIS)
+                .withRetryPolicy(PredefinedRetryPolicies.NO_RETRY_POLICY);
+    }
+
+    private static AmazonEC2 buildClient(final String region) {
+        return AmazonEC2ClientBuilder.standard()
+                .withRegion(region)
+                .withClientConfiguration(getClientConfiguration())
+                .build();
+    }
+
+    private static String getDefaultRegion() {
+        if (defaultRegion == null) {
+            defaultRegion = new DefaultAwsRegionProviderChain().getRegion();
+        }
+        return defaultRegion;
+    }
+
+    /*
+     * Handlers look their client up through a factory so that tests and load runs can substitute a fake EC2
+     */
+    @FunctionalInterface
+    interface Factory {
+        AmazonEC2 getClient(String region);
     }
 }
@@ -0,0 +1,161 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.Request;
+import com.amazonaws.auth.AWS4Signer;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.ec2.model.AddPrefixListEntry;
+import com.amazonaws.services.ec2.model.CreateManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.CreateTagsRequest;
+import com.amazonaws.services.ec2.model.DeleteManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.DeleteTagsRequest;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
+import com.amazonaws.services.ec2.model.ModifyManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.RemovePrefixListEntry;
+import com.amazonaws.services.ec2.model.transform.CreateManagedPrefixListRequestMarshaller;
+import com.amazonaws.services.ec2.model.transform.CreateTagsRequestMarshaller;
+import com.amazonaws.services.ec2.model.transform.DeleteManagedPrefixListRequestMarshaller;
+import com.amazonaws.services.ec2.model.transform.DeleteTagsRequestMarshaller;
+import com.amazonaws.services.ec2.model.transform.DescribeManagedPrefixListsRequestMarshaller;
+import com.amazonaws.services.ec2.model.transform.DescribeManagedPrefixListsResultStaxUnmarshaller;
+import com.amazonaws.services.ec2.model.transform.GetManagedPrefixListEntriesRequestMarshaller;
+import com.amazonaws.services.ec2.model.transform.GetManagedPrefixListEntriesResultStaxUnmarshaller;
+import com.amazonaws.services.ec2.model.transform.ModifyManagedPrefixListRequestMarshaller;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+import com.amazonaws.transform.Unmarshaller;
+import com.google.common.collect.ImmutableList;
+
+import javax.xml.stream.XMLInputFactory;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Moves one-time work from the first request into Lambda init, before any stack operation waits on it:
+ * building the regional client, loading the marshallers, signer and unmarshallers of the calls the
+ * handlers make, parsing the resource schema and running the local entry code once. Nothing is sent,
+ * since credentials only arrive with a request. Priming is off unless PRIME_ON_INIT is "true", runs at
+ * most once per container, and a failing step is skipped so the first request simply pays for it.
+ */
+final class ColdStartPrimer {
+    static final String PRIME_ON_INIT_VARIABLE = "PRIME_ON_INIT";
+    static final String CLIENT_STEP = "Client";
+    static final String MARSHALLERS_STEP = "Marshallers";
+    static final String SIGNER_STEP = "Signer";
+    static final String UNMARSHALLERS_STEP = "Unmarshallers";
+    static final String SCHEMA_STEP = "Schema";
+    static final String HANDLER_CODE_STEP = "HandlerCode";
+
+    static final String PRIME_ID = "pl-00000000000000000";
+    private static final String PRIME_CIDR = "10.0.0.0/32";
+    static final String DESCRIBE_RESPONSE = "<DescribeManagedPrefixListsResponse><requestId>prime</requestId>"
+            + "<prefixListSet><item><prefixListId>" + PRIME_ID + "</prefixListId><addressFamily>IPv4</addressFamily>"
+            + "<state>create-complete</state><prefixListName>prime</prefixListName><maxEntries>1</maxEntries>"
+            + "<version>1</version><ownerId>000000000000</ownerId><tagSet><item><key>k</key><value>v</value></item></tagSet>"
+            + "</item></prefixListSet></DescribeManagedPrefixListsResponse>";
+    static final String ENTRIES_RESPONSE = "<GetManagedPrefixListEntriesResponse><requestId>prime</requestId>"
+            + "<entrySet><item><cidr>" + PRIME_CIDR + "</cidr><description>prime</description></item></entrySet>"
+            + "</GetManagedPrefixListEntriesResponse>";
+    private static final AtomicBoolean PRIMED = new AtomicBoolean();
+
+    private ColdStartPrimer() {
+    }
+
+    /*
+     * Called from CreateHandler's static initializer, which runs while the handler wrapper is constructed
+     * during Lambda init
+     */
+    static void primeOnInit() {
+        if (isEnabled(System.getenv(PRIME_ON_INIT_VARIABLE)) && PRIMED.compareAndSet(false, true)) {
+            prime(ClientBuilder.DEFAULT_FACTORY, new Configuration());
+        }
+    }
+
+    static boolean isEnabled(final String primeOnInit) {
+        return "true".equalsIgnoreCase(primeOnInit);
+    }
+
+    /*
+     * Runs every priming step and returns the milliseconds each took, or -1 for a step that failed
+     */
+    static Map<String, Long> prime(final ClientBuilder.Factory clientFactory, final BaseConfiguration configuration) {
+        final Map<String, Long> timings = new LinkedHashMap<>();
+        // The client built here is cached per region, so the first request reuses it
+        step(timings, CLIENT_STEP, () -> clientFactory.getClient(null));
+        final Request<?>[] marshalled = new Request<?>[1];
+        step(timings, MARSHALLERS_STEP, () -> marshalled[0] = marshallAll());
+        step(timings, SIGNER_STEP, () -> sign(marshalled[0]));
+        step(timings, UNMARSHALLERS_STEP, () -> {
+            unmarshall(DESCRIBE_RESPONSE, DescribeManagedPrefixListsResultStaxUnmarshaller.getInstance());
+            unmarshall(ENTRIES_RESPONSE, GetManagedPrefixListEntriesResultStaxUnmarshaller.getInstance());
+        });
+        step(timings, SCHEMA_STEP, configuration::resourceSchemaJSONObject);
+        step(timings, HANDLER_CODE_STEP, ColdStartPrimer::runHandlerCode);
+        return timings;
+    }
+
+    private static Request<?> marshallAll() {
+        new CreateManagedPrefixListRequestMarshaller().marshall(new CreateManagedPrefixListRequest()
+                .withPrefixListName("prime")
+                .withAddressFamily(ModuleHelper.ADDRESS_FAMILY_IPV4)
+                .withMaxEntries(1)
+                .withEntries(new AddPrefixListEntry().withCidr(PRIME_CIDR).withDescription("prime"))
+                .withTagSpecifications(ModuleHelper.convertToTagSpecifications(ImmutableList.of(Tag.builder().key("k").value("v").build()))));
+        new GetManagedPrefixListEntriesRequestMarshaller().marshall(new GetManagedPrefixListEntriesRequest()
+                .withPrefixListId(PRIME_ID)
+                .withTargetVersion(1L)
+                .withMaxResults(ModuleHelper.DEFAULT_ENTRIES_MAX_RESULTS));
+        new ModifyManagedPrefixListRequestMarshaller().marshall(new ModifyManagedPrefixListRequest()
+                .withPrefixListId(PRIME_ID)
+                .withCurrentVersion(1L)
+                .withAddEntries(new AddPrefixListEntry().withCidr(PRIME_CIDR))
+                .withRemoveEntries(new RemovePrefixListEntry().withCidr(PRIME_CIDR)));
+        new DeleteManagedPrefixListRequestMarshaller().marshall(new DeleteManagedPrefixListRequest().withPrefixListId(PRIME_ID));
+        new CreateTagsRequestMarshaller().marshall(new CreateTagsRequest().withResources(PRIME_ID)
+                .withTags(new com.amazonaws.services.ec2.model.Tag("k", "v")));
+        new DeleteTagsRequestMarshaller().marshall(new DeleteTagsRequest().withResources(PRIME_ID)
+                .withTags(new com.amazonaws.services.ec2.model.Tag("k")));
+        return new DescribeManagedPrefixListsRequestMarshaller().marshall(new DescribeManagedPrefixListsRequest()
+                .withPrefixListIds(PRIME_ID));
+    }
+
+    // Signing loads the JCE MAC and digest providers, which are slow to initialize the first time
+    private static void sign(final Request<?> request) {
+        request.setEndpoint(URI.create("https://ec2.us-east-1.amazonaws.com"));
+        final AWS4Signer signer = new AWS4Signer();
+        signer.setServiceName("ec2");
+        signer.setRegionName("us-east-1");
+        signer.sign(request, new BasicAWSCredentials("prime", "prime"));
+    }
+
+    private static void unmarshall(final String response, final Unmarshaller<?, StaxUnmarshallerContext> unmarshaller) {
+        try {
+            unmarshaller.unmarshall(new StaxUnmarshallerContext(
+                    XMLInputFactory.newInstance().createXMLEventReader(new StringReader(response))));
+        } catch (final Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void runHandlerCode() {
+        final List<Entry> entries = ImmutableList.of(Entry.builder().cidr(PRIME_CIDR).description("prime").build());
+        EntryValidator.validate(ModuleHelper.ADDRESS_FAMILY_IPV4, 1, entries);
+        EntryUpdatePlan.compute(1L, entries, ImmutableList.of());
+        TagDiff.compute(ImmutableList.of(), ModuleHelper.convertToEc2Tags(ImmutableList.of(Tag.builder().key("k").value("v").build())));
+        new HandlerMetrics("Prime").toEmf();
+    }
+
+    private static void step(final Map<String, Long> timings, final String name, final Runnable step) {
+        final long start = System.nanoTime();
+        try {
+            step.run();
+            timings.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (final RuntimeException ex) {
+            timings.put(name, -1L);
+        }
+    }
+}
@@ -15,8 +15,41 @@ import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 public class CreateHandler extends BaseHandler<CallbackContext> {
+    private final StabilizationWaiter waiter;
+    private final Ec2Invoker.Factory invokerFactory;
+    private final ClientBuilder.Factory clientFactory;
+    private final PrefixListStabilizer stabilizer;
+
+    // The handler wrapper builds every handler during Lambda init, this one first, so the class loads once per container
+    static {
+        ColdStartPrimer.primeOnInit();
+    }
+
+    public CreateHandler() {
+        this(new StabilizationWaiter(), Ec2Invoker.DEFAULT_FACTORY);
+    }
+
+    CreateHandler(final StabilizationWaiter waiter, final Ec2Invoker.Factory invokerFactory) {
+        this(waiter, invokerFactory, ClientBuilder.DEFAULT_FACTORY);
+    }
+
+    CreateHandler(final StabilizationWaiter waiter, final Ec2Invoker.Factory invokerFactory, final ClientBuilder.Factory clientFactory) {
+        this(waiter, invokerFactory, clientFactory, PrefixListStabilizer.DEFAULT);
+    }
+
+    CreateHandler(
+            final StabilizationWaiter waiter,
+            final Ec2Invoker.Factory invokerFactory,
+            final ClientBuilder.Factory clientFactory,
+            final PrefixListStabilizer stabilizer) {
+        this.waiter = waiter;
+        this.invokerFactory = invokerFactory;
+        this.clientFactory = clientFactory;
+        this.stabilizer = stabilizer;
+    }
 
     @Override
     public ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -24,12 +57,36 @@ public class CreateHandler extends BaseHandler<CallbackContext> {
             final ResourceHandlerRequest<ResourceModel> request,
             final CallbackContext callbackContext,
             final Logger logger) {
-        final AmazonEC2 ec2Client = ClientBuilder.getClient();
+        return HandlerMetrics.record("CreateHandler", logger,
+                metrics -> handle(proxy, request, callbackContext, logger, metrics));
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> handle(
+            final AmazonWebServicesClientProxy proxy,
+            final ResourceHandlerRequest<ResourceModel> request,
+            final CallbackContext callbackContext,
+            final Logger logger,
+            final HandlerMetrics metrics) {
+        final AmazonEC2 ec2Client = clientFactory.getClient(request.getRegion());
+        final Ec2Invoker invoker = invokerFactory.create(proxy, metrics);
         final ResourceModel model = request.getDesiredResourceState();
         final CallbackContext context = callbackContext == null ? CallbackContext.builder().build() : callbackContext.toBuilder().build();
+        metrics.getTracer().join(context);
+        return Ec2Invoker.deferWhenRateLimited(model, context,
+                () -> createAndStabilize(proxy, ec2Client, invoker, model, context, logger, metrics));
+    }
 
+    private ProgressEvent<ResourceModel, CallbackContext> createAndStabilize(
+            final AmazonWebServicesClientProxy proxy,
+            final AmazonEC2 ec2Client,
+            final Ec2Invoker invoker,
+            final ResourceModel model,
+            final CallbackContext context,
+            final Logger logger,
+            final HandlerMetrics metrics) {
         if (!context.isMutationStarted()) {
-            List<AddPrefixListEntry> addPrefixListEntries = ModuleHelper.convertToAddPrefixListEntries(model.getEntries());
+            EntryValidator.validate(model);
+            List<AddPrefixListEntry> addPrefixListEntries = ModuleHelper.convertToAddPrefixListEntries(ModuleHelper.getDesiredEntries(model));
             List<TagSpecification> tagSpecifications = ModuleHelper.convertToTagSpecifications(model.getTags());
             final CreateManagedPrefixListRequest createRequest = new CreateManagedPrefixListRequest()
                     .withPrefixListName(model.getPrefixListName())
@@ -38,10 +95,25 @@ public class CreateHandler extends BaseHandler<CallbackContext> {
                     .withEntries(addPrefixListEntries)
                     .withTagSpecifications(tagSpecifications);
 
-            final CreateManagedPrefixListResult createResult = proxy.injectCredentialsAndInvoke(createRequest, ec2Client::createManagedPrefixList);
-            context.setPrefixListId(createResult.getPrefixList().getPrefixListId());
+            final CreateManagedPrefixListResult createResult = metrics.time(HandlerMetrics.MUTATE_PHASE,
+                    () -> invoker.invoke(createRequest, ec2Client::createManagedPrefixList));
+            final ManagedPrefixList createdPrefixList = createResult.getPrefixList();
+            context.setPrefixListId(createdPrefixList.getPrefixListId());
             context.setMutationStarted(true);
-            logger.log(String.format("Prefix list with PrefixListId %s is successfully created.", createResult.getPrefixList().getPrefixListId()));
+            logger.log(String.format("Prefix list with PrefixListId %s is successfully created.", createdPrefixList.getPrefixListId()));
+
+            // The create result already carries the state, so a terminal one needs no describe at all
+            if (PrefixListStabilizer.isSettled(PrefixListStabilizer.Operation.CREATE, createdPrefixList)) {
+                return getProgressEvent(model, context, createdPrefixList);
+            }
+
+            // Most creates settle within a couple of seconds; check before handing off to a callback
+            final Optional<ManagedPrefixList> settledPrefixList = metrics.time(HandlerMetrics.STABILIZE_PHASE, () -> waiter.await(proxy,
+                    () -> describePrefixList(invoker, ec2Client, context.getPrefixListId()),
+                    prefixList -> PrefixListStabilizer.isSettled(PrefixListStabilizer.Operation.CREATE, prefixList)));
+            if (settledPrefixList.isPresent()) {
+                return getProgressEvent(model, context, settledPrefixList.get());
+            }
 
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
                     .callbackContext(context)
@@ -50,40 +122,44 @@ public class CreateHandler extends BaseHandler<CallbackContext> {
                     .build();
         }
 
+        final ManagedPrefixList prefixList = metrics.time(HandlerMetrics.DESCRIBE_PHASE,
+                () -> describePrefixList(invoker, ec2Client, context.getPrefixListId()));
+        return getProgressEvent(model, context, prefixList);
+    }
+
+    private static ManagedPrefixList describePrefixList(
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
+            final String prefixListId) {
         final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest()
-                .withPrefixListIds(ImmutableList.of(context.getPrefixListId()));
-        final ManagedPrefixList prefixList = proxy.injectCredentialsAndInvoke(describeRequest, ec2Client::describeManagedPrefixLists)
+                .withPrefixListIds(ImmutableList.of(prefixListId));
+        return invoker.invoke(describeRequest, ec2Client::describeManagedPrefixLists)
                 .getPrefixLists()
                 .get(0);
-        if(prefixList.getState().equals(ModuleHelper.CREATE_FAILED)) {
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .callbackContext(context)
-                    .resourceModel(model)
-                    .status(OperationStatus.FAILED)
-                    .build();
-        } else if(prefixList.getState().equals(ModuleHelper.CREATE_IN_PROGRESS)) {
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .callbackContext(context)
-                    .callbackDelaySeconds(ModuleHelper.POLLING_DELAY_SECONDS)
-                    .resourceModel(model)
-                    .status(OperationStatus.IN_PROGRESS)
-                    .build();
-        } else {
-            final ResourceModel updatedModel = ResourceModel.builder()
-                    .entries(model.getEntries())
-                    .tags(model.getTags())
-                    .addressFamily(model.getAddressFamily())
-                    .maxEntries(model.getMaxEntries())
-                    .prefixListName(model.getPrefixListName())
-                    .prefixListId(prefixList.getPrefixListId())
-                    .ownerId(prefixList.getOwnerId())
-                    .version(prefixList.getVersion().intValue())
-                    .arn(prefixList.getPrefixListArn())
-                    .build();
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .resourceModel(updatedModel)
-                    .status(OperationStatus.SUCCESS)
-                    .build();
-        }
+    }
+
+    /*
+     * This Method will map the described prefix list state to FAILED, IN_PROGRESS or SUCCESS
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> getProgressEvent(
+            final ResourceModel model,
+            final CallbackContext context,
+            final ManagedPrefixList prefixList) {
+        return stabilizer.getProgressEvent(PrefixListStabilizer.Operation.CREATE, prefixList.getState(), model, context,
+                getEntryCount(model), () -> ResourceModel.builder()
+                        .entries(model.getEntries())
+                        .tags(model.getTags())
+                        .addressFamily(model.getAddressFamily())
+                        .maxEntries(model.getMaxEntries())
+                        .prefixListName(model.getPrefixListName())
+                        .prefixListId(prefixList.getPrefixListId())
+                        .ownerId(prefixList.getOwnerId())
+                        .version(prefixList.getVersion().intValue())
+                        .arn(prefixList.getPrefixListArn())
+                        .build());
+    }
+
+    private static int getEntryCount(final ResourceModel model) {
+        return model.getEntries() == null ? 0 : model.getEntries().size();
     }
 }
@@ -9,11 +9,40 @@ import com.amazonaws.services.ec2.model.ManagedPrefixList;
 import com.google.common.collect.ImmutableList;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
-import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
+import java.util.Optional;
+
 public class DeleteHandler extends BaseHandler<CallbackContext> {
+    private final StabilizationWaiter waiter;
+    private final Ec2Invoker.Factory invokerFactory;
+    private final ClientBuilder.Factory clientFactory;
+    private final PrefixListStabilizer stabilizer;
+
+    public DeleteHandler() {
+        this(new StabilizationWaiter(), Ec2Invoker.DEFAULT_FACTORY);
+    }
+
+    DeleteHandler(final StabilizationWaiter waiter, final Ec2Invoker.Factory invokerFactory) {
+        this(waiter, invokerFactory, ClientBuilder.DEFAULT_FACTORY);
+    }
+
+    DeleteHandler(final StabilizationWaiter waiter, final Ec2Invoker.Factory invokerFactory, final ClientBuilder.Factory clientFactory) {
+        this(waiter, invokerFactory, clientFactory, PrefixListStabilizer.DEFAULT);
+    }
+
+    DeleteHandler(
+            final StabilizationWaiter waiter,
+            final Ec2Invoker.Factory invokerFactory,
+            final ClientBuilder.Factory clientFactory,
+            final PrefixListStabilizer stabilizer) {
+        this.waiter = waiter;
+        this.invokerFactory = invokerFactory;
+        this.clientFactory = clientFactory;
+        this.stabilizer = stabilizer;
+    }
 
     @Override
     public ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -21,21 +50,52 @@ public class DeleteHandler extends BaseHandler<CallbackContext> {
         final ResourceHandlerRequest<ResourceModel> request,
         final CallbackContext callbackContext,
         final Logger logger) {
-        final AmazonEC2 ec2Client = ClientBuilder.getClient();
+        return HandlerMetrics.record("DeleteHandler", logger,
+                metrics -> handle(proxy, request, callbackContext, logger, metrics));
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> handle(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final Logger logger,
+        final HandlerMetrics metrics) {
+        final AmazonEC2 ec2Client = clientFactory.getClient(request.getRegion());
+        final Ec2Invoker invoker = invokerFactory.create(proxy, metrics);
         final ResourceModel model = request.getDesiredResourceState();
         final CallbackContext context = callbackContext == null ? CallbackContext.builder().build() : callbackContext.toBuilder().build();
+        metrics.getTracer().join(context);
+        return Ec2Invoker.deferWhenRateLimited(model, context,
+                () -> deleteAndStabilize(proxy, ec2Client, invoker, model, context, logger, metrics));
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> deleteAndStabilize(
+        final AmazonWebServicesClientProxy proxy,
+        final AmazonEC2 ec2Client,
+        final Ec2Invoker invoker,
+        final ResourceModel model,
+        final CallbackContext context,
+        final Logger logger,
+        final HandlerMetrics metrics) {
         final String prefixListId = model.getPrefixListId();
 
         if (!context.isMutationStarted()) {
             final DeleteManagedPrefixListRequest deleteRequest = new DeleteManagedPrefixListRequest().withPrefixListId(prefixListId);
 
-            ModuleHelper.invokeAndConvertException(() ->
-                    proxy.injectCredentialsAndInvoke(deleteRequest, ec2Client::deleteManagedPrefixList),
-                    prefixListId);
+            metrics.time(HandlerMetrics.MUTATE_PHASE,
+                    () -> invoker.invoke(deleteRequest, ec2Client::deleteManagedPrefixList, prefixListId));
 
             context.setMutationStarted(true);
             logger.log(String.format("Deleting prefix list with PrefixListId %s.", prefixListId));
 
+            final Optional<String> settledState = metrics.time(HandlerMetrics.STABILIZE_PHASE, () -> waiter.await(proxy,
+                    () -> getState(describePrefixList(invoker, ec2Client, prefixListId)),
+                    state -> PrefixListStabilizer.evaluate(PrefixListStabilizer.Operation.DELETE, state)
+                            != PrefixListStabilizer.Outcome.CONTINUE));
+            if (settledState.isPresent()) {
+                return getProgressEvent(model, context, settledState.get());
+            }
+
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
                     .callbackContext(context)
                     .resourceModel(model)
@@ -43,32 +103,41 @@ public class DeleteHandler extends BaseHandler<CallbackContext> {
                     .build();
         }
 
+        final Optional<ManagedPrefixList> prefixList = metrics.time(HandlerMetrics.DESCRIBE_PHASE,
+                () -> describePrefixList(invoker, ec2Client, prefixListId));
+        return getProgressEvent(model, context, getState(prefixList));
+    }
+
+    private static Optional<ManagedPrefixList> describePrefixList(
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
+            final String prefixListId) {
         final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest()
                 .withPrefixListIds(ImmutableList.of(prefixListId));
         try {
-            final DescribeManagedPrefixListsResult result = proxy.injectCredentialsAndInvoke(describeRequest, ec2Client::describeManagedPrefixLists);
-            final ManagedPrefixList prefixList = result.getPrefixLists().get(0);
-            if (prefixList.getState().equals(ModuleHelper.DELETE_FAILED)) {
-                return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                        .callbackContext(context)
-                        .resourceModel(model)
-                        .status(OperationStatus.FAILED)
-                        .build();
-            } else {
-                return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                        .callbackContext(context)
-                        .callbackDelaySeconds(ModuleHelper.POLLING_DELAY_SECONDS)
-                        .resourceModel(model)
-                        .status(OperationStatus.IN_PROGRESS)
-                        .build();
-            }
+            final DescribeManagedPrefixListsResult result = invoker.invoke(describeRequest, ec2Client::describeManagedPrefixLists);
+            return Optional.of(result.getPrefixLists().get(0));
         } catch (AmazonEC2Exception ex) {
             if (ModuleHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND.equals(ex.getErrorCode())) {
-                return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                        .status(OperationStatus.SUCCESS)
-                        .build();
+                return Optional.empty();
             }
             throw ex;
         }
     }
+
+    /*
+     * This Method will return SUCCESS once the prefix list is gone or delete-complete, FAILED on delete-failed
+     * and IN_PROGRESS otherwise
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> getProgressEvent(
+            final ResourceModel model,
+            final CallbackContext context,
+            final String state) {
+        return stabilizer.getProgressEvent(PrefixListStabilizer.Operation.DELETE, state, model, context, 0, () -> null);
+    }
+
+    // An empty result means the prefix list is gone, which ends the delete just like delete-complete
+    private static String getState(final Optional<ManagedPrefixList> prefixList) {
+        return prefixList.map(ManagedPrefixList::getState).orElse(ModuleHelper.DELETE_COMPLETE);
+    }
 }
@@ -0,0 +1,173 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResult;
+import com.amazonaws.ResponseMetadata;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/*
+ * The single path for EC2 calls made through the proxy. Each call first takes a token from its API
+ * action's client-side rate limiter; a throttled call is retried with jittered exponential backoff
+ * while attempts remain and the remaining handler time can absorb the wait. Throttling that outlasts
+ * the retry budget surfaces as CfnThrottlingException so CloudFormation can retry the handler. A rate
+ * limit wait the remaining handler time cannot absorb is not slept out: the token is handed back and a
+ * RateLimitedException, which mutating handlers turn into an IN_PROGRESS callback, is thrown instead.
+ * Every attempt and every throttle is counted in the invocation's metrics, and every attempt is traced.
+ */
+class Ec2Invoker {
+    // Time to leave for the rest of the invocation after the last backoff
+    static final long RETRY_TIME_RESERVE_MILLIS = 5_000L;
+    static final Factory DEFAULT_FACTORY = Ec2Invoker::new;
+
+    private static final ActionRateLimiter SHARED_RATE_LIMITER = new ActionRateLimiter();
+
+    private final AmazonWebServicesClientProxy proxy;
+    private final HandlerMetrics metrics;
+    private final ToLongFunction<AmazonWebServicesClientProxy> remainingTime;
+    private final ActionRateLimiter rateLimiter;
+    private final LongConsumer sleeper;
+
+    Ec2Invoker(final AmazonWebServicesClientProxy proxy, final HandlerMetrics metrics) {
+        this(proxy, metrics, AmazonWebServicesClientProxy::getRemainingTimeInMillis, SHARED_RATE_LIMITER, ModuleHelper::sleepQuietly);
+    }
+
+    Ec2Invoker(
+            final AmazonWebServicesClientProxy proxy,
+            final HandlerMetrics metrics,
+            final ToLongFunction<AmazonWebServicesClientProxy> remainingTime,
+            final ActionRateLimiter rateLimiter,
+            final LongConsumer sleeper) {
+        this.proxy = proxy;
+        this.metrics = metrics;
+        this.remainingTime = remainingTime;
+        this.rateLimiter = rateLimiter;
+        this.sleeper = sleeper;
+    }
+
+    <RequestT extends AmazonWebServiceRequest, ResultT extends AmazonWebServiceResult<ResponseMetadata>> ResultT invoke(
+            final RequestT request,
+            final Function<RequestT, ResultT> requestFunction) {
+        return invokeTraced(request, requestFunction, null, null);
+    }
+
+    /*
+     * This method will invoke the request and map a missing prefix list to CfnNotFoundException
+     */
+    <RequestT extends AmazonWebServiceRequest, ResultT extends AmazonWebServiceResult<ResponseMetadata>> ResultT invoke(
+            final RequestT request,
+            final Function<RequestT, ResultT> requestFunction,
+            final String prefixListId) {
+        return ModuleHelper.invokeAndConvertException(() -> invokeTraced(request, requestFunction, prefixListId, null), prefixListId);
+    }
+
+    /*
+     * This method will invoke the request for one page of a paginated read, tagging its spans with the page number
+     */
+    <RequestT extends AmazonWebServiceRequest, ResultT extends AmazonWebServiceResult<ResponseMetadata>> ResultT invoke(
+            final RequestT request,
+            final Function<RequestT, ResultT> requestFunction,
+            final String prefixListId,
+            final int page) {
+        return ModuleHelper.invokeAndConvertException(() -> invokeTraced(request, requestFunction, prefixListId, page), prefixListId);
+    }
+
+    private <RequestT extends AmazonWebServiceRequest, ResultT extends AmazonWebServiceResult<ResponseMetadata>> ResultT invokeTraced(
+            final RequestT request,
+            final Function<RequestT, ResultT> requestFunction,
+            final String prefixListId,
+            final Integer page) {
+        final String action = getActionName(request);
+        final Tracer tracer = metrics.getTracer();
+        int attempt = 1;
+        while (true) {
+            final long rateLimitWait = rateLimiter.reserve(action);
+            if (rateLimitWait > 0) {
+                if (remainingTime.applyAsLong(proxy) - rateLimitWait < RETRY_TIME_RESERVE_MILLIS) {
+                    rateLimiter.release(action);
+                    throw new RateLimitedException(action, rateLimitWait);
+                }
+                sleeper.accept(rateLimitWait);
+            }
+            metrics.countCall(action);
+            try {
+                return tracer.trace(action, prefixListId, page, attempt,
+                        () -> proxy.injectCredentialsAndInvoke(request, requestFunction));
+            } catch (final AmazonServiceException ex) {
+                if (!ModuleHelper.isThrottlingException(ex)) {
+                    throw ex;
+                }
+                metrics.increment(HandlerMetrics.THROTTLES);
+                final long backoff = ModuleHelper.getThrottlingBackoffMillis(attempt);
+                if (attempt >= ModuleHelper.THROTTLING_MAX_ATTEMPTS
+                        || remainingTime.applyAsLong(proxy) - backoff < RETRY_TIME_RESERVE_MILLIS) {
+                    throw new CfnThrottlingException(action, ex);
+                }
+                sleeper.accept(backoff);
+                attempt++;
+            }
+        }
+    }
+
+    /*
+     * This method will run a mutating handler's body and, if a rate limit wait would outlast the invocation,
+     * return IN_PROGRESS with the context as it stands so the callback picks up from there once the queue drained.
+     * The wait is only raised before a request is sent, so the context already records every call that was made.
+     */
+    static ProgressEvent<ResourceModel, CallbackContext> deferWhenRateLimited(
+            final ResourceModel model,
+            final CallbackContext context,
+            final Supplier<ProgressEvent<ResourceModel, CallbackContext>> body) {
+        try {
+            return body.get();
+        } catch (final RateLimitedException ex) {
+            return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                    .callbackContext(context)
+                    .callbackDelaySeconds((int) Math.max(1L, (ex.getWaitMillis() + 999L) / 1_000L))
+                    .resourceModel(model)
+                    .status(OperationStatus.IN_PROGRESS)
+                    .build();
+        }
+    }
+
+    HandlerMetrics getMetrics() {
+        return metrics;
+    }
+
+    static String getActionName(final AmazonWebServiceRequest request) {
+        final String name = request.getClass().getSimpleName();
+        return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+    }
+
+    /*
+     * A rate limit wait that would leave less than the reserve of the invocation. Read and List cannot return
+     * IN_PROGRESS, so there it fails the handler as throttling does and CloudFormation retries it.
+     */
+    static class RateLimitedException extends CfnThrottlingException {
+        private static final long serialVersionUID = 1L;
+
+        private final long waitMillis;
+
+        RateLimitedException(final String action, final long waitMillis) {
+            super(action);
+            this.waitMillis = waitMillis;
+        }
+
+        long getWaitMillis() {
+            return waitMillis;
+        }
+    }
+
+    @FunctionalInterface
+    interface Factory {
+        Ec2Invoker create(AmazonWebServicesClientProxy proxy, HandlerMetrics metrics);
+    }
+}
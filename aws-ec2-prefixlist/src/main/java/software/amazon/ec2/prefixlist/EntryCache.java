@@ -0,0 +1,126 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.ManagedPrefixList;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Container-lifetime LRU cache of prefix list entries keyed by prefix list id and version. A version
+ * only ever describes one set of entries, so a cached version can be served without paging through
+ * GetManagedPrefixListEntries again. Entries are held as parallel string arrays and bounded by the
+ * total number of entries held, evicting the least recently used versions first.
+ */
+class EntryCache {
+    static final String MAX_ENTRIES_VARIABLE = "ENTRY_CACHE_MAX_ENTRIES";
+    static final int DEFAULT_MAX_ENTRIES = 50_000;
+    static final EntryCache SHARED = new EntryCache(
+            ModuleHelper.getConfiguredInt(MAX_ENTRIES_VARIABLE, DEFAULT_MAX_ENTRIES));
+
+    private final int maxEntries;
+    // Access-ordered, so iteration starts at the least recently used version
+    private final LinkedHashMap<String, CachedEntries> versions = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private int heldEntries;
+
+    EntryCache(final int maxEntries) {
+        this.maxEntries = Math.max(maxEntries, 0);
+    }
+
+    /*
+     * Returns the version to cache a described prefix list under, or null while its entries may still be changing
+     */
+    static Long getCacheableVersion(final ManagedPrefixList prefixList) {
+        final String state = prefixList.getState();
+        if (state != null && state.endsWith("-in-progress")) {
+            return null;
+        }
+        return prefixList.getVersion();
+    }
+
+    /*
+     * Returns a fresh copy of the cached entries, or null if this version is not cached
+     */
+    List<Entry> get(final String prefixListId, final long version) {
+        final CachedEntries cached;
+        synchronized (this) {
+            cached = versions.get(key(prefixListId, version));
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.toEntries();
+    }
+
+    void put(final String prefixListId, final long version, final List<Entry> entries) {
+        if (entries.size() > maxEntries) {
+            return;
+        }
+        final CachedEntries cached = new CachedEntries(entries);
+        synchronized (this) {
+            final CachedEntries previous = versions.put(key(prefixListId, version), cached);
+            heldEntries += cached.size() - (previous == null ? 0 : previous.size());
+            final Iterator<Map.Entry<String, CachedEntries>> eldest = versions.entrySet().iterator();
+            while (heldEntries > maxEntries && eldest.hasNext()) {
+                heldEntries -= eldest.next().getValue().size();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    synchronized int getHeldEntries() {
+        return heldEntries;
+    }
+
+    private static String key(final String prefixListId, final long version) {
+        return prefixListId + '#' + version;
+    }
+
+    private static class CachedEntries {
+        private final String[] cidrs;
+        private final String[] descriptions;
+
+        CachedEntries(final List<Entry> entries) {
+            this.cidrs = new String[entries.size()];
+            this.descriptions = new String[entries.size()];
+            for (int i = 0; i < cidrs.length; i++) {
+                cidrs[i] = entries.get(i).getCidr();
+                descriptions[i] = entries.get(i).getDescription();
+            }
+        }
+
+        int size() {
+            return cidrs.length;
+        }
+
+        // Entry is mutable, so callers always get their own instances
+        List<Entry> toEntries() {
+            final List<Entry> entries = new ArrayList<>(cidrs.length);
+            for (int i = 0; i < cidrs.length; i++) {
+                entries.add(Entry.builder().cidr(cidrs[i]).description(descriptions[i]).build());
+            }
+            return entries;
+        }
+    }
+}
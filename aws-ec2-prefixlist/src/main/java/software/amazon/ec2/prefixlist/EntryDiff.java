@@ -0,0 +1,189 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Computes the entries to add and remove to turn the current entries into the desired ones.
+ * CIDRs are compared as numeric keys rather than strings, so "10.0.0.0/24" and "010.0.0.0/24"
+ * (or differently abbreviated IPv6 addresses) are treated as the same entry. Keys are matched through
+ * hash indexes, and the changes are then sorted, so both lists come out in key order whatever order
+ * the inputs were in.
+ */
+@Getter
+class EntryDiff {
+    // Entries to send as AddEntries: new CIDRs plus existing CIDRs whose description changed
+    private final List<Entry> addEntries;
+    // Current entries whose CIDR is no longer desired
+    private final List<Entry> removeEntries;
+    // Desired entries whose CIDR already exists with a different description (a subset of addEntries)
+    private final List<Entry> descriptionChanges;
+
+    private EntryDiff(final List<Entry> addEntries, final List<Entry> removeEntries, final List<Entry> descriptionChanges) {
+        this.addEntries = addEntries;
+        this.removeEntries = removeEntries;
+        this.descriptionChanges = descriptionChanges;
+    }
+
+    boolean isEmpty() {
+        return addEntries.isEmpty() && removeEntries.isEmpty();
+    }
+
+    static EntryDiff compute(final List<Entry> currentEntries, final List<Entry> desiredEntries) {
+        final List<Entry> current = currentEntries == null ? ImmutableList.of() : currentEntries;
+        final List<Entry> desired = desiredEntries == null ? ImmutableList.of() : desiredEntries;
+
+        // Most CIDRs are spelled the same on both sides, so they are matched on their text first, which
+        // reuses the hash the String caches and needs no parsing
+        final TextIndex currentText = new TextIndex(current);
+        final boolean[] currentMatched = new boolean[current.size()];
+        final boolean[] descriptionChanged = new boolean[desired.size()];
+        final int[] adds = new int[desired.size()];
+        int addCount = 0;
+        final int[] unmatchedDesired = new int[desired.size()];
+        int unmatchedDesiredCount = 0;
+        for (int j = 0; j < desired.size(); j++) {
+            final int i = currentText.find(desired.get(j).getCidr());
+            if (i < 0) {
+                // Repeated desired CIDRs are collapsed with the other unmatched keys below
+                unmatchedDesired[unmatchedDesiredCount++] = j;
+            } else if (!currentMatched[i]) {
+                currentMatched[i] = true;
+                if (!sameDescription(current.get(i).getDescription(), desired.get(j).getDescription())) {
+                    descriptionChanged[j] = true;
+                    adds[addCount++] = j;
+                }
+            }
+        }
+        final int[] unmatchedCurrent = new int[current.size()];
+        int unmatchedCurrentCount = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (!currentMatched[i] && currentText.find(current.get(i).getCidr()) == i) {
+                unmatchedCurrent[unmatchedCurrentCount++] = i;
+            }
+        }
+
+        // What is left, usually the real adds and removes, is parsed and matched on numeric keys
+        final CidrKeys currentKeys = parseKeys(current, unmatchedCurrent, unmatchedCurrentCount, unmatchedCurrentCount);
+        final CidrKeys desiredKeys = parseKeys(desired, unmatchedDesired, unmatchedDesiredCount, unmatchedDesiredCount);
+        currentKeys.index();
+        desiredKeys.index();
+        final boolean[] currentKeyMatched = new boolean[unmatchedCurrentCount];
+        final int[] addSlots = new int[unmatchedDesiredCount];
+        int addSlotCount = 0;
+        for (int slot = 0; slot < unmatchedDesiredCount; slot++) {
+            if (desiredKeys.find(desiredKeys, slot) != slot) {
+                continue;
+            }
+            final int currentSlot = currentKeys.find(desiredKeys, slot);
+            final int j = unmatchedDesired[slot];
+            if (currentSlot < 0) {
+                addSlots[addSlotCount++] = slot;
+            } else {
+                currentKeyMatched[currentSlot] = true;
+                if (!sameDescription(current.get(unmatchedCurrent[currentSlot]).getDescription(), desired.get(j).getDescription())) {
+                    descriptionChanged[j] = true;
+                    addSlots[addSlotCount++] = slot;
+                }
+            }
+        }
+        final int[] removeSlots = new int[unmatchedCurrentCount];
+        int removeSlotCount = 0;
+        for (int slot = 0; slot < unmatchedCurrentCount; slot++) {
+            if (!currentKeyMatched[slot] && currentKeys.find(currentKeys, slot) == slot) {
+                removeSlots[removeSlotCount++] = slot;
+            }
+        }
+
+        // Changes come out in key order, so the same inputs always yield the same chunks
+        final CidrKeys addKeys = parseKeys(desired, adds, addCount, addCount + addSlotCount);
+        final int[] addOrder = new int[addCount + addSlotCount];
+        for (int k = 0; k < addOrder.length; k++) {
+            addOrder[k] = k;
+            if (k >= addCount) {
+                addKeys.copy(k, desiredKeys, addSlots[k - addCount]);
+            }
+        }
+        addKeys.sort(addOrder, addOrder.length);
+        final List<Entry> addEntries = new ArrayList<>(addOrder.length);
+        final List<Entry> descriptionChanges = new ArrayList<>();
+        for (final int k : addOrder) {
+            final int j = k < addCount ? adds[k] : unmatchedDesired[addSlots[k - addCount]];
+            final Entry desiredEntry = desired.get(j);
+            addEntries.add(desiredEntry);
+            if (descriptionChanged[j]) {
+                descriptionChanges.add(desiredEntry);
+            }
+        }
+        currentKeys.sort(removeSlots, removeSlotCount);
+        final List<Entry> removeEntries = new ArrayList<>(removeSlotCount);
+        for (int k = 0; k < removeSlotCount; k++) {
+            removeEntries.add(current.get(unmatchedCurrent[removeSlots[k]]));
+        }
+        return new EntryDiff(addEntries, removeEntries, descriptionChanges);
+    }
+
+    // Parses the first count of the given entries into a key set with room for capacity keys
+    private static CidrKeys parseKeys(final List<Entry> entries, final int[] indices, final int count, final int capacity) {
+        final CidrKeys keys = new CidrKeys(capacity);
+        for (int slot = 0; slot < count; slot++) {
+            final String cidr = entries.get(indices[slot]).getCidr();
+            if (!keys.set(slot, cidr)) {
+                throw new CfnInvalidRequestException(String.format("Invalid CIDR %s.", cidr));
+            }
+        }
+        return keys;
+    }
+
+    private static boolean sameDescription(final String currentDescription, final String desiredDescription) {
+        final String current = currentDescription == null ? "" : currentDescription;
+        final String desired = desiredDescription == null ? "" : desiredDescription;
+        return current.equals(desired);
+    }
+
+    /*
+     * Open-addressing index from CIDR text to the first entry spelling it, kept in a primitive array
+     */
+    private static class TextIndex {
+        private final List<Entry> entries;
+        private final int[] buckets;
+
+        TextIndex(final List<Entry> entries) {
+            this.entries = entries;
+            this.buckets = new int[Integer.highestOneBit(Math.max(entries.size(), 1) * 2 - 1) << 1];
+            final int mask = buckets.length - 1;
+            for (int index = 0; index < entries.size(); index++) {
+                final String cidr = entries.get(index).getCidr();
+                int bucket = spread(cidr) & mask;
+                while (buckets[bucket] != 0 && !Objects.equals(entries.get(buckets[bucket] - 1).getCidr(), cidr)) {
+                    bucket = (bucket + 1) & mask;
+                }
+                if (buckets[bucket] == 0) {
+                    buckets[bucket] = index + 1;
+                }
+            }
+        }
+
+        int find(final String cidr) {
+            final int mask = buckets.length - 1;
+            int bucket = spread(cidr) & mask;
+            while (buckets[bucket] != 0) {
+                if (Objects.equals(entries.get(buckets[bucket] - 1).getCidr(), cidr)) {
+                    return buckets[bucket] - 1;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int spread(final String cidr) {
+            final int hash = cidr == null ? 0 : cidr.hashCode() * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
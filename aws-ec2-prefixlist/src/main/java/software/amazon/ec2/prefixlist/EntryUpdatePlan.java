@@ -0,0 +1,111 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * The entry changes of an update, split into chunks of at most ModuleHelper.MAX_ENTRIES_PER_MODIFY adds
+ * and removes. The plan is a pure function of the entries at its base version and the desired entries,
+ * both of which can be read again on every callback, so the callback context only records the base
+ * version, the chunk count and a hash of the plan instead of the entries themselves. That keeps the
+ * context the same size whether the update touches one entry or a thousand.
+ */
+@Getter
+class EntryUpdatePlan {
+    private final Long baseVersion;
+    private final List<Entry> addEntries;
+    private final List<String> removeCidrs;
+    private final String hash;
+
+    private EntryUpdatePlan(final Long baseVersion, final List<Entry> addEntries, final List<String> removeCidrs) {
+        this.baseVersion = baseVersion;
+        this.addEntries = addEntries;
+        this.removeCidrs = removeCidrs;
+        this.hash = computeHash(baseVersion, addEntries, removeCidrs);
+    }
+
+    /*
+     * EntryDiff emits changes in CIDR key order, so the same inputs always yield the same chunks
+     */
+    static EntryUpdatePlan compute(final Long baseVersion, final List<Entry> baseEntries, final List<Entry> desiredEntries) {
+        final EntryDiff entryDiff = EntryDiff.compute(baseEntries, desiredEntries);
+        return new EntryUpdatePlan(baseVersion, entryDiff.getAddEntries(), entryDiff.getRemoveEntries().stream()
+                .map(Entry::getCidr)
+                .collect(Collectors.toList()));
+    }
+
+    boolean isEmpty() {
+        return addEntries.isEmpty() && removeCidrs.isEmpty();
+    }
+
+    int getChunkCount() {
+        return Math.max(getChunkCount(addEntries), getChunkCount(removeCidrs));
+    }
+
+    List<Entry> getAddChunk(final int chunkIndex) {
+        return getChunk(addEntries, chunkIndex);
+    }
+
+    List<String> getRemoveChunk(final int chunkIndex) {
+        return getChunk(removeCidrs, chunkIndex);
+    }
+
+    int getChunkEntryCount(final int chunkIndex) {
+        return getAddChunk(chunkIndex).size() + getRemoveChunk(chunkIndex).size();
+    }
+
+    void recordIn(final CallbackContext context) {
+        context.setPlanBaseVersion(baseVersion);
+        context.setPlanHash(hash);
+        context.setChunkCount(getChunkCount());
+    }
+
+    boolean matches(final CallbackContext context) {
+        return baseVersion != null
+                && baseVersion.equals(context.getPlanBaseVersion())
+                && hash.equals(context.getPlanHash());
+    }
+
+    private static int getChunkCount(final List<?> pending) {
+        return (pending.size() + ModuleHelper.MAX_ENTRIES_PER_MODIFY - 1) / ModuleHelper.MAX_ENTRIES_PER_MODIFY;
+    }
+
+    // Removes and adds share a chunk index, so the entry count never exceeds max(current, desired) between chunks
+    private static <T> List<T> getChunk(final List<T> pending, final int chunkIndex) {
+        if (pending.isEmpty()) {
+            return ImmutableList.of();
+        }
+        final int from = Math.min(chunkIndex * ModuleHelper.MAX_ENTRIES_PER_MODIFY, pending.size());
+        final int to = Math.min(from + ModuleHelper.MAX_ENTRIES_PER_MODIFY, pending.size());
+        return pending.subList(from, to);
+    }
+
+    private static String computeHash(final Long baseVersion, final List<Entry> addEntries, final List<String> removeCidrs) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher().putLong(baseVersion == null ? -1L : baseVersion);
+        // Length prefixes keep "a" + "bc" and "ab" + "c" apart
+        hasher.putInt(addEntries.size());
+        for (final Entry entry : addEntries) {
+            putString(hasher, entry.getCidr());
+            putString(hasher, entry.getDescription());
+        }
+        hasher.putInt(removeCidrs.size());
+        for (final String cidr : removeCidrs) {
+            putString(hasher, cidr);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putString(final Hasher hasher, final String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package software.amazon.ec2.prefixlist;
+
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+
+import java.util.List;
+
+/*
+ * Rejects entries EC2 would reject, before any call is made: a failed CreateManagedPrefixList or
+ * ModifyManagedPrefixList costs a round trip and, on update, may come after the tags were already
+ * changed. The count is checked first, then each CIDR is parsed once into CidrKeys for the syntax,
+ * family, host bit and canonical form checks, and duplicates are found between neighbours of the sorted keys.
+ */
+class EntryValidator {
+
+    private EntryValidator() {
+    }
+
+    /*
+     * Validates the entries the model will apply, i.e. after aggregation when AggregateEntries is set
+     */
+    static void validate(final ResourceModel model) {
+        validate(model.getAddressFamily(), model.getMaxEntries(), ModuleHelper.getDesiredEntries(model));
+    }
+
+    static void validate(final String addressFamily, final Integer maxEntries, final List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        final int size = entries.size();
+        if (maxEntries != null && size > maxEntries) {
+            throw new CfnInvalidRequestException(String.format(
+                    "%d entries exceed MaxEntries of %d.", size, maxEntries));
+        }
+
+        final int family = getFamily(addressFamily);
+        final CidrKeys keys = new CidrKeys(size);
+        for (int i = 0; i < size; i++) {
+            final String cidr = entries.get(i).getCidr();
+            if (!keys.set(i, cidr)) {
+                throw new CfnInvalidRequestException(String.format("Invalid CIDR %s.", cidr));
+            }
+            if (family != 0 && keys.getFamily(i) != family) {
+                throw new CfnInvalidRequestException(String.format(
+                        "CIDR %s does not match AddressFamily %s.", cidr, addressFamily));
+            }
+            if (keys.hasHostBits(i)) {
+                keys.clearHostBits(i);
+                throw new CfnInvalidRequestException(String.format("CIDR %s has host bits set; use %s.", cidr, keys.format(i)));
+            }
+            // EC2 reports entries in canonical form, so any other spelling would show as drift on every read
+            final String canonical = keys.format(i);
+            if (!canonical.equals(cidr)) {
+                throw new CfnInvalidRequestException(String.format("CIDR %s is not in canonical form; use %s.", cidr, canonical));
+            }
+        }
+
+        final int[] order = keys.sortedOrder();
+        for (int i = 1; i < size; i++) {
+            if (keys.compare(order[i - 1], keys, order[i]) == 0) {
+                throw new CfnInvalidRequestException(String.format("CIDR %s duplicates %s.",
+                        entries.get(Math.max(order[i - 1], order[i])).getCidr(),
+                        entries.get(Math.min(order[i - 1], order[i])).getCidr()));
+            }
+        }
+    }
+
+    // An unknown family is left for EC2 to reject
+    private static int getFamily(final String addressFamily) {
+        if (ModuleHelper.ADDRESS_FAMILY_IPV4.equals(addressFamily)) {
+            return CidrKeys.IPV4;
+        }
+        if (ModuleHelper.ADDRESS_FAMILY_IPV6.equals(addressFamily)) {
+            return CidrKeys.IPV6;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,140 @@
+package software.amazon.ec2.prefixlist;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+ * Counters and phase timings for a single handler invocation, written to the handler's Logger as one
+ * CloudWatch Embedded Metric Format line when the invocation ends. List fans entry reads out across
+ * threads, so every value is updated atomically. The invocation's Tracer rides along, so every EC2 call
+ * that is counted here is also traced.
+ */
+class HandlerMetrics {
+    static final String NAMESPACE = ResourceModel.TYPE_NAME;
+    static final String HANDLER_DIMENSION = "Handler";
+    static final String CALLS_SUFFIX = "Calls";
+    static final String TIME_SUFFIX = "Time";
+    static final String THROTTLES = "Throttles";
+    static final String PAGES_FETCHED = "PagesFetched";
+    static final String ENTRIES_DIFFED = "EntriesDiffed";
+    static final String CALLBACKS = "Callbacks";
+    static final String REBASES = "Rebases";
+    static final String ENTRY_CACHE_HITS = "EntryCacheHits";
+    static final String ENTRY_CACHE_MISSES = "EntryCacheMisses";
+    static final String HANDLER_PHASE = "Handler";
+    static final String DESCRIBE_PHASE = "Describe";
+    static final String READ_ENTRIES_PHASE = "ReadEntries";
+    static final String MUTATE_PHASE = "Mutate";
+    static final String TAGS_PHASE = "Tags";
+    static final String DIFF_PHASE = "Diff";
+    static final String STABILIZE_PHASE = "Stabilize";
+
+    private final String handler;
+    private final LongSupplier clock;
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> timings = new ConcurrentHashMap<>();
+    private final Tracer tracer;
+
+    HandlerMetrics(final String handler) {
+        this(handler, System::currentTimeMillis);
+    }
+
+    HandlerMetrics(final String handler, final LongSupplier clock) {
+        this.handler = handler;
+        this.clock = clock;
+        this.tracer = new Tracer(handler, clock);
+    }
+
+    /*
+     * Runs the handler body and logs the metrics line however it ends, counting an IN_PROGRESS result as a callback
+     */
+    static ProgressEvent<ResourceModel, CallbackContext> record(
+            final String handler,
+            final Logger logger,
+            final Function<HandlerMetrics, ProgressEvent<ResourceModel, CallbackContext>> body) {
+        return record(handler, logger, SpanExporter.fromEnvironment(logger), body);
+    }
+
+    static ProgressEvent<ResourceModel, CallbackContext> record(
+            final String handler,
+            final Logger logger,
+            final SpanExporter spanExporter,
+            final Function<HandlerMetrics, ProgressEvent<ResourceModel, CallbackContext>> body) {
+        final HandlerMetrics metrics = new HandlerMetrics(handler);
+        try {
+            final ProgressEvent<ResourceModel, CallbackContext> event = metrics.time(HANDLER_PHASE, () -> body.apply(metrics));
+            if (event.getStatus() == OperationStatus.IN_PROGRESS) {
+                metrics.increment(CALLBACKS);
+            }
+            return event;
+        } finally {
+            logger.log(metrics.toEmf());
+            spanExporter.export(metrics.tracer);
+        }
+    }
+
+    void increment(final String metric) {
+        add(metric, 1L);
+    }
+
+    void add(final String metric, final long delta) {
+        counts.computeIfAbsent(metric, name -> new AtomicLong()).addAndGet(delta);
+    }
+
+    void countCall(final String action) {
+        increment(action + CALLS_SUFFIX);
+    }
+
+    <T> T time(final String phase, final Supplier<T> body) {
+        final long start = clock.getAsLong();
+        try {
+            return body.get();
+        } finally {
+            timings.computeIfAbsent(phase + TIME_SUFFIX, name -> new AtomicLong()).addAndGet(clock.getAsLong() - start);
+        }
+    }
+
+    Tracer getTracer() {
+        return tracer;
+    }
+
+    long getCount(final String metric) {
+        final AtomicLong count = counts.get(metric);
+        return count == null ? 0L : count.get();
+    }
+
+    String toEmf() {
+        final JSONArray definitions = new JSONArray();
+        final JSONObject root = new JSONObject();
+        // Sorted so the line reads the same for the same invocation
+        new TreeMap<>(counts).forEach((name, value) -> {
+            definitions.put(new JSONObject().put("Name", name).put("Unit", "Count"));
+            root.put(name, value.get());
+        });
+        new TreeMap<>(timings).forEach((name, value) -> {
+            definitions.put(new JSONObject().put("Name", name).put("Unit", "Milliseconds"));
+            root.put(name, value.get());
+        });
+
+        final JSONObject directive = new JSONObject()
+                .put("Namespace", NAMESPACE)
+                .put("Dimensions", new JSONArray().put(new JSONArray().put(HANDLER_DIMENSION)))
+                .put("Metrics", definitions);
+        root.put("_aws", new JSONObject()
+                .put("Timestamp", clock.getAsLong())
+                .put("CloudWatchMetrics", new JSONArray().put(directive)));
+        root.put(HANDLER_DIMENSION, handler);
+        return root.toString();
+    }
+}
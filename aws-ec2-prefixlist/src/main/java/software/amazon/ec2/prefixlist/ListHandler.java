@@ -3,9 +3,9 @@ package software.amazon.ec2.prefixlist;
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
 import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
-import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
-import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
-import com.amazonaws.services.ec2.model.PrefixListEntry;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.ManagedPrefixList;
+import com.google.common.collect.ImmutableList;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ProgressEvent;
@@ -18,59 +18,160 @@ import java.util.stream.Collectors;
 
 public class ListHandler extends BaseHandler<CallbackContext> {
 
+    private final int concurrency;
+    private final int pageSize;
+    private final long timeBudgetMillis;
+    private final List<Filter> filters;
+    private final boolean identifiersOnly;
+    private final Ec2Invoker.Factory invokerFactory;
+    private final ClientBuilder.Factory clientFactory;
+    private final EntryCache entryCache;
+
+    public ListHandler() {
+        this(ModuleHelper.getConfiguredInt(ModuleHelper.LIST_CONCURRENCY_VARIABLE, ModuleHelper.DEFAULT_LIST_CONCURRENCY),
+                ModuleHelper.getConfiguredInt(ModuleHelper.LIST_PAGE_SIZE_VARIABLE, ModuleHelper.DEFAULT_LIST_PAGE_SIZE),
+                ModuleHelper.getConfiguredInt(ModuleHelper.LIST_TIME_BUDGET_VARIABLE, ModuleHelper.DEFAULT_LIST_TIME_BUDGET_MILLIS),
+                ModuleHelper.getConfiguredFilters(ModuleHelper.LIST_FILTERS_VARIABLE),
+                ModuleHelper.LIST_PROJECTION_IDENTIFIERS.equalsIgnoreCase(System.getenv(ModuleHelper.LIST_PROJECTION_VARIABLE)),
+                Ec2Invoker.DEFAULT_FACTORY,
+                EntryCache.SHARED,
+                ClientBuilder.DEFAULT_FACTORY);
+    }
+
+    ListHandler(
+            final int concurrency,
+            final int pageSize,
+            final long timeBudgetMillis,
+            final Ec2Invoker.Factory invokerFactory,
+            final EntryCache entryCache) {
+        this(concurrency, pageSize, timeBudgetMillis, invokerFactory, entryCache, ClientBuilder.DEFAULT_FACTORY);
+    }
+
+    ListHandler(
+            final int concurrency,
+            final int pageSize,
+            final long timeBudgetMillis,
+            final Ec2Invoker.Factory invokerFactory,
+            final EntryCache entryCache,
+            final ClientBuilder.Factory clientFactory) {
+        this(concurrency, pageSize, timeBudgetMillis, ImmutableList.of(), false, invokerFactory, entryCache, clientFactory);
+    }
+
+    ListHandler(
+            final int concurrency,
+            final int pageSize,
+            final long timeBudgetMillis,
+            final List<Filter> filters,
+            final boolean identifiersOnly,
+            final Ec2Invoker.Factory invokerFactory,
+            final EntryCache entryCache,
+            final ClientBuilder.Factory clientFactory) {
+        this.concurrency = concurrency;
+        this.pageSize = Math.min(Math.max(pageSize, 1), ModuleHelper.MAX_LIST_PAGE_SIZE);
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.filters = filters;
+        this.identifiersOnly = identifiersOnly;
+        this.invokerFactory = invokerFactory;
+        this.entryCache = entryCache;
+        this.clientFactory = clientFactory;
+    }
+
     @Override
     public ProgressEvent<ResourceModel, CallbackContext> handleRequest(
         final AmazonWebServicesClientProxy proxy,
         final ResourceHandlerRequest<ResourceModel> request,
         final CallbackContext callbackContext,
         final Logger logger) {
+        return HandlerMetrics.record("ListHandler", logger,
+                metrics -> handle(proxy, request, callbackContext, logger, metrics));
+    }
 
-        final AmazonEC2 ec2Client = ClientBuilder.getClient();
+    private ProgressEvent<ResourceModel, CallbackContext> handle(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final Logger logger,
+        final HandlerMetrics metrics) {
 
-        final List<ResourceModel> models = new ArrayList<>();
+        final AmazonEC2 ec2Client = clientFactory.getClient(request.getRegion());
 
-        String nextToken = null;
+        final long startTime = System.currentTimeMillis();
+        final Ec2Invoker invoker = invokerFactory.create(proxy, metrics);
+        final PrefixListEntryReader entryReader = new PrefixListEntryReader(invoker, ec2Client, entryCache);
+        final List<ResourceModel> models = new ArrayList<>(pageSize);
+        final List<Filter> requestFilters = getFilters(request.getAwsAccountId());
 
+        String nextToken = request.getNextToken();
+
+        // Only one page of models is built per invocation; the remaining pages are handed back through nextToken
         do {
             final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest()
+                    .withMaxResults(pageSize - models.size())
+                    .withFilters(requestFilters)
                     .withNextToken(nextToken);
-            final DescribeManagedPrefixListsResult describeResult  = proxy.injectCredentialsAndInvoke(describeRequest, ec2Client::describeManagedPrefixLists);
-
-            models.addAll(describeResult.getPrefixLists()
-                    .stream()
-                    .map(prefixList -> ResourceModel.builder()
-                            .prefixListId(prefixList.getPrefixListId())
-                            .prefixListName(prefixList.getPrefixListName())
-                            .maxEntries(prefixList.getMaxEntries())
-                            .addressFamily(prefixList.getAddressFamily())
-                            .version(prefixList.getVersion() == null ? 1 : prefixList.getVersion().intValue())
-                            .entries(getPrefixListEntries(proxy, ec2Client, prefixList.getPrefixListId()))
+            final DescribeManagedPrefixListsResult describeResult = metrics.time(HandlerMetrics.DESCRIBE_PHASE,
+                    () -> invoker.invoke(describeRequest, ec2Client::describeManagedPrefixLists));
+            metrics.increment(HandlerMetrics.PAGES_FETCHED);
+
+            // AWS-managed lists can't be managed by a stack, so their entries, some of them large, are only read
+            // when the configured filters ask for an owner themselves
+            final List<ManagedPrefixList> prefixLists = describeResult.getPrefixLists().stream()
+                    .filter(prefixList -> namesOwner() || !ModuleHelper.AWS_OWNER_ID.equals(prefixList.getOwnerId()))
+                    .collect(Collectors.toList());
+            if (identifiersOnly) {
+                prefixLists.forEach(prefixList -> models.add(toModelBuilder(prefixList).build()));
+            } else {
+                // Entry fetches are independent per prefix list, so they fan out on a bounded pool
+                final List<List<Entry>> entries = metrics.time(HandlerMetrics.READ_ENTRIES_PHASE,
+                        () -> ParallelFetcher.mapOrdered(prefixLists,
+                                prefixList -> entryReader.readEntries(prefixList.getPrefixListId(), EntryCache.getCacheableVersion(prefixList)),
+                                concurrency));
+                for (int i = 0; i < prefixLists.size(); i++) {
+                    final ManagedPrefixList prefixList = prefixLists.get(i);
+                    models.add(toModelBuilder(prefixList)
+                            .entries(entries.get(i))
                             .tags(ModuleHelper.convertToResourceModelTags(prefixList.getTags()))
-                            .arn(prefixList.getPrefixListArn())
-                            .ownerId(prefixList.getOwnerId())
-                            .build())
-                    .collect(Collectors.toList()));
+                            .build());
+                }
+            }
             nextToken = describeResult.getNextToken();
-        } while (nextToken != null);
+        } while (nextToken != null
+                && models.size() < pageSize
+                && System.currentTimeMillis() - startTime < timeBudgetMillis);
 
         return ProgressEvent.<ResourceModel, CallbackContext>builder()
                 .resourceModels(models)
+                .nextToken(nextToken)
                 .status(OperationStatus.SUCCESS)
                 .build();
     }
-    private List<Entry> getPrefixListEntries(AmazonWebServicesClientProxy proxy, AmazonEC2 ec2Client, String prefixListId) {
-        String nextToken = null;
-        List<PrefixListEntry> entryList = new ArrayList<>();
 
-        do {
-            final GetManagedPrefixListEntriesRequest getEntriesRequest = new GetManagedPrefixListEntriesRequest()
-                    .withPrefixListId(prefixListId)
-                    .withNextToken(nextToken);
-            final GetManagedPrefixListEntriesResult getEntriesResult = proxy.injectCredentialsAndInvoke(getEntriesRequest, ec2Client::getManagedPrefixListEntries);
-            nextToken = getEntriesResult.getNextToken();
-            entryList.addAll(getEntriesResult.getEntries());
-        } while (nextToken != null);
+    /*
+     * The fields describe returns directly, which is all the identifier-only projection lists
+     */
+    private static ResourceModel.ResourceModelBuilder toModelBuilder(final ManagedPrefixList prefixList) {
+        return ResourceModel.builder()
+                .prefixListId(prefixList.getPrefixListId())
+                .prefixListName(prefixList.getPrefixListName())
+                .maxEntries(prefixList.getMaxEntries())
+                .addressFamily(prefixList.getAddressFamily())
+                .version(prefixList.getVersion() == null ? 1 : prefixList.getVersion().intValue())
+                .arn(prefixList.getPrefixListArn())
+                .ownerId(prefixList.getOwnerId());
+    }
+
+    /*
+     * The configured filters, scoped to the caller's own prefix lists unless they name an owner themselves
+     */
+    private List<Filter> getFilters(final String awsAccountId) {
+        final List<Filter> requestFilters = new ArrayList<>(filters);
+        if (awsAccountId != null && !namesOwner()) {
+            requestFilters.add(new Filter(ModuleHelper.OWNER_ID_FILTER, ImmutableList.of(awsAccountId)));
+        }
+        return requestFilters.isEmpty() ? null : requestFilters;
+    }
 
-        return ModuleHelper.convertToEntries(entryList);
+    private boolean namesOwner() {
+        return filters.stream().anyMatch(filter -> ModuleHelper.OWNER_ID_FILTER.equals(filter.getName()));
     }
 }
@@ -1,14 +1,22 @@
 package software.amazon.ec2.prefixlist;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.ec2.model.AddPrefixListEntry;
 import com.amazonaws.services.ec2.model.AmazonEC2Exception;
+import com.amazonaws.services.ec2.model.Filter;
 import com.amazonaws.services.ec2.model.PrefixListEntry;
 import com.amazonaws.services.ec2.model.RemovePrefixListEntry;
 import com.amazonaws.services.ec2.model.TagSpecification;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -21,9 +29,62 @@ class ModuleHelper {
     static final String MODIFY_FAILED = "modify-failed";
     static final String DELETE_FAILED = "delete-failed";
     static final String DELETE_IN_PROGRESS = "delete-in-progress";
-    static final Integer POLLING_DELAY_SECONDS = 5;
+    static final String DELETE_COMPLETE = "delete-complete";
+    static final String ADDRESS_FAMILY_IPV4 = "IPv4";
+    static final String ADDRESS_FAMILY_IPV6 = "IPv6";
+    static final int MAX_ENTRIES_PER_MODIFY = 100;
     static final String INVALID_PREFIX_LIST_ID_NOT_FOUND = "InvalidPrefixListID.NotFound";
     static final String PREFIX_LIST_RESOURCE = "prefix-list";
+    static final Set<String> THROTTLING_ERROR_CODES = ImmutableSet.of("RequestLimitExceeded", "Throttling", "ThrottlingException");
+    static final int THROTTLING_MAX_ATTEMPTS = 5;
+    static final Set<String> VERSION_CONFLICT_ERROR_CODES = ImmutableSet.of("PrefixListVersionMismatch");
+    static final String INCORRECT_STATE_ERROR_CODE = "IncorrectState";
+    static final int MAX_VERSION_CONFLICT_REBASES = 3;
+    static final long THROTTLING_BASE_DELAY_MILLIS = 200L;
+    static final long THROTTLING_MAX_DELAY_MILLIS = 5_000L;
+    static final String LIST_CONCURRENCY_VARIABLE = "LIST_CONCURRENCY";
+    static final int DEFAULT_LIST_CONCURRENCY = 8;
+    static final String LIST_PAGE_SIZE_VARIABLE = "LIST_PAGE_SIZE";
+    static final int DEFAULT_LIST_PAGE_SIZE = 100;
+    static final int MAX_LIST_PAGE_SIZE = 100;
+    static final String LIST_TIME_BUDGET_VARIABLE = "LIST_TIME_BUDGET_MILLIS";
+    static final int DEFAULT_LIST_TIME_BUDGET_MILLIS = 20_000;
+    static final String LIST_FILTERS_VARIABLE = "LIST_FILTERS";
+    static final String OWNER_ID_FILTER = "owner-id";
+    static final String AWS_OWNER_ID = "AWS";
+    static final String LIST_PROJECTION_VARIABLE = "LIST_PROJECTION";
+    static final String LIST_PROJECTION_IDENTIFIERS = "IDENTIFIERS";
+    static final String TRACE_EXPORTER_VARIABLE = "TRACE_EXPORTER";
+    static final String TRACE_EXPORTER_XRAY = "XRAY";
+    static final String ENTRIES_MAX_RESULTS_VARIABLE = "ENTRIES_MAX_RESULTS";
+    static final int DEFAULT_ENTRIES_MAX_RESULTS = 100;
+    static final int MAX_ENTRIES_MAX_RESULTS = 100;
+
+    /*
+     * This method will return the entries to apply, merged into covering CIDRs when AggregateEntries is set
+     */
+    static List<Entry> getDesiredEntries(final ResourceModel model) {
+        return Boolean.TRUE.equals(model.getAggregateEntries())
+                ? CidrAggregator.aggregate(model.getEntries())
+                : model.getEntries();
+    }
+
+    /*
+     * This method will return the model's entries in place of the current ones when AggregateEntries is set and
+     * they merge into exactly the current entries, so that a read reports the list the way the template wrote it
+     */
+    static List<Entry> getReportedEntries(final ResourceModel model, final List<Entry> currentEntries) {
+        if (!Boolean.TRUE.equals(model.getAggregateEntries()) || isNullOrEmpty(model.getEntries())) {
+            return currentEntries;
+        }
+        try {
+            return EntryDiff.compute(currentEntries, CidrAggregator.aggregate(model.getEntries())).isEmpty()
+                    ? model.getEntries()
+                    : currentEntries;
+        } catch (final CfnInvalidRequestException ex) {
+            return currentEntries;
+        }
+    }
 
     static List<AddPrefixListEntry> convertToAddPrefixListEntries(final List<Entry> entries) {
         if (entries == null) {
@@ -51,13 +112,16 @@ class ModuleHelper {
             return ImmutableList.of();
         } else {
             return prefixListEntries.stream()
-                    .map(prefixListEntry -> Entry.builder()
-                            .cidr(prefixListEntry.getCidr())
-                            .description(prefixListEntry.getDescription())
-                            .build())
+                    .map(ModuleHelper::convertToEntry)
                     .collect(Collectors.toList());
         }
     }
+    static Entry convertToEntry(final PrefixListEntry prefixListEntry) {
+        return Entry.builder()
+                .cidr(prefixListEntry.getCidr())
+                .description(prefixListEntry.getDescription())
+                .build();
+    }
     static List<TagSpecification> convertToTagSpecifications(final List<Tag> tags) {
         if (isNullOrEmpty(tags)) {
             return ImmutableList.of();
@@ -109,4 +173,69 @@ class ModuleHelper {
         }
     }
 
+    static boolean isThrottlingException(final AmazonServiceException ex) {
+        return THROTTLING_ERROR_CODES.contains(ex.getErrorCode());
+    }
+
+    static boolean isVersionConflict(final AmazonServiceException ex) {
+        return VERSION_CONFLICT_ERROR_CODES.contains(ex.getErrorCode());
+    }
+
+    // The prefix list is in the middle of another change; it says nothing about whether the plan is still valid
+    static boolean isIncorrectState(final AmazonServiceException ex) {
+        return INCORRECT_STATE_ERROR_CODE.equals(ex.getErrorCode());
+    }
+
+    static long getThrottlingBackoffMillis(final int attempt) {
+        final long ceiling = Math.min(THROTTLING_MAX_DELAY_MILLIS, THROTTLING_BASE_DELAY_MILLIS << Math.min(attempt - 1, 20));
+        // Jitter keeps concurrent fetches from retrying in lockstep
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    static void sleepQuietly(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    static int getConfiguredInt(final String variable, final int defaultValue) {
+        final String value = System.getenv(variable);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (final NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    static List<Filter> getConfiguredFilters(final String variable) {
+        return parseFilters(System.getenv(variable));
+    }
+
+    /*
+     * This method will parse "name=value,value;name=value" into describe filters, skipping malformed parts
+     */
+    static List<Filter> parseFilters(final String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ImmutableList.of();
+        }
+        final List<Filter> filters = new ArrayList<>();
+        for (final String part : value.split(";")) {
+            final int separator = part.indexOf('=');
+            final String name = separator < 0 ? "" : part.substring(0, separator).trim();
+            final List<String> values = separator < 0 ? ImmutableList.of() : Arrays.stream(part.substring(separator + 1).split(","))
+                    .map(String::trim)
+                    .filter(filterValue -> !filterValue.isEmpty())
+                    .collect(Collectors.toList());
+            if (!name.isEmpty() && !values.isEmpty()) {
+                filters.add(new Filter(name, values));
+            }
+        }
+        return filters;
+    }
 }
@@ -0,0 +1,124 @@
+package software.amazon.ec2.prefixlist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/*
+ * Runs independent per-item fetches on a shared, container-lifetime pool of daemon threads.
+ * The pool itself is unbounded; callers bound their own use of it: at most "concurrency" items are
+ * in flight for one mapOrdered call, and results are returned in input order.
+ */
+class ParallelFetcher {
+
+    private ParallelFetcher() {
+    }
+
+    static ExecutorService getExecutor() {
+        return ExecutorHolder.EXECUTOR;
+    }
+
+    static <T, R> List<R> mapOrdered(final List<T> inputs, final Function<T, R> function, final int concurrency) {
+        final int size = inputs.size();
+        final int workers = Math.min(Math.max(concurrency, 1), size);
+        if (workers <= 1) {
+            final List<R> results = new ArrayList<>(size);
+            inputs.forEach(input -> results.add(function.apply(input)));
+            return results;
+        }
+
+        final Object[] results = new Object[size];
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(getExecutor().submit(() -> {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < size) {
+                    results[index] = function.apply(inputs.get(index));
+                }
+            }));
+        }
+
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final ExecutionException ex) {
+            // Stop handing out work and let the calls already in flight finish, so none of them outlives the
+            // invocation and lands on its finished metrics; then surface the original failure
+            nextIndex.set(size);
+            futures.forEach(ParallelFetcher::awaitQuietly);
+            throw propagate(ex.getCause());
+        } catch (final InterruptedException ex) {
+            nextIndex.set(size);
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+
+        final List<R> orderedResults = new ArrayList<>(size);
+        for (final Object result : results) {
+            @SuppressWarnings("unchecked")
+            final R typedResult = (R) result;
+            orderedResults.add(typedResult);
+        }
+        return orderedResults;
+    }
+
+    /*
+     * Waits for a task submitted to the shared pool, rethrowing what it threw
+     */
+    static <T> T await(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (final ExecutionException ex) {
+            throw propagate(ex.getCause());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /*
+     * Waits for a task whose result is only an optimization, returning null if it failed
+     */
+    static <T> T awaitQuietly(final Future<T> future) {
+        try {
+            return await(future);
+        } catch (final RuntimeException ex) {
+            return null;
+        }
+    }
+
+    static RuntimeException propagate(final Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    // Created on first use, which is the first Read (its entry read overlaps the describe) or parallel List
+    private static class ExecutorHolder {
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "prefixlist-fetcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
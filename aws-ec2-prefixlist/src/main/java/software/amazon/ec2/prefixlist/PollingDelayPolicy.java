@@ -0,0 +1,35 @@
+package software.amazon.ec2.prefixlist;
+
+/*
+ * Chooses the callback delay while waiting for a prefix list to stabilize. Polling starts short and
+ * backs off exponentially; larger entry changes start from a longer base delay, and the delay never
+ * drops below a fixed fraction of the time already spent waiting.
+ */
+class PollingDelayPolicy {
+    static final int MIN_DELAY_SECONDS = 1;
+    static final int MAX_BASE_DELAY_SECONDS = 5;
+    static final int MAX_DELAY_SECONDS = 30;
+    static final int ENTRY_CHANGES_PER_BASE_SECOND = 200;
+    static final int ELAPSED_FRACTION = 5;
+
+    private PollingDelayPolicy() {
+    }
+
+    static int getDelaySeconds(final int attempt, final int elapsedSeconds, final int entryChangeCount) {
+        final int baseDelay = Math.min(MAX_BASE_DELAY_SECONDS, MIN_DELAY_SECONDS + entryChangeCount / ENTRY_CHANGES_PER_BASE_SECOND);
+        final long backoffDelay = (long) baseDelay << Math.min(attempt, 16);
+        final long delay = Math.max(backoffDelay, elapsedSeconds / ELAPSED_FRACTION);
+        return (int) Math.min(MAX_DELAY_SECONDS, delay);
+    }
+
+    /*
+     * This method will choose the next delay and record it, along with the attempt count, in the callback context
+     */
+    static int nextDelaySeconds(final CallbackContext context, final int entryChangeCount) {
+        final int delay = getDelaySeconds(context.getPollAttempts(), context.getTotalPollDelaySeconds(), entryChangeCount);
+        context.setPollAttempts(context.getPollAttempts() + 1);
+        context.setLastPollDelaySeconds(delay);
+        context.setTotalPollDelaySeconds(context.getTotalPollDelaySeconds() + delay);
+        return delay;
+    }
+}
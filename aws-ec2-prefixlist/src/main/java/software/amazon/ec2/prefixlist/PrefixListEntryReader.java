@@ -0,0 +1,85 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
+import com.amazonaws.services.ec2.model.PrefixListEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Pages through GetManagedPrefixListEntries following NextToken, handing each page to the caller as it
+ * arrives so that only the converted entries are kept, never the full list of SDK entries.
+ * When the caller knows a settled version of the prefix list, the entries are served from the
+ * EntryCache if that version was read before.
+ */
+class PrefixListEntryReader {
+    private final Ec2Invoker invoker;
+    private final AmazonEC2 ec2Client;
+    private final EntryCache entryCache;
+    private final int maxResults;
+
+    PrefixListEntryReader(final Ec2Invoker invoker, final AmazonEC2 ec2Client, final EntryCache entryCache) {
+        this(invoker, ec2Client, entryCache,
+                ModuleHelper.getConfiguredInt(ModuleHelper.ENTRIES_MAX_RESULTS_VARIABLE, ModuleHelper.DEFAULT_ENTRIES_MAX_RESULTS));
+    }
+
+    PrefixListEntryReader(final Ec2Invoker invoker, final AmazonEC2 ec2Client, final EntryCache entryCache, final int maxResults) {
+        this.invoker = invoker;
+        this.ec2Client = ec2Client;
+        this.entryCache = entryCache;
+        this.maxResults = Math.min(Math.max(maxResults, 1), ModuleHelper.MAX_ENTRIES_MAX_RESULTS);
+    }
+
+    List<Entry> readEntries(final String prefixListId) {
+        return readEntries(prefixListId, null);
+    }
+
+    /*
+     * Reads the entries of the given version, or of whatever version is current when version is null
+     */
+    List<Entry> readEntries(final String prefixListId, final Long version) {
+        if (version != null) {
+            final List<Entry> cached = entryCache.get(prefixListId, version);
+            if (cached != null) {
+                invoker.getMetrics().increment(HandlerMetrics.ENTRY_CACHE_HITS);
+                return cached;
+            }
+            invoker.getMetrics().increment(HandlerMetrics.ENTRY_CACHE_MISSES);
+        }
+        final List<Entry> entries = new ArrayList<>();
+        forEachPage(prefixListId, version, page -> {
+            for (final PrefixListEntry prefixListEntry : page) {
+                entries.add(ModuleHelper.convertToEntry(prefixListEntry));
+            }
+        });
+        if (version != null) {
+            entryCache.put(prefixListId, version, entries);
+        }
+        return entries;
+    }
+
+    // Pinning the target version keeps a modify that lands mid-read from being cached under the old version
+    int forEachPage(final String prefixListId, final Long version, final Consumer<List<PrefixListEntry>> pageConsumer) {
+        String nextToken = null;
+        int pages = 0;
+        do {
+            final GetManagedPrefixListEntriesRequest getEntriesRequest = new GetManagedPrefixListEntriesRequest()
+                    .withPrefixListId(prefixListId)
+                    .withMaxResults(maxResults)
+                    .withTargetVersion(version)
+                    .withNextToken(nextToken);
+            pages++;
+            final GetManagedPrefixListEntriesResult result =
+                    invoker.invoke(getEntriesRequest, ec2Client::getManagedPrefixListEntries, prefixListId, pages);
+            invoker.getMetrics().increment(HandlerMetrics.PAGES_FETCHED);
+            if (result.getEntries() != null) {
+                pageConsumer.accept(result.getEntries());
+            }
+            nextToken = result.getNextToken();
+        } while (nextToken != null);
+        return pages;
+    }
+}
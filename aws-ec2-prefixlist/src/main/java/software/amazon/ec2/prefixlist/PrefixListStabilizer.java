@@ -0,0 +1,130 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.ManagedPrefixList;
+import com.amazonaws.services.ec2.model.PrefixListState;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * Decides, for each mutating operation, whether a described prefix list state means the operation
+ * succeeded, failed or should keep polling. Every PrefixListState has an explicit outcome per operation,
+ * so restores and another writer's changes are handled instead of falling through to a default. A state
+ * the SDK does not know yet keeps polling. The delay between polls comes from a pluggable DelayPolicy.
+ */
+class PrefixListStabilizer {
+    static final PrefixListStabilizer DEFAULT = new PrefixListStabilizer(PollingDelayPolicy::nextDelaySeconds);
+
+    enum Operation { CREATE, UPDATE, DELETE }
+
+    enum Outcome { SUCCESS, FAILED, CONTINUE }
+
+    interface DelayPolicy {
+        int nextDelaySeconds(CallbackContext context, int entryChangeCount);
+    }
+
+    static final Map<Operation, Map<PrefixListState, Outcome>> TRANSITIONS = Maps.immutableEnumMap(ImmutableMap.of(
+            // A created list that someone else already modified or restored still exists, so the create is done;
+            // any failed mutation fails the operation rather than reporting a list in an unknown state as created
+            Operation.CREATE, Maps.immutableEnumMap(ImmutableMap.<PrefixListState, Outcome>builder()
+                    .put(PrefixListState.CreateInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.CreateComplete, Outcome.SUCCESS)
+                    .put(PrefixListState.CreateFailed, Outcome.FAILED)
+                    .put(PrefixListState.ModifyInProgress, Outcome.SUCCESS)
+                    .put(PrefixListState.ModifyComplete, Outcome.SUCCESS)
+                    .put(PrefixListState.ModifyFailed, Outcome.FAILED)
+                    .put(PrefixListState.RestoreInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.RestoreComplete, Outcome.SUCCESS)
+                    .put(PrefixListState.RestoreFailed, Outcome.FAILED)
+                    .put(PrefixListState.DeleteInProgress, Outcome.FAILED)
+                    .put(PrefixListState.DeleteComplete, Outcome.FAILED)
+                    .put(PrefixListState.DeleteFailed, Outcome.FAILED)
+                    .build()),
+            // A restore rewrites the entries, so wait for it; create-complete means the modify has not been observed yet
+            Operation.UPDATE, Maps.immutableEnumMap(ImmutableMap.<PrefixListState, Outcome>builder()
+                    .put(PrefixListState.CreateInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.CreateComplete, Outcome.CONTINUE)
+                    .put(PrefixListState.CreateFailed, Outcome.FAILED)
+                    .put(PrefixListState.ModifyInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.ModifyComplete, Outcome.SUCCESS)
+                    .put(PrefixListState.ModifyFailed, Outcome.FAILED)
+                    .put(PrefixListState.RestoreInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.RestoreComplete, Outcome.SUCCESS)
+                    .put(PrefixListState.RestoreFailed, Outcome.FAILED)
+                    .put(PrefixListState.DeleteInProgress, Outcome.FAILED)
+                    .put(PrefixListState.DeleteComplete, Outcome.FAILED)
+                    .put(PrefixListState.DeleteFailed, Outcome.FAILED)
+                    .build()),
+            // The delete was accepted, so any state before delete-in-progress is a describe that has not caught up
+            Operation.DELETE, Maps.immutableEnumMap(ImmutableMap.<PrefixListState, Outcome>builder()
+                    .put(PrefixListState.CreateInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.CreateComplete, Outcome.CONTINUE)
+                    .put(PrefixListState.CreateFailed, Outcome.CONTINUE)
+                    .put(PrefixListState.ModifyInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.ModifyComplete, Outcome.CONTINUE)
+                    .put(PrefixListState.ModifyFailed, Outcome.CONTINUE)
+                    .put(PrefixListState.RestoreInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.RestoreComplete, Outcome.CONTINUE)
+                    .put(PrefixListState.RestoreFailed, Outcome.CONTINUE)
+                    .put(PrefixListState.DeleteInProgress, Outcome.CONTINUE)
+                    .put(PrefixListState.DeleteComplete, Outcome.SUCCESS)
+                    .put(PrefixListState.DeleteFailed, Outcome.FAILED)
+                    .build())));
+
+    private final DelayPolicy delayPolicy;
+
+    PrefixListStabilizer(final DelayPolicy delayPolicy) {
+        this.delayPolicy = delayPolicy;
+    }
+
+    static Outcome evaluate(final Operation operation, final String state) {
+        final PrefixListState prefixListState;
+        try {
+            prefixListState = PrefixListState.fromValue(state);
+        } catch (final IllegalArgumentException ex) {
+            return Outcome.CONTINUE;
+        }
+        return TRANSITIONS.get(operation).getOrDefault(prefixListState, Outcome.CONTINUE);
+    }
+
+    static boolean isSettled(final Operation operation, final ManagedPrefixList prefixList) {
+        return evaluate(operation, prefixList.getState()) != Outcome.CONTINUE;
+    }
+
+    /*
+     * This method will map the state to a progress event, asking the delay policy for the next poll when
+     * the operation continues and building the success model only when it succeeded
+     */
+    ProgressEvent<ResourceModel, CallbackContext> getProgressEvent(
+            final Operation operation,
+            final String state,
+            final ResourceModel model,
+            final CallbackContext context,
+            final int entryChangeCount,
+            final Supplier<ResourceModel> successModel) {
+        switch (evaluate(operation, state)) {
+            case SUCCESS:
+                return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                        .resourceModel(successModel.get())
+                        .status(OperationStatus.SUCCESS)
+                        .build();
+            case FAILED:
+                return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                        .callbackContext(context)
+                        .resourceModel(model)
+                        .status(OperationStatus.FAILED)
+                        .build();
+            default:
+                return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                        .callbackContext(context)
+                        .callbackDelaySeconds(delayPolicy.nextDelaySeconds(context, entryChangeCount))
+                        .resourceModel(model)
+                        .status(OperationStatus.IN_PROGRESS)
+                        .build();
+        }
+    }
+}
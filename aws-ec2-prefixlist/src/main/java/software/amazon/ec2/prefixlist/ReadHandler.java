@@ -5,8 +5,6 @@ import com.amazonaws.services.ec2.model.AmazonEC2Exception;
 import com.amazonaws.services.ec2.model.DescribeAccountAttributesResult;
 import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
 import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
-import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
-import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
 import com.amazonaws.services.ec2.model.ManagedPrefixList;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
@@ -16,8 +14,26 @@ import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 public class ReadHandler extends BaseHandler<CallbackContext> {
+    private final Ec2Invoker.Factory invokerFactory;
+    private final ClientBuilder.Factory clientFactory;
+    private final EntryCache entryCache;
+
+    public ReadHandler() {
+        this(Ec2Invoker.DEFAULT_FACTORY, EntryCache.SHARED);
+    }
+
+    ReadHandler(final Ec2Invoker.Factory invokerFactory, final EntryCache entryCache) {
+        this(invokerFactory, entryCache, ClientBuilder.DEFAULT_FACTORY);
+    }
+
+    ReadHandler(final Ec2Invoker.Factory invokerFactory, final EntryCache entryCache, final ClientBuilder.Factory clientFactory) {
+        this.invokerFactory = invokerFactory;
+        this.clientFactory = clientFactory;
+        this.entryCache = entryCache;
+    }
 
     @Override
     public ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -25,24 +41,48 @@ public class ReadHandler extends BaseHandler<CallbackContext> {
         final ResourceHandlerRequest<ResourceModel> request,
         final CallbackContext callbackContext,
         final Logger logger) {
+        return HandlerMetrics.record("ReadHandler", logger,
+                metrics -> handle(proxy, request, callbackContext, logger, metrics));
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> handle(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final Logger logger,
+        final HandlerMetrics metrics) {
 
-        final AmazonEC2 ec2Client = ClientBuilder.getClient();
+        final AmazonEC2 ec2Client = clientFactory.getClient(request.getRegion());
+        final Ec2Invoker invoker = invokerFactory.create(proxy, metrics);
         final ResourceModel model = request.getDesiredResourceState();
         final String prefixListId = model.getPrefixListId();
 
         final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest().withPrefixListIds(prefixListId);
-        final GetManagedPrefixListEntriesRequest getEntriesRequest = new GetManagedPrefixListEntriesRequest().withPrefixListId(prefixListId);
+        final PrefixListEntryReader entryReader = new PrefixListEntryReader(invoker, ec2Client, entryCache);
 
-        final DescribeManagedPrefixListsResult describeResult = ModuleHelper.invokeAndConvertException(() ->
-                proxy.injectCredentialsAndInvoke(describeRequest, ec2Client::describeManagedPrefixLists),
-                prefixListId);
+        // The entries are read at the version the model last recorded while describe runs, so a read of an
+        // unchanged list takes as long as the slower call instead of both; describe then confirms the version
+        final Long expectedVersion = model.getVersion() == null ? null : model.getVersion().longValue();
+        final Future<List<Entry>> expectedEntries = ParallelFetcher.getExecutor().submit(() -> metrics.time(
+                HandlerMetrics.READ_ENTRIES_PHASE, () -> entryReader.readEntries(prefixListId, expectedVersion)));
 
-        final GetManagedPrefixListEntriesResult getEntriesResult = ModuleHelper.invokeAndConvertException(() ->
-                proxy.injectCredentialsAndInvoke(getEntriesRequest, ec2Client::getManagedPrefixListEntries),
-                prefixListId);
+        final DescribeManagedPrefixListsResult describeResult;
+        try {
+            describeResult = metrics.time(HandlerMetrics.DESCRIBE_PHASE,
+                    () -> invoker.invoke(describeRequest, ec2Client::describeManagedPrefixLists, prefixListId));
+        } catch (final RuntimeException ex) {
+            // No call may outlive the invocation and its metrics line
+            ParallelFetcher.awaitQuietly(expectedEntries);
+            throw ex;
+        }
 
-        final List<Entry> entries = ModuleHelper.convertToEntries(getEntriesResult.getEntries());
         final ManagedPrefixList prefixList = describeResult.getPrefixLists().get(0);
+        final Long version = EntryCache.getCacheableVersion(prefixList);
+        // A model without a version was read unpinned, which is no older than a sequential read would have been
+        List<Entry> entries = ParallelFetcher.awaitQuietly(expectedEntries);
+        if (entries == null || (expectedVersion != null && !expectedVersion.equals(version))) {
+            entries = metrics.time(HandlerMetrics.READ_ENTRIES_PHASE, () -> entryReader.readEntries(prefixListId, version));
+        }
 
         final ResourceModel currentModel = ResourceModel.builder()
                 .prefixListId(prefixListId)
@@ -50,7 +90,7 @@ public class ReadHandler extends BaseHandler<CallbackContext> {
                 .addressFamily(prefixList.getAddressFamily())
                 .maxEntries(prefixList.getMaxEntries())
                 .version(prefixList.getVersion().intValue())
-                .entries(entries)
+                .entries(ModuleHelper.getReportedEntries(model, entries))
                 .tags(ModuleHelper.convertToResourceModelTags(prefixList.getTags()))
                 .ownerId(prefixList.getOwnerId())
                 .arn(prefixList.getPrefixListArn())
@@ -0,0 +1,21 @@
+package software.amazon.ec2.prefixlist;
+
+import software.amazon.cloudformation.proxy.Logger;
+
+/*
+ * Receives the spans of one handler invocation once it ends. Tracing is off unless TRACE_EXPORTER names
+ * an exporter, so an invocation that is not traced logs nothing extra.
+ */
+@FunctionalInterface
+interface SpanExporter {
+    SpanExporter NONE = tracer -> { };
+
+    void export(Tracer tracer);
+
+    static SpanExporter fromEnvironment(final Logger logger) {
+        if (ModuleHelper.TRACE_EXPORTER_XRAY.equalsIgnoreCase(System.getenv(ModuleHelper.TRACE_EXPORTER_VARIABLE))) {
+            return new XRaySpanExporter(logger);
+        }
+        return NONE;
+    }
+}
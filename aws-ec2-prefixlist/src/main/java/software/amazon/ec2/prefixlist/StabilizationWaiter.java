@@ -0,0 +1,67 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.AmazonServiceException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+
+import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/*
+ * Polls a just-mutated prefix list a few times with short sleeps before a handler falls back to a
+ * callback, so small changes that settle within a second or two finish in the same invocation.
+ * Waiting is bounded by a poll count and by the remaining Lambda time, and any describe failure
+ * simply ends the wait; the callback path then re-describes and decides as before.
+ */
+class StabilizationWaiter {
+    static final int DEFAULT_MAX_POLLS = 3;
+    static final long DEFAULT_POLL_INTERVAL_MILLIS = 1_000L;
+    // Time to leave for the rest of the invocation and the response after the last poll
+    static final long REMAINING_TIME_RESERVE_MILLIS = 15_000L;
+    static final StabilizationWaiter NO_WAIT = new StabilizationWaiter(0, 0L, proxy -> 0L, millis -> { });
+
+    private final int maxPolls;
+    private final long pollIntervalMillis;
+    private final ToLongFunction<AmazonWebServicesClientProxy> remainingTime;
+    private final LongConsumer sleeper;
+
+    StabilizationWaiter() {
+        this(DEFAULT_MAX_POLLS, DEFAULT_POLL_INTERVAL_MILLIS,
+                AmazonWebServicesClientProxy::getRemainingTimeInMillis, ModuleHelper::sleepQuietly);
+    }
+
+    StabilizationWaiter(
+            final int maxPolls,
+            final long pollIntervalMillis,
+            final ToLongFunction<AmazonWebServicesClientProxy> remainingTime,
+            final LongConsumer sleeper) {
+        this.maxPolls = maxPolls;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.remainingTime = remainingTime;
+        this.sleeper = sleeper;
+    }
+
+    /*
+     * Returns the first polled value that satisfies "settled", or empty if it did not settle in time
+     */
+    <T> Optional<T> await(final AmazonWebServicesClientProxy proxy, final Supplier<T> poll, final Predicate<T> settled) {
+        for (int attempt = 0; attempt < maxPolls; attempt++) {
+            if (remainingTime.applyAsLong(proxy) - pollIntervalMillis < REMAINING_TIME_RESERVE_MILLIS) {
+                return Optional.empty();
+            }
+            sleeper.accept(pollIntervalMillis);
+            final T value;
+            try {
+                value = poll.get();
+            } catch (final AmazonServiceException ex) {
+                return Optional.empty();
+            }
+            if (settled.test(value)) {
+                return Optional.of(value);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,60 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.Tag;
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Computes the key-level tag changes that turn the current tags into the desired ones.
+ * Only new and changed keys are created (CreateTags overwrites existing values) and only
+ * removed keys are deleted, so tags that did not change are never touched.
+ */
+@Getter
+class TagDiff {
+    // Desired tags whose key is new or whose value changed
+    private final List<Tag> tagsToCreate;
+    // Current tags whose key is no longer desired, with the value omitted so any value is deleted
+    private final List<Tag> tagsToDelete;
+
+    private TagDiff(final List<Tag> tagsToCreate, final List<Tag> tagsToDelete) {
+        this.tagsToCreate = tagsToCreate;
+        this.tagsToDelete = tagsToDelete;
+    }
+
+    boolean isEmpty() {
+        return tagsToCreate.isEmpty() && tagsToDelete.isEmpty();
+    }
+
+    static TagDiff compute(final List<Tag> currentTags, final List<Tag> desiredTags) {
+        final Map<String, String> current = toMap(currentTags);
+        final Map<String, String> desired = toMap(desiredTags);
+
+        final List<Tag> tagsToCreate = new ArrayList<>();
+        desired.forEach((key, value) -> {
+            if (!current.containsKey(key) || !current.get(key).equals(value)) {
+                tagsToCreate.add(new Tag().withKey(key).withValue(value));
+            }
+        });
+
+        final List<Tag> tagsToDelete = new ArrayList<>();
+        current.keySet().forEach(key -> {
+            if (!desired.containsKey(key)) {
+                tagsToDelete.add(new Tag().withKey(key));
+            }
+        });
+        return new TagDiff(tagsToCreate, tagsToDelete);
+    }
+
+    // A missing value is stored by EC2 as an empty string; for repeated keys the last value wins
+    private static Map<String, String> toMap(final List<Tag> tags) {
+        final List<Tag> source = tags == null ? ImmutableList.of() : tags;
+        final Map<String, String> map = new LinkedHashMap<>(source.size() * 2);
+        source.forEach(tag -> map.put(tag.getKey(), tag.getValue() == null ? "" : tag.getValue()));
+        return map;
+    }
+}
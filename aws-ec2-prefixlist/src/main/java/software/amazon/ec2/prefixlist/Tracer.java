@@ -0,0 +1,123 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.AmazonServiceException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+ * Records a span for every EC2 call attempt of one handler invocation, tagged with the handler, the API
+ * action, the prefix list id, the entry page and the outcome. The trace id is kept in the callback
+ * context, so every invocation of one stack operation, callbacks included, shares a trace. Entry reads
+ * fan out across threads, so spans are collected under a lock. Spans are handed to a SpanExporter when
+ * the invocation ends.
+ */
+class Tracer {
+    static final String SUCCESS_OUTCOME = "Success";
+
+    private final String handler;
+    private final LongSupplier clock;
+    private final long startMillis;
+    private final List<Span> spans = new ArrayList<>();
+    private String traceId;
+
+    Tracer(final String handler, final LongSupplier clock) {
+        this.handler = handler;
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+        this.traceId = newTraceId(startMillis);
+    }
+
+    /*
+     * This method will continue the trace recorded in the callback context, or record this invocation's trace there
+     */
+    void join(final CallbackContext context) {
+        if (context.getTraceId() == null) {
+            context.setTraceId(traceId);
+        } else {
+            traceId = context.getTraceId();
+        }
+    }
+
+    <T> T trace(final String action, final String prefixListId, final Integer page, final int attempt, final Supplier<T> call) {
+        final long start = clock.getAsLong();
+        String outcome = SUCCESS_OUTCOME;
+        try {
+            return call.get();
+        } catch (final AmazonServiceException ex) {
+            outcome = ex.getErrorCode();
+            throw ex;
+        } catch (final RuntimeException ex) {
+            outcome = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            final Span span = Span.builder()
+                    .id(newSpanId())
+                    .action(action)
+                    .prefixListId(prefixListId)
+                    .page(page)
+                    .attempt(attempt)
+                    .outcome(outcome)
+                    .startMillis(start)
+                    .endMillis(clock.getAsLong())
+                    .build();
+            synchronized (spans) {
+                spans.add(span);
+            }
+        }
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+    String getHandler() {
+        return handler;
+    }
+
+    long getStartMillis() {
+        return startMillis;
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    List<Span> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    // X-Ray format: version, the epoch second the trace started, then 96 random bits
+    static String newTraceId(final long startMillis) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format("1-%08x-%016x%08x", startMillis / 1_000L, random.nextLong(), random.nextInt());
+    }
+
+    static String newSpanId() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+
+    @Getter
+    @Builder
+    static class Span {
+        private final String id;
+        private final String action;
+        private final String prefixListId;
+        private final Integer page;
+        private final int attempt;
+        private final String outcome;
+        private final long startMillis;
+        private final long endMillis;
+
+        boolean isSuccess() {
+            return SUCCESS_OUTCOME.equals(outcome);
+        }
+    }
+}
@@ -1,17 +1,13 @@
 package software.amazon.ec2.prefixlist;
 
 import com.amazonaws.services.ec2.AmazonEC2;
-import com.amazonaws.services.ec2.model.AddPrefixListEntry;
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
 import com.amazonaws.services.ec2.model.CreateTagsRequest;
 import com.amazonaws.services.ec2.model.DeleteTagsRequest;
 import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
 import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
-import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
-import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
 import com.amazonaws.services.ec2.model.ManagedPrefixList;
 import com.amazonaws.services.ec2.model.ModifyManagedPrefixListRequest;
-import com.amazonaws.services.ec2.model.PrefixListEntry;
-import com.amazonaws.services.ec2.model.RemovePrefixListEntry;
 import com.google.common.collect.ImmutableList;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
@@ -19,13 +15,45 @@ import software.amazon.cloudformation.proxy.ProgressEvent;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class UpdateHandler extends BaseHandler<CallbackContext> {
+    private final StabilizationWaiter waiter;
+    private final Ec2Invoker.Factory invokerFactory;
+    private final ClientBuilder.Factory clientFactory;
+    private final EntryCache entryCache;
+    private final PrefixListStabilizer stabilizer;
+
+    public UpdateHandler() {
+        this(new StabilizationWaiter(), Ec2Invoker.DEFAULT_FACTORY, EntryCache.SHARED);
+    }
+
+    UpdateHandler(final StabilizationWaiter waiter, final Ec2Invoker.Factory invokerFactory, final EntryCache entryCache) {
+        this(waiter, invokerFactory, entryCache, ClientBuilder.DEFAULT_FACTORY);
+    }
+
+    UpdateHandler(
+            final StabilizationWaiter waiter,
+            final Ec2Invoker.Factory invokerFactory,
+            final EntryCache entryCache,
+            final ClientBuilder.Factory clientFactory) {
+        this(waiter, invokerFactory, entryCache, clientFactory, PrefixListStabilizer.DEFAULT);
+    }
+
+    UpdateHandler(
+            final StabilizationWaiter waiter,
+            final Ec2Invoker.Factory invokerFactory,
+            final EntryCache entryCache,
+            final ClientBuilder.Factory clientFactory,
+            final PrefixListStabilizer stabilizer) {
+        this.waiter = waiter;
+        this.invokerFactory = invokerFactory;
+        this.clientFactory = clientFactory;
+        this.entryCache = entryCache;
+        this.stabilizer = stabilizer;
+    }
 
     @Override
     public ProgressEvent<ResourceModel, CallbackContext> handleRequest(
@@ -33,20 +61,47 @@ public class UpdateHandler extends BaseHandler<CallbackContext> {
         final ResourceHandlerRequest<ResourceModel> request,
         final CallbackContext callbackContext,
         final Logger logger) {
+        return HandlerMetrics.record("UpdateHandler", logger,
+                metrics -> handle(proxy, request, callbackContext, logger, metrics));
+    }
 
-        AmazonEC2 ec2Client = ClientBuilder.getClient();
+    private ProgressEvent<ResourceModel, CallbackContext> handle(
+        final AmazonWebServicesClientProxy proxy,
+        final ResourceHandlerRequest<ResourceModel> request,
+        final CallbackContext callbackContext,
+        final Logger logger,
+        final HandlerMetrics metrics) {
+
+        final AmazonEC2 ec2Client = clientFactory.getClient(request.getRegion());
+        final Ec2Invoker invoker = invokerFactory.create(proxy, metrics);
 
         final CallbackContext context = callbackContext == null ? CallbackContext.builder().build() : callbackContext.toBuilder().build();
+        metrics.getTracer().join(context);
 
         final ResourceModel model = request.getDesiredResourceState();
+        return Ec2Invoker.deferWhenRateLimited(model, context,
+                () -> updateAndStabilize(proxy, ec2Client, invoker, model, context, logger, metrics));
+    }
 
+    private ProgressEvent<ResourceModel, CallbackContext> updateAndStabilize(
+        final AmazonWebServicesClientProxy proxy,
+        final AmazonEC2 ec2Client,
+        final Ec2Invoker invoker,
+        final ResourceModel model,
+        final CallbackContext context,
+        final Logger logger,
+        final HandlerMetrics metrics) {
         final String prefixListId = model.getPrefixListId();
 
+        // Fail before the tags are touched rather than on the modify call
+        if (!context.isMutationStarted()) {
+            EntryValidator.validate(model);
+        }
+
         final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest()
                 .withPrefixListIds(ImmutableList.of(prefixListId));
-        final DescribeManagedPrefixListsResult describeResult = ModuleHelper.invokeAndConvertException(() ->
-                proxy.injectCredentialsAndInvoke(describeRequest, ec2Client::describeManagedPrefixLists),
-                prefixListId);
+        final DescribeManagedPrefixListsResult describeResult = metrics.time(HandlerMetrics.DESCRIBE_PHASE,
+                () -> invoker.invoke(describeRequest, ec2Client::describeManagedPrefixLists, prefixListId));
 
         final ManagedPrefixList currentPrefixList  = describeResult.getPrefixLists().get(0);
 
@@ -61,144 +116,292 @@ public class UpdateHandler extends BaseHandler<CallbackContext> {
             final List<com.amazonaws.services.ec2.model.Tag> finalTags = ModuleHelper.convertToEc2Tags(model.getTags());
             final List<com.amazonaws.services.ec2.model.Tag> currentTags = currentPrefixList.getTags() == null ? ImmutableList.of() :
                     currentPrefixList.getTags();
-            updateTags(finalTags, currentTags, proxy, ec2Client, prefixListId);
+            metrics.time(HandlerMetrics.TAGS_PHASE, () -> updateTags(finalTags, currentTags, invoker, ec2Client, prefixListId));
             context.setTagsUpdated(true);
          }
 
         if (!context.isMutationStarted()) {
-            final List<Entry> finalEntries = model.getEntries();
-            final List<Entry> currentEntries = getCurrentEntries(proxy, ec2Client, prefixListId);
-            final List<Entry> addEntries = getAddEntries(currentEntries, finalEntries);
-            final List<Entry> removeEntries = getRemoveEntries(currentEntries, finalEntries);
-
-            if (addEntries.isEmpty() && removeEntries.isEmpty()) {
-                if (!currentPrefixList.getPrefixListName().equals(model.getPrefixListName())) {
-                    final ModifyManagedPrefixListRequest modifyRequest = new ModifyManagedPrefixListRequest()
-                            .withPrefixListId(model.getPrefixListId())
-                            .withPrefixListName(model.getPrefixListName());
-                    proxy.injectCredentialsAndInvoke(modifyRequest, ec2Client::modifyManagedPrefixList);
-                }
-                return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                        .resourceModel(model)
-                        .status(OperationStatus.SUCCESS)
-                        .build();
+            return planAndApply(proxy, invoker, ec2Client, model, context, currentPrefixList, logger);
+        }
+
+        return continueMutation(proxy, invoker, ec2Client, model, context, currentPrefixList, logger);
+    }
+
+    /*
+     * This Method will plan the entry changes against the described version and apply the first chunk
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> planAndApply(
+            final AmazonWebServicesClientProxy proxy,
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
+            final ResourceModel model,
+            final CallbackContext context,
+            final ManagedPrefixList currentPrefixList,
+            final Logger logger) {
+        final HandlerMetrics metrics = invoker.getMetrics();
+        final String prefixListId = model.getPrefixListId();
+        // The plan is based on the described version, so its entries can be read again on later callbacks
+        final Long baseVersion = EntryCache.getCacheableVersion(currentPrefixList);
+        final List<Entry> currentEntries = metrics.time(HandlerMetrics.READ_ENTRIES_PHASE,
+                () -> new PrefixListEntryReader(invoker, ec2Client, entryCache).readEntries(prefixListId, baseVersion));
+        final List<Entry> desiredEntries = ModuleHelper.getDesiredEntries(model);
+        final EntryUpdatePlan plan = metrics.time(HandlerMetrics.DIFF_PHASE,
+                () -> EntryUpdatePlan.compute(baseVersion, currentEntries, desiredEntries));
+        metrics.add(HandlerMetrics.ENTRIES_DIFFED, currentEntries.size() + (desiredEntries == null ? 0 : desiredEntries.size()));
+
+        if (plan.isEmpty()) {
+            if (!currentPrefixList.getPrefixListName().equals(model.getPrefixListName())) {
+                final ModifyManagedPrefixListRequest modifyRequest = new ModifyManagedPrefixListRequest()
+                        .withPrefixListId(model.getPrefixListId())
+                        .withPrefixListName(model.getPrefixListName());
+                metrics.time(HandlerMetrics.MUTATE_PHASE,
+                        () -> invoker.invoke(modifyRequest, ec2Client::modifyManagedPrefixList, prefixListId));
             }
+            return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                    .resourceModel(model)
+                    .status(OperationStatus.SUCCESS)
+                    .build();
+        }
 
-            final List<AddPrefixListEntry> addPrefixListEntries = ModuleHelper.convertToAddPrefixListEntries(addEntries);
-            final List<RemovePrefixListEntry> removePrefixListEntries = ModuleHelper.convertToRemovePrefixListEntries(removeEntries);
-
-            final ModifyManagedPrefixListRequest modifyRequest = new ModifyManagedPrefixListRequest()
-                    .withPrefixListId(prefixListId)
-                    .withAddEntries(addPrefixListEntries)
-                    .withRemoveEntries(removePrefixListEntries)
-                    .withCurrentVersion(currentPrefixList.getVersion())
-                    .withPrefixListName(model.getPrefixListName());
-            proxy.injectCredentialsAndInvoke(modifyRequest, ec2Client::modifyManagedPrefixList);
-            context.setMutationStarted(true);
-            logger.log("Initiated Prefix List update request.");
+        // Another change is still being applied; plan against the version it produces instead
+        if (baseVersion == null) {
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
                     .callbackContext(context)
+                    .callbackDelaySeconds(PollingDelayPolicy.nextDelaySeconds(context, 0))
                     .resourceModel(model)
                     .status(OperationStatus.IN_PROGRESS)
                     .build();
         }
 
+        plan.recordIn(context);
+        return applyChunk(proxy, invoker, ec2Client, model, context, plan, 0, currentPrefixList.getVersion(), logger);
+    }
+
+    private ProgressEvent<ResourceModel, CallbackContext> continueMutation(
+            final AmazonWebServicesClientProxy proxy,
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
+            final ResourceModel model,
+            final CallbackContext context,
+            final ManagedPrefixList currentPrefixList,
+            final Logger logger) {
+        // Apply the next chunk once the previous one has settled, chaining on the version it produced
+        final PrefixListStabilizer.Outcome outcome =
+                PrefixListStabilizer.evaluate(PrefixListStabilizer.Operation.UPDATE, currentPrefixList.getState());
+        final Long observedVersion = currentPrefixList.getVersion();
+        final Long expectedVersion = context.getExpectedVersion();
+        // An older version has not observed the last chunk yet, whether or not more chunks follow
+        if (outcome == PrefixListStabilizer.Outcome.SUCCESS && !isChunkSettled(currentPrefixList, expectedVersion)) {
+            return awaitTransition(model, context);
+        }
+        if (outcome == PrefixListStabilizer.Outcome.SUCCESS && context.getChunkIndex() + 1 < context.getChunkCount()) {
+            // A newer version was modified by another writer, so the next chunk is re-planned now instead of
+            // being sent only to fail on its version
+            if (observedVersion != null && expectedVersion != null && observedVersion > expectedVersion) {
+                return rebase(proxy, invoker, ec2Client, model, context, logger);
+            }
+            final EntryUpdatePlan plan = loadPlan(invoker, ec2Client, model, context);
+            if (!plan.matches(context)) {
+                return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                        .status(OperationStatus.FAILED)
+                        .message("Entries changed while the update was in progress.")
+                        .build();
+            }
+            return applyChunk(proxy, invoker, ec2Client, model, context, plan, context.getChunkIndex() + 1, context.getExpectedVersion(), logger);
+        }
+
         // Return SUCCESS if mutation complete, IN_PROGRESS otherwise
         return confirmMutationComplete(model, context, currentPrefixList);
     }
 
-    private List<Entry> getAddEntries(final List<Entry> currentEntries, final List<Entry> finalEntries) {
-        final Set<Entry> entrySet = new HashSet<Entry>();
-        entrySet.addAll(currentEntries);
-        return finalEntries.stream()
-                .filter(entry -> !entrySet.contains(entry))
-                .collect(Collectors.toList());
+    /*
+     * This Method will re-derive the entry update plan from the entries at the version it was based on
+     */
+    private EntryUpdatePlan loadPlan(
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
+            final ResourceModel model,
+            final CallbackContext context) {
+        final HandlerMetrics metrics = invoker.getMetrics();
+        final List<Entry> baseEntries = metrics.time(HandlerMetrics.READ_ENTRIES_PHASE,
+                () -> new PrefixListEntryReader(invoker, ec2Client, entryCache)
+                        .readEntries(model.getPrefixListId(), context.getPlanBaseVersion()));
+        return metrics.time(HandlerMetrics.DIFF_PHASE,
+                () -> EntryUpdatePlan.compute(context.getPlanBaseVersion(), baseEntries, ModuleHelper.getDesiredEntries(model)));
     }
 
-    private List<Entry> getRemoveEntries(final List<Entry> currentEntries, final List<Entry> finalEntries) {
-        final Set<String> entrySet = new HashSet<String>();
-        finalEntries.stream()
-                .forEach(entry -> entrySet.add(entry.getCidr()));
-        return currentEntries.stream()
-                .filter(entry -> !entrySet.contains(entry.getCidr()))
+    /*
+     * This Method will send one chunk of the planned entry changes and record it in the callback context
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> applyChunk(
+            final AmazonWebServicesClientProxy proxy,
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
+            final ResourceModel model,
+            final CallbackContext context,
+            final EntryUpdatePlan plan,
+            final int chunkIndex,
+            final Long currentVersion,
+            final Logger logger) {
+        final List<Entry> addEntries = plan.getAddChunk(chunkIndex);
+        final List<Entry> removeEntries = plan.getRemoveChunk(chunkIndex).stream()
+                .map(cidr -> Entry.builder().cidr(cidr).build())
                 .collect(Collectors.toList());
-    }
 
-    private List<Entry> getCurrentEntries(final AmazonWebServicesClientProxy proxy, final AmazonEC2 ec2Client, final String prefixListId) {
-        String nextToken = null;
-        List<PrefixListEntry> currentPrefixListEntries = new ArrayList<PrefixListEntry>();
-        do {
-            final GetManagedPrefixListEntriesRequest getEntriesRequest = new GetManagedPrefixListEntriesRequest()
-                    .withPrefixListId(prefixListId)
-                    .withNextToken(nextToken);
-            final GetManagedPrefixListEntriesResult result = ModuleHelper.invokeAndConvertException(() ->
-                    proxy.injectCredentialsAndInvoke(getEntriesRequest, ec2Client::getManagedPrefixListEntries),
-                    prefixListId);
-            nextToken = result.getNextToken();
-            currentPrefixListEntries.addAll(result.getEntries());
-        } while (nextToken != null);
-        return ModuleHelper.convertToEntries(currentPrefixListEntries);
+        final ModifyManagedPrefixListRequest modifyRequest = new ModifyManagedPrefixListRequest()
+                .withPrefixListId(model.getPrefixListId())
+                .withAddEntries(ModuleHelper.convertToAddPrefixListEntries(addEntries))
+                .withRemoveEntries(ModuleHelper.convertToRemovePrefixListEntries(removeEntries))
+                .withCurrentVersion(currentVersion);
+        if (chunkIndex == 0) {
+            modifyRequest.setPrefixListName(model.getPrefixListName());
+        }
+        final HandlerMetrics metrics = invoker.getMetrics();
+        try {
+            metrics.time(HandlerMetrics.MUTATE_PHASE,
+                    () -> invoker.invoke(modifyRequest, ec2Client::modifyManagedPrefixList, model.getPrefixListId()));
+        } catch (final AmazonEC2Exception ex) {
+            // Another change is still being applied; wait for it to settle and try again from the version it produces
+            if (ModuleHelper.isIncorrectState(ex)) {
+                return awaitTransition(model, context);
+            }
+            if (!ModuleHelper.isVersionConflict(ex)) {
+                throw ex;
+            }
+            return rebase(proxy, invoker, ec2Client, model, context, logger);
+        }
+
+        logger.log(String.format("Initiated Prefix List update request %d of %d.", chunkIndex + 1, plan.getChunkCount()));
+
+        context.setMutationStarted(true);
+        context.setChunkIndex(chunkIndex);
+        context.setChunkEntryCount(plan.getChunkEntryCount(chunkIndex));
+        context.setExpectedVersion(currentVersion == null ? null : currentVersion + 1);
+
+        // Small chunks usually settle within a couple of seconds, so later chunks can chain in this invocation
+        final Optional<ManagedPrefixList> settledPrefixList = metrics.time(HandlerMetrics.STABILIZE_PHASE, () -> waiter.await(proxy,
+                () -> describePrefixList(invoker, ec2Client, model.getPrefixListId()),
+                prefixList -> isChunkSettled(prefixList, context.getExpectedVersion())));
+        if (settledPrefixList.isPresent()) {
+            return continueMutation(proxy, invoker, ec2Client, model, context, settledPrefixList.get(), logger);
+        }
+
+        return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                .callbackContext(context)
+                .resourceModel(model)
+                .status(OperationStatus.IN_PROGRESS)
+                .build();
     }
 
     /*
-     * This Method will return SUCCESS status if mutation is complete, IN_PROGRESS otherwise
+     * This Method will drop a plan another writer invalidated and plan again against the version that writer
+     * produced; chunks already applied are part of that version, so only the remaining changes are planned
      */
-    private ProgressEvent<ResourceModel, CallbackContext> confirmMutationComplete(
+    private ProgressEvent<ResourceModel, CallbackContext> rebase(
+            final AmazonWebServicesClientProxy proxy,
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
             final ResourceModel model,
             final CallbackContext context,
-            final ManagedPrefixList currentPrefixList) {
-        if (currentPrefixList.getState().equals(ModuleHelper.MODIFY_FAILED)) {
+            final Logger logger) {
+        if (context.getRebaseCount() >= ModuleHelper.MAX_VERSION_CONFLICT_REBASES) {
             return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .callbackContext(context)
-                    .resourceModel(model)
                     .status(OperationStatus.FAILED)
-                    .build();
-        }else if (currentPrefixList.getState().equals(ModuleHelper.MODIFY_IN_PROGRESS)) {
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .callbackContext(context)
-                    .callbackDelaySeconds(ModuleHelper.POLLING_DELAY_SECONDS)
-                    .resourceModel(model)
-                    .status(OperationStatus.IN_PROGRESS)
-                    .build();
-        } else {
-            final ResourceModel updatedModel = ResourceModel.builder()
-                    .entries(model.getEntries())
-                    .tags(model.getTags())
-                    .addressFamily(model.getAddressFamily())
-                    .maxEntries(model.getMaxEntries())
-                    .prefixListName(model.getPrefixListName())
-                    .prefixListId(model.getPrefixListId())
-                    .ownerId(model.getOwnerId())
-                    .arn(model.getArn())
-                    .version(currentPrefixList.getVersion().intValue())
-                    .build();
-            return ProgressEvent.<ResourceModel, CallbackContext>builder()
-                    .resourceModel(updatedModel)
-                    .status(OperationStatus.SUCCESS)
+                    .message(String.format("Prefix list kept changing during the update; gave up after %d rebases.",
+                            context.getRebaseCount()))
                     .build();
         }
+        context.setRebaseCount(context.getRebaseCount() + 1);
+        invoker.getMetrics().increment(HandlerMetrics.REBASES);
+        logger.log(String.format("Prefix List changed concurrently; rebasing update (%d of %d).",
+                context.getRebaseCount(), ModuleHelper.MAX_VERSION_CONFLICT_REBASES));
+
+        context.setMutationStarted(false);
+        context.setPlanBaseVersion(null);
+        context.setPlanHash(null);
+        context.setChunkCount(0);
+        context.setChunkIndex(0);
+        context.setChunkEntryCount(0);
+        context.setExpectedVersion(null);
+        final ManagedPrefixList currentPrefixList = invoker.getMetrics().time(HandlerMetrics.DESCRIBE_PHASE,
+                () -> describePrefixList(invoker, ec2Client, model.getPrefixListId()));
+        return planAndApply(proxy, invoker, ec2Client, model, context, currentPrefixList, logger);
+    }
+
+    /*
+     * This Method will poll again, as for a modify in progress, without recording anything as applied
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> awaitTransition(final ResourceModel model, final CallbackContext context) {
+        return stabilizer.getProgressEvent(PrefixListStabilizer.Operation.UPDATE, ModuleHelper.MODIFY_IN_PROGRESS, model, context,
+                context.getChunkEntryCount(), () -> model);
+    }
+
+    // A describe that still shows the previous version has not observed the modify yet
+    private static boolean isChunkSettled(final ManagedPrefixList prefixList, final Long expectedVersion) {
+        final PrefixListStabilizer.Outcome outcome =
+                PrefixListStabilizer.evaluate(PrefixListStabilizer.Operation.UPDATE, prefixList.getState());
+        if (outcome == PrefixListStabilizer.Outcome.FAILED) {
+            return true;
+        }
+        return outcome == PrefixListStabilizer.Outcome.SUCCESS
+                && (expectedVersion == null || prefixList.getVersion() == null || prefixList.getVersion() >= expectedVersion);
     }
 
-    private void updateTags(
+    private static ManagedPrefixList describePrefixList(
+            final Ec2Invoker invoker,
+            final AmazonEC2 ec2Client,
+            final String prefixListId) {
+        final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest()
+                .withPrefixListIds(ImmutableList.of(prefixListId));
+        return invoker.invoke(describeRequest, ec2Client::describeManagedPrefixLists)
+                .getPrefixLists()
+                .get(0);
+    }
+
+    /*
+     * This Method will return SUCCESS status if mutation is complete, IN_PROGRESS otherwise
+     */
+    private ProgressEvent<ResourceModel, CallbackContext> confirmMutationComplete(
+            final ResourceModel model,
+            final CallbackContext context,
+            final ManagedPrefixList currentPrefixList) {
+        return stabilizer.getProgressEvent(PrefixListStabilizer.Operation.UPDATE, currentPrefixList.getState(), model, context,
+                context.getChunkEntryCount(), () -> ResourceModel.builder()
+                        .entries(model.getEntries())
+                        .tags(model.getTags())
+                        .addressFamily(model.getAddressFamily())
+                        .maxEntries(model.getMaxEntries())
+                        .prefixListName(model.getPrefixListName())
+                        .prefixListId(model.getPrefixListId())
+                        .ownerId(model.getOwnerId())
+                        .arn(model.getArn())
+                        .version(currentPrefixList.getVersion().intValue())
+                        .build());
+    }
+
+    /*
+     * This Method will create new and changed tags and delete removed ones, leaving unchanged tags untouched,
+     * and return the diff it applied
+     */
+    private TagDiff updateTags(
             final List<com.amazonaws.services.ec2.model.Tag> finalTags,
             final List<com.amazonaws.services.ec2.model.Tag> currentTags,
-            final AmazonWebServicesClientProxy proxy,
+            final Ec2Invoker invoker,
             final AmazonEC2 ec2Client,
             final String prefixListId) {
-        if (finalTags.size() != currentTags.size() || !finalTags.containsAll(currentTags)) {
-            if(!currentTags.isEmpty()) {
-                final DeleteTagsRequest deleteTagsRequest = new DeleteTagsRequest()
-                        .withResources(prefixListId)
-                        .withTags(currentTags);
-                proxy.injectCredentialsAndInvoke(deleteTagsRequest, ec2Client::deleteTags);
-            }
-            if (!finalTags.isEmpty()) {
-                final CreateTagsRequest createTagsRequest = new CreateTagsRequest()
-                        .withResources(prefixListId)
-                        .withTags(finalTags);
-                proxy.injectCredentialsAndInvoke(createTagsRequest, ec2Client::createTags);
-            }
+        final TagDiff tagDiff = TagDiff.compute(currentTags, finalTags);
+        if (!tagDiff.getTagsToCreate().isEmpty()) {
+            final CreateTagsRequest createTagsRequest = new CreateTagsRequest()
+                    .withResources(prefixListId)
+                    .withTags(tagDiff.getTagsToCreate());
+            invoker.invoke(createTagsRequest, ec2Client::createTags);
+        }
+        if (!tagDiff.getTagsToDelete().isEmpty()) {
+            final DeleteTagsRequest deleteTagsRequest = new DeleteTagsRequest()
+                    .withResources(prefixListId)
+                    .withTags(tagDiff.getTagsToDelete());
+            invoker.invoke(deleteTagsRequest, ec2Client::deleteTags);
         }
-        return;
+        return tagDiff;
     }
 }
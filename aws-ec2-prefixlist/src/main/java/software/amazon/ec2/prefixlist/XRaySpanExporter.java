@@ -0,0 +1,65 @@
+package software.amazon.ec2.prefixlist;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import software.amazon.cloudformation.proxy.Logger;
+
+/*
+ * Writes each invocation to the log stream as one X-Ray segment document: the invocation is the segment
+ * and every EC2 call attempt is a subsegment in the aws namespace. Span fields that X-Ray should index
+ * are annotations; a throttled attempt is flagged as a throttle, any other failed one as an error.
+ */
+class XRaySpanExporter implements SpanExporter {
+    static final String HANDLER_ANNOTATION = "Handler";
+    static final String PREFIX_LIST_ID_ANNOTATION = "PrefixListId";
+    static final String PAGE_ANNOTATION = "Page";
+    static final String ATTEMPT_ANNOTATION = "Attempt";
+    static final String OUTCOME_ANNOTATION = "Outcome";
+
+    private final Logger logger;
+
+    XRaySpanExporter(final Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void export(final Tracer tracer) {
+        logger.log(toSegment(tracer).toString());
+    }
+
+    static JSONObject toSegment(final Tracer tracer) {
+        final JSONArray subsegments = new JSONArray();
+        for (final Tracer.Span span : tracer.getSpans()) {
+            final JSONObject subsegment = new JSONObject()
+                    .put("name", span.getAction())
+                    .put("id", span.getId())
+                    .put("namespace", "aws")
+                    .put("start_time", toSeconds(span.getStartMillis()))
+                    .put("end_time", toSeconds(span.getEndMillis()))
+                    .put("aws", new JSONObject().put("operation", span.getAction()))
+                    .put("annotations", new JSONObject()
+                            .put(PREFIX_LIST_ID_ANNOTATION, span.getPrefixListId())
+                            .put(PAGE_ANNOTATION, span.getPage())
+                            .put(ATTEMPT_ANNOTATION, span.getAttempt())
+                            .put(OUTCOME_ANNOTATION, span.getOutcome()));
+            if (ModuleHelper.THROTTLING_ERROR_CODES.contains(span.getOutcome())) {
+                subsegment.put("throttle", true).put("error", true);
+            } else if (!span.isSuccess()) {
+                subsegment.put("error", true);
+            }
+            subsegments.put(subsegment);
+        }
+        return new JSONObject()
+                .put("name", ResourceModel.TYPE_NAME)
+                .put("id", Tracer.newSpanId())
+                .put("trace_id", tracer.getTraceId())
+                .put("start_time", toSeconds(tracer.getStartMillis()))
+                .put("end_time", toSeconds(tracer.now()))
+                .put("annotations", new JSONObject().put(HANDLER_ANNOTATION, tracer.getHandler()))
+                .put("subsegments", subsegments);
+    }
+
+    private static double toSeconds(final long millis) {
+        return millis / 1_000.0;
+    }
+}
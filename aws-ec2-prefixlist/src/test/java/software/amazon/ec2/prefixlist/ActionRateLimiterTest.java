@@ -0,0 +1,60 @@
+package software.amazon.ec2.prefixlist;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ActionRateLimiterTest {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void reserveAllowsBurstThenQueuesCallers() {
+        final ActionRateLimiter rateLimiter = new ActionRateLimiter(10.0, 2, 1.0, 1, clock::get);
+
+        assertThat(rateLimiter.reserve("DescribeManagedPrefixLists")).isEqualTo(0L);
+        assertThat(rateLimiter.reserve("DescribeManagedPrefixLists")).isEqualTo(0L);
+        assertThat(rateLimiter.reserve("DescribeManagedPrefixLists")).isEqualTo(100L);
+        assertThat(rateLimiter.reserve("DescribeManagedPrefixLists")).isEqualTo(200L);
+    }
+
+    @Test
+    public void reserveRefillsOverTime() {
+        final ActionRateLimiter rateLimiter = new ActionRateLimiter(10.0, 1, 1.0, 1, clock::get);
+
+        assertThat(rateLimiter.reserve("GetManagedPrefixListEntries")).isEqualTo(0L);
+        clock.addAndGet(100 * NANOS_PER_MILLI);
+        assertThat(rateLimiter.reserve("GetManagedPrefixListEntries")).isEqualTo(0L);
+        clock.addAndGet(50 * NANOS_PER_MILLI);
+        assertThat(rateLimiter.reserve("GetManagedPrefixListEntries")).isEqualTo(50L);
+    }
+
+    @Test
+    public void reserveKeepsSeparateBucketsPerAction() {
+        final ActionRateLimiter rateLimiter = new ActionRateLimiter(10.0, 1, 1.0, 1, clock::get);
+
+        assertThat(rateLimiter.reserve("ModifyManagedPrefixList")).isEqualTo(0L);
+        assertThat(rateLimiter.reserve("ModifyManagedPrefixList")).isEqualTo(1_000L);
+        assertThat(rateLimiter.reserve("DescribeManagedPrefixLists")).isEqualTo(0L);
+    }
+
+    @Test
+    public void isMutatingClassifiesActions() {
+        assertThat(ActionRateLimiter.isMutating("CreateManagedPrefixList")).isTrue();
+        assertThat(ActionRateLimiter.isMutating("ModifyManagedPrefixList")).isTrue();
+        assertThat(ActionRateLimiter.isMutating("DeleteTags")).isTrue();
+        assertThat(ActionRateLimiter.isMutating("DescribeManagedPrefixLists")).isFalse();
+        assertThat(ActionRateLimiter.isMutating("GetManagedPrefixListEntries")).isFalse();
+    }
+
+    @Test
+    public void unlimitedNeverWaits() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(ActionRateLimiter.UNLIMITED.reserve("CreateTags")).isEqualTo(0L);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CidrAggregatorTest {
+
+    @Test
+    public void aggregateMergesAdjacentHostsIntoTheirParent() {
+        final List<Entry> aggregated = CidrAggregator.aggregate(ImmutableList.of(
+                entry("10.0.0.3/32", "d"),
+                entry("10.0.0.1/32", "b"),
+                entry("10.0.0.0/32", "a"),
+                entry("10.0.0.2/32", "c")));
+
+        assertThat(aggregated).containsExactly(entry("10.0.0.0/30", "a"));
+    }
+
+    @Test
+    public void aggregateMergesSiblingBlocksAndAbsorbsCoveredEntries() {
+        final List<Entry> aggregated = CidrAggregator.aggregate(ImmutableList.of(
+                entry("192.168.1.128/25", "upper"),
+                entry("192.168.1.0/25", "lower"),
+                entry("192.168.1.77/32", "covered"),
+                entry("192.168.0.0/16", null)));
+
+        assertThat(aggregated).containsExactly(entry("192.168.0.0/16", null));
+    }
+
+    @Test
+    public void aggregateKeepsUnalignedNeighboursApart() {
+        final List<Entry> aggregated = CidrAggregator.aggregate(ImmutableList.of(
+                entry("10.0.0.1/32", "b"),
+                entry("10.0.0.2/32", "c"),
+                entry("10.0.1.0/24", "e"),
+                entry("10.0.2.0/24", "f")));
+
+        assertThat(aggregated).containsExactly(
+                entry("10.0.0.1/32", "b"),
+                entry("10.0.0.2/32", "c"),
+                entry("10.0.1.0/24", "e"),
+                entry("10.0.2.0/24", "f"));
+    }
+
+    @Test
+    public void aggregateMergesIpv6AndFormatsCanonically() {
+        final List<Entry> aggregated = CidrAggregator.aggregate(ImmutableList.of(
+                entry("2001:0db8:0000:0000:0000:0000:0000:0000/33", "low"),
+                entry("2001:db8:8000::/33", "high"),
+                entry("0:0:0:0:0:0:0:1/128", "loopback"),
+                entry("10.0.0.0/8", "v4"),
+                entry("2001:db8:0:0:1:0:0:1/128", "covered")));
+
+        assertThat(aggregated).containsExactly(
+                entry("10.0.0.0/8", "v4"),
+                entry("::1/128", "loopback"),
+                entry("2001:db8::/32", "low"));
+    }
+
+    @Test
+    public void aggregateClearsHostBits() {
+        assertThat(CidrAggregator.aggregate(ImmutableList.of(entry("10.1.2.3/16", "a"), entry("fe80::1:2/64", "b"))))
+                .containsExactly(entry("10.1.0.0/16", "a"), entry("fe80::/64", "b"));
+    }
+
+    @Test
+    public void aggregateIsIndependentOfInputOrder() {
+        final ImmutableList<Entry> entries = ImmutableList.of(
+                entry("10.0.0.4/31", "z"),
+                entry("10.0.0.6/31", "y"),
+                entry("10.0.0.4/31", "a"),
+                entry("10.0.0.4/31", null),
+                entry("10.0.0.9/32", "x"));
+        final List<Entry> expected = ImmutableList.of(entry("10.0.0.4/30", null), entry("10.0.0.9/32", "x"));
+
+        assertThat(CidrAggregator.aggregate(entries)).isEqualTo(expected);
+        assertThat(CidrAggregator.aggregate(entries.reverse())).isEqualTo(expected);
+    }
+
+    @Test
+    public void aggregateRejectsInvalidCidrs() {
+        final CfnInvalidRequestException exception = Assertions.assertThrows(CfnInvalidRequestException.class,
+                () -> CidrAggregator.aggregate(ImmutableList.of(entry("10.0.0.0/33", null))));
+
+        assertThat(exception.getMessage()).contains("10.0.0.0/33");
+    }
+
+    private static Entry entry(final String cidr, final String description) {
+        return Entry.builder().cidr(cidr).description(description).build();
+    }
+}
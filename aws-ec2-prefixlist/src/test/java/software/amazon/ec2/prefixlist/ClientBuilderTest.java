@@ -0,0 +1,47 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.services.ec2.AmazonEC2;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientBuilderTest {
+
+    @Test
+    public void getClientReusesClientForSameRegion() {
+        final AmazonEC2 first = ClientBuilder.getClient("us-west-2");
+        final AmazonEC2 second = ClientBuilder.getClient("us-west-2");
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void getClientBuildsSeparateClientPerRegion() {
+        final AmazonEC2 usWest = ClientBuilder.getClient("us-west-2");
+        final AmazonEC2 euWest = ClientBuilder.getClient("eu-west-1");
+
+        assertThat(euWest).isNotSameAs(usWest);
+    }
+
+    @Test
+    public void getClientConfigurationIsTuned() {
+        final ClientConfiguration configuration = ClientBuilder.getClientConfiguration();
+
+        assertThat(configuration.getMaxConnections()).isEqualTo(ClientBuilder.MAX_CONNECTIONS);
+        assertThat(configuration.useTcpKeepAlive()).isTrue();
+        assertThat(configuration.getConnectionTTL()).isEqualTo(ClientBuilder.CONNECTION_TTL_MILLIS);
+        assertThat(configuration.getConnectionTimeout()).isEqualTo(ClientBuilder.CONNECTION_TIMEOUT_MILLIS);
+        assertThat(configuration.getSocketTimeout()).isEqualTo(ClientBuilder.SOCKET_TIMEOUT_MILLIS);
+        assertThat(configuration.getRequestTimeout()).isEqualTo(ClientBuilder.REQUEST_TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void getClientConfigurationLeavesRetriesToEc2Invoker() {
+        final ClientConfiguration configuration = ClientBuilder.getClientConfiguration();
+
+        assertThat(configuration.getRetryPolicy()).isSameAs(PredefinedRetryPolicies.NO_RETRY_POLICY);
+        assertThat(configuration.getRetryPolicy().getMaxErrorRetry()).isZero();
+    }
+}
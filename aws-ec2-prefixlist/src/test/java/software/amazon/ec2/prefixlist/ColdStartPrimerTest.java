@@ -0,0 +1,46 @@
+package software.amazon.ec2.prefixlist;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColdStartPrimerTest {
+
+    @Test
+    public void primeRunsEveryStepWithoutCallingEc2() {
+        final FakeEc2 ec2 = new FakeEc2(System::currentTimeMillis);
+
+        final Map<String, Long> timings = ColdStartPrimer.prime(region -> ec2, new Configuration());
+
+        assertThat(timings).containsOnlyKeys(ColdStartPrimer.CLIENT_STEP, ColdStartPrimer.MARSHALLERS_STEP,
+                ColdStartPrimer.SIGNER_STEP, ColdStartPrimer.UNMARSHALLERS_STEP, ColdStartPrimer.SCHEMA_STEP,
+                ColdStartPrimer.HANDLER_CODE_STEP);
+        assertThat(timings.values()).allMatch(millis -> millis >= 0);
+        assertThat(ec2.getTotalCalls()).isZero();
+    }
+
+    @Test
+    public void primingIsOnlyEnabledExplicitly() {
+        assertThat(ColdStartPrimer.isEnabled(null)).isFalse();
+        assertThat(ColdStartPrimer.isEnabled("false")).isFalse();
+        assertThat(ColdStartPrimer.isEnabled("TRUE")).isTrue();
+    }
+
+    @Test
+    public void primeSkipsFailingSteps() {
+        final AtomicInteger clientRequests = new AtomicInteger();
+
+        final Map<String, Long> timings = ColdStartPrimer.prime(region -> {
+            clientRequests.incrementAndGet();
+            throw new IllegalStateException("no region");
+        }, new Configuration());
+
+        assertThat(clientRequests).hasValue(1);
+        assertThat(timings.get(ColdStartPrimer.CLIENT_STEP)).isEqualTo(-1L);
+        assertThat(timings.get(ColdStartPrimer.UNMARSHALLERS_STEP)).isNotNegative();
+        assertThat(timings.get(ColdStartPrimer.HANDLER_CODE_STEP)).isNotNegative();
+    }
+}
@@ -1,12 +1,17 @@
 package software.amazon.ec2.prefixlist;
 
+import com.amazonaws.services.ec2.model.AddPrefixListEntry;
 import com.amazonaws.services.ec2.model.CreateManagedPrefixListRequest;
 import com.amazonaws.services.ec2.model.CreateManagedPrefixListResult;
+import com.google.common.collect.ImmutableList;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.Test;
@@ -16,20 +21,36 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static software.amazon.ec2.prefixlist.TestHelper.ADD_ENTRIES;
+import static software.amazon.ec2.prefixlist.TestHelper.CIDR_1;
+import static software.amazon.ec2.prefixlist.TestHelper.CONTEXT_MUTATION_NOT_STARTED;
 import static software.amazon.ec2.prefixlist.TestHelper.CONTEXT_MUTATION_STARTED_WITH_PREFIX_LIST_ID;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_REQUEST;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_CREATE_COMPLETE;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_CREATE_FAILED;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_CREATE_IN_PROGRESS;
+import static software.amazon.ec2.prefixlist.TestHelper.DESCRIPTION_1;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_2;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_3;
+import static software.amazon.ec2.prefixlist.TestHelper.IMMEDIATE_WAITER;
+import static software.amazon.ec2.prefixlist.TestHelper.INVOKERS;
 import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_CREATE_COMPLETE;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_CREATE_FAILED;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_HANDLER_REQUEST;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_CREATED;
+import static software.amazon.ec2.prefixlist.TestHelper.afterFirstPoll;
 import static software.amazon.ec2.prefixlist.TestHelper.convertToTagSpecifications;
+import static software.amazon.ec2.prefixlist.TestHelper.metricsLine;
+import static software.amazon.ec2.prefixlist.TestHelper.logLine;
+import static software.amazon.ec2.prefixlist.TestHelper.withStubbedTraceId;
 
 @ExtendWith(MockitoExtension.class)
 public class
@@ -45,11 +66,12 @@ CreateHandlerTest {
 
     @BeforeEach
     public void setup() {
-        handler = new CreateHandler();
+        handler = new CreateHandler(StabilizationWaiter.NO_WAIT, INVOKERS);
     }
 
     @AfterEach
     public void after() {
+        verify(logger, atLeastOnce()).log(metricsLine());
         verifyNoMoreInteractions(proxy, logger);
     }
 
@@ -69,13 +91,151 @@ CreateHandlerTest {
 
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
-        assertThat(response.getCallbackContext()).isEqualTo(CONTEXT_MUTATION_STARTED_WITH_PREFIX_LIST_ID);
+        assertThat(withStubbedTraceId(response.getCallbackContext())).isEqualTo(CONTEXT_MUTATION_STARTED_WITH_PREFIX_LIST_ID);
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(0);
         assertThat(response.getResourceModel()).isEqualTo(RESOURCE_HANDLER_REQUEST.getDesiredResourceState());
         assertThat(response.getResourceModels()).isNull();
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
-        verify(logger).log(any());
+        verify(logger).log(logLine());
+    }
+
+    @Test
+    public void handleRequestCallsBackInsteadOfWaitingOutALongRateLimitQueue() {
+        // The only mutating token is taken, the next one is a second away, and the invocation has no time to spare
+        final ActionRateLimiter rateLimiter = new ActionRateLimiter(1.0, 1, 1.0, 1, () -> 0L);
+        rateLimiter.reserve("CreateManagedPrefixList");
+        handler = new CreateHandler(StabilizationWaiter.NO_WAIT, (proxy, metrics) ->
+                new Ec2Invoker(proxy, metrics, p -> Ec2Invoker.RETRY_TIME_RESERVE_MILLIS, rateLimiter, millis -> { }));
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST, null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(withStubbedTraceId(response.getCallbackContext())).isEqualTo(CONTEXT_MUTATION_NOT_STARTED);
+        assertThat(response.getCallbackDelaySeconds()).isEqualTo(1);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_HANDLER_REQUEST.getDesiredResourceState());
+    }
+
+    @Test
+    public void handleRequestWithAggregateEntriesCreatesMergedEntries() {
+        final ResourceModel model = ResourceModel.builder()
+                .maxEntries(RESOURCE_MODEL.getMaxEntries())
+                .addressFamily(RESOURCE_MODEL.getAddressFamily())
+                .prefixListName(RESOURCE_MODEL.getPrefixListName())
+                .entries(ImmutableList.of(ENTRY_3, ENTRY_1, ENTRY_2))
+                .tags(RESOURCE_MODEL.getTags())
+                .aggregateEntries(true)
+                .build();
+        final CreateManagedPrefixListRequest createRequest = new CreateManagedPrefixListRequest()
+                .withMaxEntries(RESOURCE_MODEL.getMaxEntries())
+                .withPrefixListName(RESOURCE_MODEL.getPrefixListName())
+                .withAddressFamily(RESOURCE_MODEL.getAddressFamily())
+                .withEntries(
+                        new AddPrefixListEntry().withCidr(CIDR_1).withDescription(DESCRIPTION_1),
+                        new AddPrefixListEntry().withCidr("1.1.1.2/31").withDescription(DESCRIPTION_1))
+                .withTagSpecifications(convertToTagSpecifications(RESOURCE_MODEL.getTags()));
+
+        final CreateManagedPrefixListResult result = new CreateManagedPrefixListResult().withPrefixList(PREFIX_LIST);
+        when(proxy.injectCredentialsAndInvoke(eq(createRequest), any())).thenReturn(result);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy,
+                ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(model).build(), null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        verify(proxy).injectCredentialsAndInvoke(eq(createRequest), any());
+        verify(logger).log(logLine());
+    }
+
+    @Test
+    public void handleRequestRejectsInvalidEntriesBeforeAnyCall() {
+        final ResourceModel model = ResourceModel.builder()
+                .maxEntries(RESOURCE_MODEL.getMaxEntries())
+                .addressFamily(RESOURCE_MODEL.getAddressFamily())
+                .prefixListName(RESOURCE_MODEL.getPrefixListName())
+                .entries(ImmutableList.of(ENTRY_1, Entry.builder().cidr("2001:db8::/32").build()))
+                .build();
+
+        final CfnInvalidRequestException exception = Assertions.assertThrows(CfnInvalidRequestException.class,
+                () -> handler.handleRequest(proxy, ResourceHandlerRequest.<ResourceModel>builder().desiredResourceState(model).build(), null, logger));
+
+        assertThat(exception.getMessage()).contains("2001:db8::/32");
+    }
+
+    @Test
+    public void handleRequestWithCreateResultAlreadyComplete() {
+        handler = new CreateHandler(IMMEDIATE_WAITER, INVOKERS);
+        final CreateManagedPrefixListRequest createRequest = new CreateManagedPrefixListRequest()
+                .withMaxEntries(RESOURCE_MODEL.getMaxEntries())
+                .withPrefixListName(RESOURCE_MODEL.getPrefixListName())
+                .withAddressFamily(RESOURCE_MODEL.getAddressFamily())
+                .withEntries(ADD_ENTRIES)
+                .withTagSpecifications(convertToTagSpecifications(RESOURCE_MODEL.getTags()));
+
+        final CreateManagedPrefixListResult result = new CreateManagedPrefixListResult().withPrefixList(PREFIX_LIST_CREATE_COMPLETE);
+        when(proxy.injectCredentialsAndInvoke(eq(createRequest), any())).thenReturn(result);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST, null, logger);
+
+        // No describe is issued
+        verify(proxy).injectCredentialsAndInvoke(eq(createRequest), any());
+        verify(logger).log(logLine());
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
+        assertThat(response.getCallbackContext()).isNull();
+        assertThat(response.getMessage()).isNull();
+        assertThat(response.getErrorCode()).isNull();
+    }
+
+    @Test
+    public void handleRequestWithCreateResultAlreadyFailed() {
+        handler = new CreateHandler(IMMEDIATE_WAITER, INVOKERS);
+        final CreateManagedPrefixListRequest createRequest = new CreateManagedPrefixListRequest()
+                .withMaxEntries(RESOURCE_MODEL.getMaxEntries())
+                .withPrefixListName(RESOURCE_MODEL.getPrefixListName())
+                .withAddressFamily(RESOURCE_MODEL.getAddressFamily())
+                .withEntries(ADD_ENTRIES)
+                .withTagSpecifications(convertToTagSpecifications(RESOURCE_MODEL.getTags()));
+
+        final CreateManagedPrefixListResult result = new CreateManagedPrefixListResult().withPrefixList(PREFIX_LIST_CREATE_FAILED);
+        when(proxy.injectCredentialsAndInvoke(eq(createRequest), any())).thenReturn(result);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST, null, logger);
+
+        verify(proxy).injectCredentialsAndInvoke(eq(createRequest), any());
+        verify(logger).log(logLine());
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(withStubbedTraceId(response.getCallbackContext())).isEqualTo(CONTEXT_MUTATION_STARTED_WITH_PREFIX_LIST_ID);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_HANDLER_REQUEST.getDesiredResourceState());
+    }
+
+    @Test
+    public void handleRequestWithCreateSettlingWithinInvocation() {
+        handler = new CreateHandler(IMMEDIATE_WAITER, INVOKERS);
+        final CreateManagedPrefixListRequest createRequest = new CreateManagedPrefixListRequest()
+                .withMaxEntries(RESOURCE_MODEL.getMaxEntries())
+                .withPrefixListName(RESOURCE_MODEL.getPrefixListName())
+                .withAddressFamily(RESOURCE_MODEL.getAddressFamily())
+                .withEntries(ADD_ENTRIES)
+                .withTagSpecifications(convertToTagSpecifications(RESOURCE_MODEL.getTags()));
+
+        final CreateManagedPrefixListResult result = new CreateManagedPrefixListResult().withPrefixList(PREFIX_LIST);
+        when(proxy.injectCredentialsAndInvoke(eq(createRequest), any())).thenReturn(result);
+        when(proxy.injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any()))
+                .thenReturn(DESCRIBE_RESULT_CREATE_IN_PROGRESS, DESCRIBE_RESULT_CREATE_COMPLETE);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST, null, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
+        assertThat(response.getCallbackContext()).isNull();
+        assertThat(response.getMessage()).isNull();
+        assertThat(response.getErrorCode()).isNull();
+        verify(proxy).injectCredentialsAndInvoke(eq(createRequest), any());
+        verify(proxy, times(2)).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(logger).log(logLine());
     }
 
     @Test
@@ -102,7 +262,7 @@ CreateHandlerTest {
 
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
-        assertThat(response.getCallbackContext()).isEqualTo(CONTEXT_MUTATION_STARTED_WITH_PREFIX_LIST_ID);
+        assertThat(response.getCallbackContext()).isEqualTo(afterFirstPoll(CONTEXT_MUTATION_STARTED_WITH_PREFIX_LIST_ID));
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(TestHelper.POLLING_DELAY_SECONDS);
         assertThat(response.getResourceModel()).isEqualTo(RESOURCE_HANDLER_REQUEST.getDesiredResourceState());
         assertThat(response.getResourceModels()).isNull();
@@ -16,6 +16,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -23,12 +25,19 @@ import static software.amazon.ec2.prefixlist.TestHelper.CONTEXT_MUTATION_STARTED
 import static software.amazon.ec2.prefixlist.TestHelper.DELETE_REQUEST;
 import static software.amazon.ec2.prefixlist.TestHelper.DELETE_RESULT;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_REQUEST;
+import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_DELETE_COMPLETE;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_DELETE_FAILED;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_DELETE_IN_PROGRESS;
+import static software.amazon.ec2.prefixlist.TestHelper.IMMEDIATE_WAITER;
 import static software.amazon.ec2.prefixlist.TestHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND;
 import static software.amazon.ec2.prefixlist.TestHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION;
+import static software.amazon.ec2.prefixlist.TestHelper.INVOKERS;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_CREATED;
+import static software.amazon.ec2.prefixlist.TestHelper.afterFirstPoll;
+import static software.amazon.ec2.prefixlist.TestHelper.metricsLine;
+import static software.amazon.ec2.prefixlist.TestHelper.logLine;
+import static software.amazon.ec2.prefixlist.TestHelper.withStubbedTraceId;
 
 @ExtendWith(MockitoExtension.class)
 public class DeleteHandlerTest {
@@ -43,10 +52,11 @@ public class DeleteHandlerTest {
 
     @BeforeEach
     public void setup() {
-        handler = new DeleteHandler();
+        handler = new DeleteHandler(StabilizationWaiter.NO_WAIT, INVOKERS);
     }
     @AfterEach
     public void after() {
+        verify(logger, atLeastOnce()).log(metricsLine());
         verifyNoMoreInteractions(proxy, logger);
     }
 
@@ -56,10 +66,10 @@ public class DeleteHandlerTest {
 
         final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
 
-        verify(logger).log(any());
+        verify(logger).log(logLine());
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
-        assertThat(response.getCallbackContext()).isEqualTo(CONTEXT_MUTATION_STARTED);
+        assertThat(withStubbedTraceId(response.getCallbackContext())).isEqualTo(CONTEXT_MUTATION_STARTED);
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(0);
         assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
         assertThat(response.getResourceModels()).isNull();
@@ -67,6 +77,26 @@ public class DeleteHandlerTest {
         assertThat(response.getErrorCode()).isNull();
     }
 
+    @Test
+    public void handleRequestWithDeleteSettlingWithinInvocation() {
+        handler = new DeleteHandler(IMMEDIATE_WAITER, INVOKERS);
+        INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION.setErrorCode(INVALID_PREFIX_LIST_ID_NOT_FOUND);
+        when(proxy.injectCredentialsAndInvoke(eq(DELETE_REQUEST), any())).thenReturn(DELETE_RESULT);
+        when(proxy.injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any()))
+                .thenReturn(DESCRIBE_RESULT_DELETE_IN_PROGRESS)
+                .thenThrow(INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isNull();
+        assertThat(response.getCallbackContext()).isNull();
+        verify(proxy).injectCredentialsAndInvoke(eq(DELETE_REQUEST), any());
+        verify(proxy, times(2)).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(logger).log(logLine());
+    }
+
     @Test
     public void handleRequestWithMutationNotStartedAndPrefixListNotFound() {
         INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION.setErrorCode(INVALID_PREFIX_LIST_ID_NOT_FOUND);
@@ -101,7 +131,7 @@ public class DeleteHandlerTest {
 
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
-        assertThat(response.getCallbackContext()).isEqualTo(CONTEXT_MUTATION_STARTED);
+        assertThat(response.getCallbackContext()).isEqualTo(afterFirstPoll(CONTEXT_MUTATION_STARTED));
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(TestHelper.POLLING_DELAY_SECONDS);
         assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
         assertThat(response.getResourceModels()).isNull();
@@ -124,4 +154,20 @@ public class DeleteHandlerTest {
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
     }
+
+    @Test
+    public void handleRequestWithMutationStartedAndDeleteCompleteState() {
+        // delete-complete ends the delete without waiting for describe to report NotFound
+        when(proxy.injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any())).thenReturn(DESCRIBE_RESULT_DELETE_COMPLETE);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_MUTATION_STARTED, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getCallbackContext()).isNull();
+        assertThat(response.getResourceModel()).isNull();
+        assertThat(response.getMessage()).isNull();
+        assertThat(response.getErrorCode()).isNull();
+    }
 }
@@ -0,0 +1,170 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.AbstractAmazonEC2;
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.cloudformation.exceptions.CfnNotFoundException;
+import software.amazon.cloudformation.exceptions.CfnThrottlingException;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_REQUEST;
+import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT;
+import static software.amazon.ec2.prefixlist.TestHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ID;
+
+@ExtendWith(MockitoExtension.class)
+public class Ec2InvokerTest {
+
+    @Mock
+    private AmazonWebServicesClientProxy proxy;
+
+    private final List<Long> sleeps = new ArrayList<>();
+    private final HandlerMetrics metrics = new HandlerMetrics("Ec2InvokerTest");
+
+    @BeforeEach
+    public void setup() {
+        // The proxy simply runs the client call, as the real proxy does once credentials are injected
+        lenient().doAnswer(invocation -> {
+            final DescribeManagedPrefixListsRequest request = invocation.getArgument(0);
+            final Function<DescribeManagedPrefixListsRequest, DescribeManagedPrefixListsResult> function = invocation.getArgument(1);
+            return function.apply(request);
+        }).when(proxy).injectCredentialsAndInvoke(any(DescribeManagedPrefixListsRequest.class), any());
+    }
+
+    @Test
+    public void invokeRetriesThrottledCallsWithBackoff() {
+        final ThrottlingEc2Client client = new ThrottlingEc2Client(2, "RequestLimitExceeded");
+
+        final DescribeManagedPrefixListsResult result = newInvoker(60_000L).invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists);
+
+        assertThat(result).isEqualTo(DESCRIBE_RESULT);
+        assertThat(client.calls).isEqualTo(3);
+        assertThat(sleeps.size()).isEqualTo(2);
+        assertThat(sleeps.get(0)).isBetween(ModuleHelper.THROTTLING_BASE_DELAY_MILLIS / 2, ModuleHelper.THROTTLING_BASE_DELAY_MILLIS);
+        assertThat(sleeps.get(1)).isBetween(ModuleHelper.THROTTLING_BASE_DELAY_MILLIS, 2 * ModuleHelper.THROTTLING_BASE_DELAY_MILLIS);
+        assertThat(metrics.getCount("DescribeManagedPrefixListsCalls")).isEqualTo(3L);
+        assertThat(metrics.getCount(HandlerMetrics.THROTTLES)).isEqualTo(2L);
+    }
+
+    @Test
+    public void invokeGivesUpAfterMaxAttempts() {
+        final ThrottlingEc2Client client = new ThrottlingEc2Client(Integer.MAX_VALUE, "Throttling");
+
+        Assertions.assertThrows(CfnThrottlingException.class, () ->
+                newInvoker(60_000L).invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists));
+        assertThat(client.calls).isEqualTo(ModuleHelper.THROTTLING_MAX_ATTEMPTS);
+        assertThat(sleeps.size()).isEqualTo(ModuleHelper.THROTTLING_MAX_ATTEMPTS - 1);
+    }
+
+    @Test
+    public void invokeStopsRetryingWhenRemainingTimeIsShort() {
+        final ThrottlingEc2Client client = new ThrottlingEc2Client(1, "RequestLimitExceeded");
+
+        Assertions.assertThrows(CfnThrottlingException.class, () ->
+                newInvoker(Ec2Invoker.RETRY_TIME_RESERVE_MILLIS).invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists));
+        assertThat(client.calls).isEqualTo(1);
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    public void invokeDoesNotRetryOtherErrors() {
+        final ThrottlingEc2Client client = new ThrottlingEc2Client(1, INVALID_PREFIX_LIST_ID_NOT_FOUND);
+
+        Assertions.assertThrows(CfnNotFoundException.class, () ->
+                newInvoker(60_000L).invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists, PREFIX_LIST_ID));
+        assertThat(client.calls).isEqualTo(1);
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    public void invokeWaitsForItsRateLimitToken() {
+        final ThrottlingEc2Client client = new ThrottlingEc2Client(0, null);
+        // One token, refilled once a second, on a clock that does not move
+        final ActionRateLimiter rateLimiter = new ActionRateLimiter(1.0, 1, 1.0, 1, () -> 0L);
+        final Ec2Invoker invoker = new Ec2Invoker(proxy, metrics, p -> 60_000L, rateLimiter, sleeps::add);
+
+        invoker.invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists);
+        invoker.invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists);
+
+        assertThat(client.calls).isEqualTo(2);
+        assertThat(sleeps.size()).isEqualTo(1);
+        assertThat(sleeps.get(0)).isEqualTo(1_000L);
+    }
+
+    @Test
+    public void invokeHandsBackARateLimitWaitTheRemainingTimeCannotAbsorb() {
+        final ThrottlingEc2Client client = new ThrottlingEc2Client(0, null);
+        final ActionRateLimiter rateLimiter = new ActionRateLimiter(1.0, 1, 1.0, 1, () -> 0L);
+        final Ec2Invoker invoker = new Ec2Invoker(proxy, metrics, p -> Ec2Invoker.RETRY_TIME_RESERVE_MILLIS, rateLimiter, sleeps::add);
+
+        invoker.invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists);
+        final Ec2Invoker.RateLimitedException exception = Assertions.assertThrows(Ec2Invoker.RateLimitedException.class, () ->
+                invoker.invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists));
+
+        assertThat(exception).isInstanceOf(CfnThrottlingException.class);
+        assertThat(exception.getWaitMillis()).isEqualTo(1_000L);
+        assertThat(client.calls).isEqualTo(1);
+        assertThat(sleeps).isEmpty();
+        // The token was handed back, so the next caller waits behind the first call only
+        assertThat(rateLimiter.reserve("DescribeManagedPrefixLists")).isEqualTo(1_000L);
+    }
+
+    @Test
+    public void invokeTracesEveryAttempt() {
+        final ThrottlingEc2Client client = new ThrottlingEc2Client(1, "RequestLimitExceeded");
+
+        newInvoker(60_000L).invoke(DESCRIBE_REQUEST, client::describeManagedPrefixLists, PREFIX_LIST_ID, 3);
+
+        final List<Tracer.Span> spans = metrics.getTracer().getSpans();
+        assertThat(spans).extracting(Tracer.Span::getAttempt).containsExactly(1, 2);
+        assertThat(spans).extracting(Tracer.Span::getOutcome).containsExactly("RequestLimitExceeded", Tracer.SUCCESS_OUTCOME);
+        assertThat(spans).extracting(Tracer.Span::getPage).containsExactly(3, 3);
+        assertThat(spans).extracting(Tracer.Span::getPrefixListId).containsOnly(PREFIX_LIST_ID);
+        assertThat(spans).extracting(Tracer.Span::getAction).containsOnly("DescribeManagedPrefixLists");
+    }
+
+    @Test
+    public void getActionNameStripsRequestSuffix() {
+        assertThat(Ec2Invoker.getActionName(DESCRIBE_REQUEST)).isEqualTo("DescribeManagedPrefixLists");
+    }
+
+    private Ec2Invoker newInvoker(final long remainingTimeMillis) {
+        return new Ec2Invoker(proxy, metrics, p -> remainingTimeMillis, ActionRateLimiter.UNLIMITED, sleeps::add);
+    }
+
+    // Fails the first "failures" calls with the given error code, then describes the test prefix list
+    private static class ThrottlingEc2Client extends AbstractAmazonEC2 {
+        private final int failures;
+        private final String errorCode;
+        private int calls;
+
+        ThrottlingEc2Client(final int failures, final String errorCode) {
+            this.failures = failures;
+            this.errorCode = errorCode;
+        }
+
+        @Override
+        public DescribeManagedPrefixListsResult describeManagedPrefixLists(final DescribeManagedPrefixListsRequest request) {
+            if (calls++ < failures) {
+                final AmazonEC2Exception exception = new AmazonEC2Exception("Injected failure");
+                exception.setErrorCode(errorCode);
+                throw exception;
+            }
+            return DESCRIBE_RESULT;
+        }
+    }
+}
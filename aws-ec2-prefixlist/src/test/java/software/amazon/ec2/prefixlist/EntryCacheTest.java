@@ -0,0 +1,75 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_2;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_3;
+import static software.amazon.ec2.prefixlist.TestHelper.MODIFY_COMPLETE;
+import static software.amazon.ec2.prefixlist.TestHelper.MODIFY_IN_PROGRESS;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ID;
+import static software.amazon.ec2.prefixlist.TestHelper.VERSION_1;
+import static software.amazon.ec2.prefixlist.TestHelper.VERSION_2;
+
+public class EntryCacheTest {
+
+    @Test
+    public void getReturnsEntriesOfTheCachedVersionOnly() {
+        final EntryCache cache = new EntryCache(10);
+        cache.put(PREFIX_LIST_ID, VERSION_1, ImmutableList.of(ENTRY_1, ENTRY_2));
+
+        assertThat(cache.get(PREFIX_LIST_ID, VERSION_1)).containsExactly(ENTRY_1, ENTRY_2);
+        assertThat(cache.get(PREFIX_LIST_ID, VERSION_2)).isNull();
+        assertThat(cache.get("pl-other", VERSION_1)).isNull();
+        assertThat(cache.getHits()).isEqualTo(1L);
+        assertThat(cache.getMisses()).isEqualTo(2L);
+    }
+
+    @Test
+    public void getReturnsIndependentCopies() {
+        final EntryCache cache = new EntryCache(10);
+        cache.put(PREFIX_LIST_ID, VERSION_1, ImmutableList.of(ENTRY_1));
+
+        final List<Entry> first = cache.get(PREFIX_LIST_ID, VERSION_1);
+        first.get(0).setDescription("changed");
+
+        assertThat(cache.get(PREFIX_LIST_ID, VERSION_1)).containsExactly(ENTRY_1);
+    }
+
+    @Test
+    public void putEvictsLeastRecentlyUsedVersionsOverTheEntryBound() {
+        final EntryCache cache = new EntryCache(4);
+        cache.put("pl-1", VERSION_1, ImmutableList.of(ENTRY_1, ENTRY_2));
+        cache.put("pl-2", VERSION_1, ImmutableList.of(ENTRY_1, ENTRY_2));
+        // Touch pl-1 so that pl-2 is the least recently used
+        cache.get("pl-1", VERSION_1);
+        cache.put("pl-3", VERSION_1, ImmutableList.of(ENTRY_3));
+
+        assertThat(cache.get("pl-1", VERSION_1)).isNotNull();
+        assertThat(cache.get("pl-2", VERSION_1)).isNull();
+        assertThat(cache.get("pl-3", VERSION_1)).isNotNull();
+        assertThat(cache.getEvictions()).isEqualTo(1L);
+        assertThat(cache.getHeldEntries()).isEqualTo(3);
+    }
+
+    @Test
+    public void putSkipsEntrySetsLargerThanTheBound() {
+        final EntryCache cache = new EntryCache(2);
+        cache.put(PREFIX_LIST_ID, VERSION_1, ImmutableList.of(ENTRY_1, ENTRY_2, ENTRY_3));
+
+        assertThat(cache.get(PREFIX_LIST_ID, VERSION_1)).isNull();
+        assertThat(cache.getHeldEntries()).isEqualTo(0);
+    }
+
+    @Test
+    public void getCacheableVersionIgnoresListsStillChanging() {
+        assertThat(EntryCache.getCacheableVersion(PREFIX_LIST.clone().withState(MODIFY_COMPLETE))).isEqualTo(VERSION_1);
+        assertThat(EntryCache.getCacheableVersion(PREFIX_LIST)).isEqualTo(VERSION_1);
+        assertThat(EntryCache.getCacheableVersion(PREFIX_LIST.clone().withState(MODIFY_IN_PROGRESS))).isNull();
+    }
+}
@@ -0,0 +1,105 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1_MODIFIED;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_2;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_3;
+
+public class EntryDiffTest {
+
+    @Test
+    public void computeFindsAddedRemovedAndDescriptionChanges() {
+        final EntryDiff diff = EntryDiff.compute(ImmutableList.of(ENTRY_3, ENTRY_1), ImmutableList.of(ENTRY_2, ENTRY_1_MODIFIED));
+
+        assertThat(diff.getAddEntries()).containsExactly(ENTRY_1_MODIFIED, ENTRY_2);
+        assertThat(diff.getRemoveEntries()).containsExactly(ENTRY_3);
+        assertThat(diff.getDescriptionChanges()).containsExactly(ENTRY_1_MODIFIED);
+        assertThat(diff.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void computeIsEmptyForSameEntriesInDifferentOrder() {
+        final EntryDiff diff = EntryDiff.compute(ImmutableList.of(ENTRY_1, ENTRY_2, ENTRY_3), ImmutableList.of(ENTRY_3, ENTRY_1, ENTRY_2));
+
+        assertThat(diff.isEmpty()).isTrue();
+        assertThat(diff.getDescriptionChanges()).isEmpty();
+    }
+
+    @Test
+    public void computeComparesCidrsNumerically() {
+        final List<Entry> current = ImmutableList.of(
+                entry("10.0.0.0/24", null),
+                entry("2001:db8:0:0:0:0:0:0/32", "v6"));
+        final List<Entry> desired = ImmutableList.of(
+                entry("010.000.0.0/24", ""),
+                entry("2001:DB8::/32", "v6"));
+
+        assertThat(EntryDiff.compute(current, desired).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void computeTreatsPrefixLengthAndFamilyAsPartOfTheKey() {
+        final List<Entry> current = ImmutableList.of(entry("10.0.0.0/24", null), entry("::a00:0/120", null));
+        final List<Entry> desired = ImmutableList.of(entry("10.0.0.0/25", null), entry("::a00:0/120", null));
+
+        final EntryDiff diff = EntryDiff.compute(current, desired);
+
+        assertThat(diff.getAddEntries()).extracting(Entry::getCidr).containsExactly("10.0.0.0/25");
+        assertThat(diff.getRemoveEntries()).extracting(Entry::getCidr).containsExactly("10.0.0.0/24");
+    }
+
+    @Test
+    public void computeHandlesEmbeddedIpv4AndCompressionPositions() {
+        final List<Entry> current = ImmutableList.of(
+                entry("::ffff:192.0.2.1/128", null),
+                entry("fe80::/10", null),
+                entry("::/0", null),
+                entry("1:2:3:4:5:6::/112", null));
+        final List<Entry> desired = ImmutableList.of(
+                entry("0:0:0:0:0:ffff:c000:201/128", null),
+                entry("fe80:0::0/10", null),
+                entry("0::0/0", null),
+                entry("1:2:3:4:5:6:0:0/112", null));
+
+        assertThat(EntryDiff.compute(current, desired).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void computeCollapsesDuplicateDesiredCidrs() {
+        final EntryDiff diff = EntryDiff.compute(ImmutableList.of(), ImmutableList.of(ENTRY_2, ENTRY_2));
+
+        assertThat(diff.getAddEntries()).containsExactly(ENTRY_2);
+    }
+
+    @Test
+    public void computeWithNullDesiredEntriesRemovesEverything() {
+        final EntryDiff diff = EntryDiff.compute(ImmutableList.of(ENTRY_1, ENTRY_2), null);
+
+        assertThat(diff.getAddEntries()).isEmpty();
+        assertThat(diff.getRemoveEntries()).containsExactly(ENTRY_1, ENTRY_2);
+    }
+
+    @Test
+    public void computeRejectsInvalidCidrs() {
+        for (final String cidr : ImmutableList.of("10.0.0.0", "10.0.0/24", "10.0.0.256/24", "10.0.0.0/33",
+                "1::2::3/64", "1:2:3:4:5:6:7:8:9/64", "1:2:3:4:5:6:7::8/64", "g::/64", "::/129", "/24")) {
+            Assertions.assertThrows(CfnInvalidRequestException.class, () ->
+                    EntryDiff.compute(ImmutableList.of(), ImmutableList.of(entry(cidr, null))), cidr);
+        }
+    }
+
+    private static Entry entry(final String cidr, final String description) {
+        return Entry.builder()
+                .cidr(cidr)
+                .description(description)
+                .build();
+    }
+}
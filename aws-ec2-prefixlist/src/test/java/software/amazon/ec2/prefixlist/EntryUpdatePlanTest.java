@@ -0,0 +1,118 @@
+package software.amazon.ec2.prefixlist;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.ec2.prefixlist.TestHelper.CIDR_3;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1_MODIFIED;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_2;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_3;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ID;
+import static software.amazon.ec2.prefixlist.TestHelper.VERSION_1;
+import static software.amazon.ec2.prefixlist.TestHelper.VERSION_2;
+
+public class EntryUpdatePlanTest {
+
+    // The serialized context must stay this small however many entries the update touches
+    private static final int MAX_CONTEXT_BYTES = 512;
+
+    @Test
+    public void computeIsIndependentOfInputOrder() {
+        final EntryUpdatePlan plan = EntryUpdatePlan.compute(VERSION_1,
+                ImmutableList.of(ENTRY_1, ENTRY_3), ImmutableList.of(ENTRY_1_MODIFIED, ENTRY_2));
+        final EntryUpdatePlan reordered = EntryUpdatePlan.compute(VERSION_1,
+                ImmutableList.of(ENTRY_3, ENTRY_1), ImmutableList.of(ENTRY_2, ENTRY_1_MODIFIED));
+
+        assertThat(plan.getAddEntries()).containsExactly(ENTRY_1_MODIFIED, ENTRY_2);
+        assertThat(plan.getRemoveCidrs()).containsExactly(CIDR_3);
+        assertThat(reordered.getAddEntries()).isEqualTo(plan.getAddEntries());
+        assertThat(reordered.getRemoveCidrs()).isEqualTo(plan.getRemoveCidrs());
+        assertThat(reordered.getHash()).isEqualTo(plan.getHash());
+    }
+
+    @Test
+    public void hashChangesWithBaseVersionAndContent() {
+        final List<Entry> base = ImmutableList.of(ENTRY_1);
+        final String hash = EntryUpdatePlan.compute(VERSION_1, base, ImmutableList.of(ENTRY_2)).getHash();
+
+        assertThat(EntryUpdatePlan.compute(VERSION_2, base, ImmutableList.of(ENTRY_2)).getHash()).isNotEqualTo(hash);
+        assertThat(EntryUpdatePlan.compute(VERSION_1, base, ImmutableList.of(ENTRY_3)).getHash()).isNotEqualTo(hash);
+        assertThat(EntryUpdatePlan.compute(VERSION_1, base, ImmutableList.of(ENTRY_2, ENTRY_1_MODIFIED)).getHash())
+                .isNotEqualTo(hash);
+    }
+
+    @Test
+    public void chunksCoverThePlanInOrder() {
+        final EntryUpdatePlan plan = EntryUpdatePlan.compute(VERSION_1, entries("2001:db8:0:%x::/64", 150), entries("2001:db8:1:%x::/64", 250));
+
+        assertThat(plan.getChunkCount()).isEqualTo(3);
+        final List<Entry> adds = new ArrayList<>();
+        final List<String> removes = new ArrayList<>();
+        for (int i = 0; i < plan.getChunkCount(); i++) {
+            assertThat(plan.getChunkEntryCount(i)).isLessThanOrEqualTo(2 * ModuleHelper.MAX_ENTRIES_PER_MODIFY);
+            adds.addAll(plan.getAddChunk(i));
+            removes.addAll(plan.getRemoveChunk(i));
+        }
+        assertThat(adds).isEqualTo(plan.getAddEntries());
+        assertThat(removes).isEqualTo(plan.getRemoveCidrs());
+        assertThat(plan.getRemoveChunk(2)).isEmpty();
+    }
+
+    @Test
+    public void contextRoundTripsWithinSizeBoundAndReDerivesThePlan() throws Exception {
+        final List<Entry> base = entries("2001:db8:0:%x::/64", 1000);
+        final List<Entry> desired = entries("2001:db8:ffff:%x::/64", 1000);
+        final EntryUpdatePlan plan = EntryUpdatePlan.compute(VERSION_1, base, desired);
+        final CallbackContext context = CallbackContext.builder()
+                .mutationStarted(true)
+                .tagsUpdated(true)
+                .prefixListId(PREFIX_LIST_ID)
+                .chunkIndex(9)
+                .expectedVersion(VERSION_1 + 10)
+                .build();
+        plan.recordIn(context);
+
+        final ObjectMapper mapper = new ObjectMapper();
+        final String json = mapper.writeValueAsString(context);
+        final CallbackContext restored = mapper.readValue(json, CallbackContext.class);
+
+        assertThat(json.length()).isLessThanOrEqualTo(MAX_CONTEXT_BYTES);
+        assertThat(restored).isEqualTo(context);
+        assertThat(restored.getChunkCount()).isEqualTo(10);
+
+        // A later callback reads the base entries back in a different order and arrives at the same plan
+        final List<Entry> reread = new ArrayList<>(base);
+        Collections.reverse(reread);
+        final EntryUpdatePlan rederived = EntryUpdatePlan.compute(restored.getPlanBaseVersion(), reread, desired);
+        assertThat(rederived.matches(restored)).isTrue();
+        assertThat(rederived.getAddChunk(9)).isEqualTo(plan.getAddChunk(9));
+        assertThat(rederived.getRemoveChunk(9)).isEqualTo(plan.getRemoveChunk(9));
+    }
+
+    @Test
+    public void matchesRejectsOtherPlans() {
+        final EntryUpdatePlan plan = EntryUpdatePlan.compute(VERSION_1, ImmutableList.of(ENTRY_1), ImmutableList.of(ENTRY_2));
+        final CallbackContext context = CallbackContext.builder().build();
+
+        assertThat(plan.matches(context)).isFalse();
+        plan.recordIn(context);
+        assertThat(plan.matches(context)).isTrue();
+        context.setPlanBaseVersion(VERSION_2);
+        assertThat(plan.matches(context)).isFalse();
+    }
+
+    private static List<Entry> entries(final String cidrFormat, final int count) {
+        final List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(Entry.builder().cidr(String.format(cidrFormat, i)).description("entry " + i).build());
+        }
+        return entries;
+    }
+}
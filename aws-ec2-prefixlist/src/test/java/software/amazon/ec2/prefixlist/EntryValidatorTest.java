@@ -0,0 +1,95 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.ec2.prefixlist.TestHelper.ADDRESS_FAMILY_4;
+import static software.amazon.ec2.prefixlist.TestHelper.ADDRESS_FAMILY_6;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRIES;
+import static software.amazon.ec2.prefixlist.TestHelper.MAX_ENTRIES_5;
+import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL;
+
+public class EntryValidatorTest {
+
+    @Test
+    public void validateAcceptsCanonicalDistinctEntries() {
+        EntryValidator.validate(RESOURCE_MODEL);
+        EntryValidator.validate(ADDRESS_FAMILY_4, MAX_ENTRIES_5, null);
+        EntryValidator.validate(ADDRESS_FAMILY_6, 2, ImmutableList.of(entry("2001:db8::/32"), entry("::1/128")));
+    }
+
+    @Test
+    public void validateRejectsMoreEntriesThanMaxEntries() {
+        assertRejected(ADDRESS_FAMILY_4, 1, ENTRIES, "2 entries exceed MaxEntries of 1.");
+    }
+
+    @Test
+    public void validateRejectsInvalidCidrs() {
+        assertRejected(ADDRESS_FAMILY_4, MAX_ENTRIES_5, ImmutableList.of(entry("10.0.0.0/24"), entry("10.0.0.256/32")),
+                "Invalid CIDR 10.0.0.256/32.");
+        assertRejected(ADDRESS_FAMILY_4, MAX_ENTRIES_5, ImmutableList.of(entry(null)), "Invalid CIDR null.");
+    }
+
+    @Test
+    public void validateRejectsCidrsOfTheOtherFamily() {
+        assertRejected(ADDRESS_FAMILY_4, MAX_ENTRIES_5, ImmutableList.of(entry("2001:db8::/32")),
+                "CIDR 2001:db8::/32 does not match AddressFamily IPv4.");
+        assertRejected(ADDRESS_FAMILY_6, MAX_ENTRIES_5, ImmutableList.of(entry("10.0.0.0/8")),
+                "CIDR 10.0.0.0/8 does not match AddressFamily IPv6.");
+    }
+
+    @Test
+    public void validateRejectsHostBits() {
+        assertRejected(ADDRESS_FAMILY_4, MAX_ENTRIES_5, ImmutableList.of(entry("10.1.2.3/16")),
+                "CIDR 10.1.2.3/16 has host bits set; use 10.1.0.0/16.");
+        assertRejected(ADDRESS_FAMILY_6, MAX_ENTRIES_5, ImmutableList.of(entry("2001:db8::1/64")),
+                "CIDR 2001:db8::1/64 has host bits set; use 2001:db8::/64.");
+    }
+
+    @Test
+    public void validateRejectsNonCanonicalCidrs() {
+        assertRejected(ADDRESS_FAMILY_4, MAX_ENTRIES_5, ImmutableList.of(entry("010.0.0.0/24")),
+                "CIDR 010.0.0.0/24 is not in canonical form; use 10.0.0.0/24.");
+        assertRejected(ADDRESS_FAMILY_4, MAX_ENTRIES_5, ImmutableList.of(entry("10.0.0.0/08")),
+                "CIDR 10.0.0.0/08 is not in canonical form; use 10.0.0.0/8.");
+        assertRejected(ADDRESS_FAMILY_6, MAX_ENTRIES_5, ImmutableList.of(entry("2001:DB8:0:0:0:0:0:0/32")),
+                "CIDR 2001:DB8:0:0:0:0:0:0/32 is not in canonical form; use 2001:db8::/32.");
+    }
+
+    @Test
+    public void validateRejectsDuplicates() {
+        assertRejected(ADDRESS_FAMILY_4, MAX_ENTRIES_5,
+                ImmutableList.of(entry("10.0.0.0/24"), entry("10.0.1.0/24"), entry("10.0.0.0/24")),
+                "CIDR 10.0.0.0/24 duplicates 10.0.0.0/24.");
+        assertRejected(ADDRESS_FAMILY_6, MAX_ENTRIES_5,
+                ImmutableList.of(entry("2001:db8::/32"), entry("2001:db8::/32")),
+                "CIDR 2001:db8::/32 duplicates 2001:db8::/32.");
+    }
+
+    @Test
+    public void validateChecksAggregatedEntriesWhenAggregating() {
+        final ResourceModel model = ResourceModel.builder()
+                .addressFamily(ADDRESS_FAMILY_4)
+                .maxEntries(1)
+                .entries(ImmutableList.of(entry("10.0.0.0/25"), entry("10.0.0.128/25"), entry("10.0.0.1/32")))
+                .aggregateEntries(true)
+                .build();
+
+        EntryValidator.validate(model);
+    }
+
+    private static void assertRejected(final String addressFamily, final int maxEntries, final List<Entry> entries, final String message) {
+        final CfnInvalidRequestException exception = Assertions.assertThrows(CfnInvalidRequestException.class,
+                () -> EntryValidator.validate(addressFamily, maxEntries, entries));
+        assertThat(exception.getMessage()).contains(message);
+    }
+
+    private static Entry entry(final String cidr) {
+        return Entry.builder().cidr(cidr).build();
+    }
+}
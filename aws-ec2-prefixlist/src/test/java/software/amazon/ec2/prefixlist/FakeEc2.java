@@ -0,0 +1,431 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.ec2.AbstractAmazonEC2;
+import com.amazonaws.services.ec2.model.AddPrefixListEntry;
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
+import com.amazonaws.services.ec2.model.CreateManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.CreateManagedPrefixListResult;
+import com.amazonaws.services.ec2.model.CreateTagsRequest;
+import com.amazonaws.services.ec2.model.CreateTagsResult;
+import com.amazonaws.services.ec2.model.DeleteManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.DeleteManagedPrefixListResult;
+import com.amazonaws.services.ec2.model.DeleteTagsRequest;
+import com.amazonaws.services.ec2.model.DeleteTagsResult;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
+import com.amazonaws.services.ec2.model.ManagedPrefixList;
+import com.amazonaws.services.ec2.model.ModifyManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.ModifyManagedPrefixListResult;
+import com.amazonaws.services.ec2.model.PrefixListEntry;
+import com.amazonaws.services.ec2.model.RemovePrefixListEntry;
+import com.amazonaws.services.ec2.model.Tag;
+import com.amazonaws.services.ec2.model.TagSpecification;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/*
+ * In-memory stand-in for the EC2 managed prefix list API the handlers use. Every version's entries are
+ * kept, so TargetVersion reads work, and mutations pass through the same -in-progress states as EC2,
+ * settling once the transition time has passed on the supplied clock. Each call can be delayed and
+ * randomly throttled, and calls and throttles are counted per API action. A simulated concurrent writer
+ * can slip its own change in just before a versioned modify, which then fails with a version mismatch.
+ */
+class FakeEc2 extends AbstractAmazonEC2 {
+    static final String OWNER_ID = "111122223333";
+    static final String REGION = "us-east-1";
+    static final long DEFAULT_TRANSITION_MILLIS = 2_000L;
+    static final int MAX_RESULTS = 100;
+
+    private final LongSupplier clock;
+    private final Map<String, FakePrefixList> prefixLists = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final AtomicLong totalCalls = new AtomicLong();
+    private final AtomicLong throttles = new AtomicLong();
+    private final AtomicLong concurrentWrites = new AtomicLong();
+    private final Random random = new Random(0L);
+    private final Random writerRandom = new Random(0L);
+    private long transitionMillis = DEFAULT_TRANSITION_MILLIS;
+    private long latencyMillis;
+    private LongConsumer sleeper = millis -> { };
+    private double throttleRate;
+    private double concurrentWriteRate;
+    private long nextId = 1L;
+
+    FakeEc2(final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    FakeEc2 withTransitionMillis(final long transitionMillis) {
+        this.transitionMillis = transitionMillis;
+        return this;
+    }
+
+    /*
+     * Every call first waits latencyMillis on the sleeper, which may advance a virtual clock instead of blocking
+     */
+    FakeEc2 withLatency(final long latencyMillis, final LongConsumer sleeper) {
+        this.latencyMillis = latencyMillis;
+        this.sleeper = sleeper;
+        return this;
+    }
+
+    FakeEc2 withThrottleRate(final double throttleRate, final long seed) {
+        this.throttleRate = throttleRate;
+        this.random.setSeed(seed);
+        return this;
+    }
+
+    /*
+     * Before each modify that names a current version, another writer changes the list with this probability
+     */
+    FakeEc2 withConcurrentWriteRate(final double concurrentWriteRate, final long seed) {
+        this.concurrentWriteRate = concurrentWriteRate;
+        this.writerRandom.setSeed(seed);
+        return this;
+    }
+
+    long getCalls(final String action) {
+        final AtomicLong count = calls.get(action);
+        return count == null ? 0L : count.get();
+    }
+
+    Map<String, Long> getCallsByAction() {
+        final Map<String, Long> snapshot = new TreeMap<>();
+        calls.forEach((action, count) -> snapshot.put(action, count.get()));
+        return snapshot;
+    }
+
+    long getTotalCalls() {
+        return totalCalls.get();
+    }
+
+    long getThrottles() {
+        return throttles.get();
+    }
+
+    long getConcurrentWrites() {
+        return concurrentWrites.get();
+    }
+
+    synchronized int size() {
+        settleAll();
+        return prefixLists.size();
+    }
+
+    @Override
+    public CreateManagedPrefixListResult createManagedPrefixList(final CreateManagedPrefixListRequest request) {
+        beginCall(request);
+        synchronized (this) {
+            final List<AddPrefixListEntry> addEntries = request.getEntries() == null ? new ArrayList<>() : request.getEntries();
+            if (request.getMaxEntries() == null || addEntries.size() > request.getMaxEntries()) {
+                throw error("PrefixListMaxEntriesExceeded", "The prefix list has more entries than MaxEntries.");
+            }
+            final FakePrefixList prefixList = new FakePrefixList(String.format("pl-%017x", nextId++),
+                    request.getAddressFamily(), request.getMaxEntries());
+            prefixList.name = request.getPrefixListName();
+            final Map<String, PrefixListEntry> entries = new LinkedHashMap<>();
+            addEntries.forEach(entry -> entries.put(entry.getCidr(),
+                    new PrefixListEntry().withCidr(entry.getCidr()).withDescription(entry.getDescription())));
+            prefixList.entriesByVersion.put(prefixList.version, new ArrayList<>(entries.values()));
+            if (request.getTagSpecifications() != null) {
+                for (final TagSpecification tagSpecification : request.getTagSpecifications()) {
+                    tagSpecification.getTags().forEach(tag -> prefixList.tags.put(tag.getKey(), tag.getValue()));
+                }
+            }
+            startTransition(prefixList, ModuleHelper.CREATE_IN_PROGRESS, "create-complete");
+            prefixLists.put(prefixList.id, prefixList);
+            return new CreateManagedPrefixListResult().withPrefixList(prefixList.toManagedPrefixList());
+        }
+    }
+
+    @Override
+    public DescribeManagedPrefixListsResult describeManagedPrefixLists(final DescribeManagedPrefixListsRequest request) {
+        beginCall(request);
+        synchronized (this) {
+            final List<FakePrefixList> matching = new ArrayList<>();
+            if (request.getPrefixListIds() != null && !request.getPrefixListIds().isEmpty()) {
+                for (final String id : request.getPrefixListIds()) {
+                    matching.add(get(id));
+                }
+            } else {
+                settleAll();
+                final Predicate<FakePrefixList> filter = toPredicate(request.getFilters());
+                prefixLists.values().stream().filter(filter).forEach(matching::add);
+            }
+
+            final int from = parseToken(request.getNextToken());
+            final int to = Math.min(from + getMaxResults(request.getMaxResults()), matching.size());
+            final List<ManagedPrefixList> page = new ArrayList<>(Math.max(to - from, 0));
+            for (int i = from; i < to; i++) {
+                page.add(matching.get(i).toManagedPrefixList());
+            }
+            return new DescribeManagedPrefixListsResult()
+                    .withPrefixLists(page)
+                    .withNextToken(to < matching.size() ? String.valueOf(to) : null);
+        }
+    }
+
+    @Override
+    public GetManagedPrefixListEntriesResult getManagedPrefixListEntries(final GetManagedPrefixListEntriesRequest request) {
+        beginCall(request);
+        synchronized (this) {
+            final FakePrefixList prefixList = get(request.getPrefixListId());
+            final long version = request.getTargetVersion() == null ? prefixList.version : request.getTargetVersion();
+            final List<PrefixListEntry> entries = prefixList.entriesByVersion.get(version);
+            if (entries == null) {
+                throw error("InvalidParameterValue", String.format("Version %d of %s does not exist.", version, prefixList.id));
+            }
+            final int from = parseToken(request.getNextToken());
+            final int to = Math.min(from + getMaxResults(request.getMaxResults()), entries.size());
+            final List<PrefixListEntry> page = new ArrayList<>(Math.max(to - from, 0));
+            for (int i = from; i < to; i++) {
+                page.add(entries.get(i).clone());
+            }
+            return new GetManagedPrefixListEntriesResult()
+                    .withEntries(page)
+                    .withNextToken(to < entries.size() ? String.valueOf(to) : null);
+        }
+    }
+
+    @Override
+    public ModifyManagedPrefixListResult modifyManagedPrefixList(final ModifyManagedPrefixListRequest request) {
+        beginCall(request);
+        synchronized (this) {
+            final FakePrefixList prefixList = get(request.getPrefixListId());
+            if (prefixList.state.endsWith("-in-progress")) {
+                throw error("IncorrectState", String.format("%s is in state %s.", prefixList.id, prefixList.state));
+            }
+            if (request.getCurrentVersion() != null && concurrentWriteRate > 0 && writerRandom.nextDouble() < concurrentWriteRate) {
+                writeConcurrently(prefixList);
+            }
+            if (request.getCurrentVersion() != null && request.getCurrentVersion() != prefixList.version) {
+                throw error("PrefixListVersionMismatch", String.format("The current version of %s is %d, not %d.",
+                        prefixList.id, prefixList.version, request.getCurrentVersion()));
+            }
+            final List<AddPrefixListEntry> addEntries = request.getAddEntries() == null ? new ArrayList<>() : request.getAddEntries();
+            final List<RemovePrefixListEntry> removeEntries = request.getRemoveEntries() == null ? new ArrayList<>() : request.getRemoveEntries();
+            if (addEntries.size() > ModuleHelper.MAX_ENTRIES_PER_MODIFY || removeEntries.size() > ModuleHelper.MAX_ENTRIES_PER_MODIFY) {
+                throw error("InvalidParameterValue", "At most 100 entries can be added or removed at once.");
+            }
+
+            final Map<String, PrefixListEntry> entries = new LinkedHashMap<>();
+            prefixList.entriesByVersion.get(prefixList.version).forEach(entry -> entries.put(entry.getCidr(), entry));
+            for (final RemovePrefixListEntry removeEntry : removeEntries) {
+                if (entries.remove(removeEntry.getCidr()) == null) {
+                    throw error("InvalidPrefixListModification", String.format("%s is not an entry of %s.", removeEntry.getCidr(), prefixList.id));
+                }
+            }
+            // Adding an existing CIDR replaces its description, as in EC2
+            addEntries.forEach(entry -> entries.put(entry.getCidr(),
+                    new PrefixListEntry().withCidr(entry.getCidr()).withDescription(entry.getDescription())));
+            if (entries.size() > prefixList.maxEntries) {
+                throw error("PrefixListMaxEntriesExceeded", String.format("%s allows at most %d entries.", prefixList.id, prefixList.maxEntries));
+            }
+
+            if (request.getPrefixListName() != null) {
+                prefixList.name = request.getPrefixListName();
+            }
+            if (!addEntries.isEmpty() || !removeEntries.isEmpty()) {
+                prefixList.version++;
+                prefixList.entriesByVersion.put(prefixList.version, new ArrayList<>(entries.values()));
+                startTransition(prefixList, ModuleHelper.MODIFY_IN_PROGRESS, "modify-complete");
+            }
+            return new ModifyManagedPrefixListResult().withPrefixList(prefixList.toManagedPrefixList());
+        }
+    }
+
+    @Override
+    public DeleteManagedPrefixListResult deleteManagedPrefixList(final DeleteManagedPrefixListRequest request) {
+        beginCall(request);
+        synchronized (this) {
+            final FakePrefixList prefixList = get(request.getPrefixListId());
+            if (prefixList.state.endsWith("-in-progress")) {
+                throw error("IncorrectState", String.format("%s is in state %s.", prefixList.id, prefixList.state));
+            }
+            prefixList.deleting = true;
+            startTransition(prefixList, ModuleHelper.DELETE_IN_PROGRESS, "delete-complete");
+            return new DeleteManagedPrefixListResult().withPrefixList(prefixList.toManagedPrefixList());
+        }
+    }
+
+    @Override
+    public CreateTagsResult createTags(final CreateTagsRequest request) {
+        beginCall(request);
+        synchronized (this) {
+            for (final String id : request.getResources()) {
+                final FakePrefixList prefixList = get(id);
+                request.getTags().forEach(tag -> prefixList.tags.put(tag.getKey(), tag.getValue()));
+            }
+            return new CreateTagsResult();
+        }
+    }
+
+    @Override
+    public DeleteTagsResult deleteTags(final DeleteTagsRequest request) {
+        beginCall(request);
+        synchronized (this) {
+            for (final String id : request.getResources()) {
+                final FakePrefixList prefixList = get(id);
+                // A tag with a value is only deleted if the value still matches
+                request.getTags().forEach(tag -> {
+                    if (tag.getValue() == null || tag.getValue().equals(prefixList.tags.get(tag.getKey()))) {
+                        prefixList.tags.remove(tag.getKey());
+                    }
+                });
+            }
+            return new DeleteTagsResult();
+        }
+    }
+
+    private void beginCall(final AmazonWebServiceRequest request) {
+        final String action = Ec2Invoker.getActionName(request);
+        calls.computeIfAbsent(action, key -> new AtomicLong()).incrementAndGet();
+        totalCalls.incrementAndGet();
+        if (latencyMillis > 0) {
+            sleeper.accept(latencyMillis);
+        }
+        if (throttleRate > 0 && random.nextDouble() < throttleRate) {
+            throttles.incrementAndGet();
+            final AmazonEC2Exception exception = error("RequestLimitExceeded", "Request limit exceeded.");
+            exception.setStatusCode(503);
+            throw exception;
+        }
+    }
+
+    // The other writer adds an entry of its own, or drops one if the list is full, as an already settled version
+    private void writeConcurrently(final FakePrefixList prefixList) {
+        final Map<String, PrefixListEntry> entries = new LinkedHashMap<>();
+        prefixList.entriesByVersion.get(prefixList.version).forEach(entry -> entries.put(entry.getCidr(), entry));
+        final String cidr = String.format("192.0.2.%d/32", concurrentWrites.incrementAndGet() & 0xFF);
+        if (entries.size() < prefixList.maxEntries) {
+            entries.put(cidr, new PrefixListEntry().withCidr(cidr).withDescription("concurrent writer"));
+        } else {
+            entries.remove(entries.keySet().iterator().next());
+        }
+        prefixList.version++;
+        prefixList.entriesByVersion.put(prefixList.version, new ArrayList<>(entries.values()));
+    }
+
+    private FakePrefixList get(final String id) {
+        final FakePrefixList prefixList = prefixLists.get(id);
+        if (prefixList == null || settle(prefixList)) {
+            throw error(ModuleHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND, String.format("The prefix list ID '%s' does not exist.", id));
+        }
+        return prefixList;
+    }
+
+    private void settleAll() {
+        new ArrayList<>(prefixLists.values()).forEach(this::settle);
+    }
+
+    // Returns true if the prefix list finished deleting and is gone
+    private boolean settle(final FakePrefixList prefixList) {
+        if (prefixList.settledState == null || clock.getAsLong() < prefixList.settlesAt) {
+            return false;
+        }
+        prefixList.state = prefixList.settledState;
+        prefixList.settledState = null;
+        if (prefixList.deleting) {
+            prefixLists.remove(prefixList.id);
+            return true;
+        }
+        return false;
+    }
+
+    private void startTransition(final FakePrefixList prefixList, final String state, final String settledState) {
+        prefixList.state = state;
+        prefixList.settledState = settledState;
+        prefixList.settlesAt = clock.getAsLong() + transitionMillis;
+    }
+
+    private static Predicate<FakePrefixList> toPredicate(final List<Filter> filters) {
+        Predicate<FakePrefixList> predicate = prefixList -> true;
+        if (filters == null) {
+            return predicate;
+        }
+        for (final Filter filter : filters) {
+            final List<String> values = filter.getValues();
+            switch (filter.getName()) {
+                case "prefix-list-id":
+                    predicate = predicate.and(prefixList -> values.contains(prefixList.id));
+                    break;
+                case "prefix-list-name":
+                    predicate = predicate.and(prefixList -> values.contains(prefixList.name));
+                    break;
+                case "owner-id":
+                    predicate = predicate.and(prefixList -> values.contains(prefixList.ownerId));
+                    break;
+                default:
+                    throw error("InvalidParameterValue", String.format("The filter '%s' is invalid.", filter.getName()));
+            }
+        }
+        return predicate;
+    }
+
+    private static int getMaxResults(final Integer maxResults) {
+        return maxResults == null ? MAX_RESULTS : Math.min(maxResults, MAX_RESULTS);
+    }
+
+    private static int parseToken(final String nextToken) {
+        return nextToken == null ? 0 : Integer.parseInt(nextToken);
+    }
+
+    private static AmazonEC2Exception error(final String errorCode, final String message) {
+        final AmazonEC2Exception exception = new AmazonEC2Exception(message);
+        exception.setErrorCode(errorCode);
+        exception.setStatusCode(400);
+        exception.setServiceName("AmazonEC2");
+        return exception;
+    }
+
+    private static class FakePrefixList {
+        final String id;
+        final String addressFamily;
+        final int maxEntries;
+        final String ownerId = OWNER_ID;
+        final Map<Long, List<PrefixListEntry>> entriesByVersion = new HashMap<>();
+        final Map<String, String> tags = new LinkedHashMap<>();
+        String name;
+        long version = 1L;
+        String state;
+        String settledState;
+        long settlesAt;
+        boolean deleting;
+
+        FakePrefixList(final String id, final String addressFamily, final int maxEntries) {
+            this.id = id;
+            this.addressFamily = addressFamily;
+            this.maxEntries = maxEntries;
+        }
+
+        ManagedPrefixList toManagedPrefixList() {
+            final List<Tag> ec2Tags = new ArrayList<>(tags.size());
+            tags.forEach((key, value) -> ec2Tags.add(new Tag().withKey(key).withValue(value)));
+            return new ManagedPrefixList()
+                    .withPrefixListId(id)
+                    .withPrefixListName(name)
+                    .withAddressFamily(addressFamily)
+                    .withMaxEntries(maxEntries)
+                    .withVersion(version)
+                    .withState(state)
+                    .withOwnerId(ownerId)
+                    .withPrefixListArn(String.format("arn:aws:ec2:%s:%s:prefix-list/%s", REGION, ownerId, id))
+                    .withTags(ec2Tags);
+        }
+    }
+}
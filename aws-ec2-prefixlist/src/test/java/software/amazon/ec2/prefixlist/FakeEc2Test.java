@@ -0,0 +1,130 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.AddPrefixListEntry;
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
+import com.amazonaws.services.ec2.model.CreateManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.DeleteManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
+import com.amazonaws.services.ec2.model.ManagedPrefixList;
+import com.amazonaws.services.ec2.model.ModifyManagedPrefixListRequest;
+import com.amazonaws.services.ec2.model.PrefixListEntry;
+import com.amazonaws.services.ec2.model.RemovePrefixListEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.ec2.prefixlist.TestHelper.ADDRESS_FAMILY_4;
+import static software.amazon.ec2.prefixlist.TestHelper.CIDR_1;
+import static software.amazon.ec2.prefixlist.TestHelper.CIDR_2;
+import static software.amazon.ec2.prefixlist.TestHelper.DESCRIPTION_1;
+import static software.amazon.ec2.prefixlist.TestHelper.MAX_ENTRIES_5;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_NAME;
+
+public class FakeEc2Test {
+
+    private final AtomicLong clock = new AtomicLong();
+    private FakeEc2 ec2;
+
+    @BeforeEach
+    public void setup() {
+        ec2 = new FakeEc2(clock::get).withTransitionMillis(1_000L);
+    }
+
+    @Test
+    public void createSettlesAfterTheTransitionTime() {
+        final String prefixListId = create();
+
+        assertThat(describe(prefixListId).getState()).isEqualTo(ModuleHelper.CREATE_IN_PROGRESS);
+        clock.addAndGet(1_000L);
+        assertThat(describe(prefixListId).getState()).isEqualTo("create-complete");
+        assertThat(describe(prefixListId).getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void modifyCreatesANewVersionAndKeepsTheOldOne() {
+        final String prefixListId = create();
+        clock.addAndGet(1_000L);
+
+        ec2.modifyManagedPrefixList(new ModifyManagedPrefixListRequest()
+                .withPrefixListId(prefixListId)
+                .withCurrentVersion(1L)
+                .withAddEntries(new AddPrefixListEntry().withCidr(CIDR_2))
+                .withRemoveEntries(new RemovePrefixListEntry().withCidr(CIDR_1)));
+
+        assertThat(describe(prefixListId).getState()).isEqualTo(ModuleHelper.MODIFY_IN_PROGRESS);
+        assertThat(describe(prefixListId).getVersion()).isEqualTo(2L);
+        assertThat(ec2.getManagedPrefixListEntries(new GetManagedPrefixListEntriesRequest().withPrefixListId(prefixListId))
+                .getEntries()).extracting(PrefixListEntry::getCidr).containsExactly(CIDR_2);
+        assertThat(ec2.getManagedPrefixListEntries(new GetManagedPrefixListEntriesRequest().withPrefixListId(prefixListId).withTargetVersion(1L))
+                .getEntries()).extracting(PrefixListEntry::getCidr).containsExactly(CIDR_1);
+    }
+
+    @Test
+    public void modifyRejectsStaleVersionsAndChangesInProgress() {
+        final String prefixListId = create();
+
+        assertErrorCode("IncorrectState", () -> ec2.modifyManagedPrefixList(new ModifyManagedPrefixListRequest()
+                .withPrefixListId(prefixListId)
+                .withAddEntries(new AddPrefixListEntry().withCidr(CIDR_2))));
+        clock.addAndGet(1_000L);
+        assertErrorCode("PrefixListVersionMismatch", () -> ec2.modifyManagedPrefixList(new ModifyManagedPrefixListRequest()
+                .withPrefixListId(prefixListId)
+                .withCurrentVersion(7L)
+                .withAddEntries(new AddPrefixListEntry().withCidr(CIDR_2))));
+    }
+
+    @Test
+    public void deletedPrefixListsAreNotFoundOnceSettled() {
+        final String prefixListId = create();
+        clock.addAndGet(1_000L);
+
+        ec2.deleteManagedPrefixList(new DeleteManagedPrefixListRequest().withPrefixListId(prefixListId));
+        assertThat(describe(prefixListId).getState()).isEqualTo(ModuleHelper.DELETE_IN_PROGRESS);
+        clock.addAndGet(1_000L);
+
+        assertErrorCode(ModuleHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND, () -> describe(prefixListId));
+        assertThat(ec2.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void describePagesAndCountsCallsAndThrottles() {
+        for (int i = 0; i < 3; i++) {
+            create();
+        }
+        assertThat(ec2.describeManagedPrefixLists(new DescribeManagedPrefixListsRequest().withMaxResults(2)).getNextToken()).isEqualTo("2");
+        assertThat(ec2.describeManagedPrefixLists(new DescribeManagedPrefixListsRequest().withNextToken("2")).getPrefixLists()).hasSize(1);
+
+        ec2.withThrottleRate(1.0, 0L);
+        assertErrorCode("RequestLimitExceeded", () -> ec2.describeManagedPrefixLists(new DescribeManagedPrefixListsRequest()));
+
+        assertThat(ec2.getCalls("CreateManagedPrefixList")).isEqualTo(3L);
+        assertThat(ec2.getCalls("DescribeManagedPrefixLists")).isEqualTo(3L);
+        assertThat(ec2.getTotalCalls()).isEqualTo(6L);
+        assertThat(ec2.getThrottles()).isEqualTo(1L);
+    }
+
+    private String create() {
+        return ec2.createManagedPrefixList(new CreateManagedPrefixListRequest()
+                .withPrefixListName(PREFIX_LIST_NAME)
+                .withAddressFamily(ADDRESS_FAMILY_4)
+                .withMaxEntries(MAX_ENTRIES_5)
+                .withEntries(new AddPrefixListEntry().withCidr(CIDR_1).withDescription(DESCRIPTION_1)))
+                .getPrefixList()
+                .getPrefixListId();
+    }
+
+    private ManagedPrefixList describe(final String prefixListId) {
+        return ec2.describeManagedPrefixLists(new DescribeManagedPrefixListsRequest().withPrefixListIds(prefixListId))
+                .getPrefixLists()
+                .get(0);
+    }
+
+    private static void assertErrorCode(final String errorCode, final Runnable call) {
+        final AmazonEC2Exception exception = Assertions.assertThrows(AmazonEC2Exception.class, call::run);
+        assertThat(exception.getErrorCode()).isEqualTo(errorCode);
+    }
+}
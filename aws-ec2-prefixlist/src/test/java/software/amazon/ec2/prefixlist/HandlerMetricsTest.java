@@ -0,0 +1,84 @@
+package software.amazon.ec2.prefixlist;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class HandlerMetricsTest {
+
+    @Mock
+    private Logger logger;
+
+    private final AtomicLong clock = new AtomicLong(1_000L);
+
+    @Test
+    public void toEmfDeclaresEveryRecordedMetric() {
+        final HandlerMetrics metrics = new HandlerMetrics("UpdateHandler", clock::get);
+        metrics.countCall("DescribeManagedPrefixLists");
+        metrics.countCall("DescribeManagedPrefixLists");
+        metrics.add(HandlerMetrics.ENTRIES_DIFFED, 7L);
+        metrics.time(HandlerMetrics.DESCRIBE_PHASE, () -> clock.addAndGet(25L));
+
+        final JSONObject emf = new JSONObject(metrics.toEmf());
+
+        assertThat(emf.getString(HandlerMetrics.HANDLER_DIMENSION)).isEqualTo("UpdateHandler");
+        assertThat(emf.getLong("DescribeManagedPrefixListsCalls")).isEqualTo(2L);
+        assertThat(emf.getLong(HandlerMetrics.ENTRIES_DIFFED)).isEqualTo(7L);
+        assertThat(emf.getLong("DescribeTime")).isEqualTo(25L);
+
+        final JSONObject aws = emf.getJSONObject("_aws");
+        assertThat(aws.getLong("Timestamp")).isEqualTo(1_025L);
+        final JSONObject directive = aws.getJSONArray("CloudWatchMetrics").getJSONObject(0);
+        assertThat(directive.getString("Namespace")).isEqualTo(HandlerMetrics.NAMESPACE);
+        assertThat(directive.getJSONArray("Dimensions").getJSONArray(0).getString(0)).isEqualTo(HandlerMetrics.HANDLER_DIMENSION);
+        final JSONArray definitions = directive.getJSONArray("Metrics");
+        assertThat(definitions.length()).isEqualTo(3);
+        assertThat(definitions.getJSONObject(0).getString("Name")).isEqualTo("DescribeManagedPrefixListsCalls");
+        assertThat(definitions.getJSONObject(0).getString("Unit")).isEqualTo("Count");
+        assertThat(definitions.getJSONObject(2).getString("Name")).isEqualTo("DescribeTime");
+        assertThat(definitions.getJSONObject(2).getString("Unit")).isEqualTo("Milliseconds");
+    }
+
+    @Test
+    public void recordCountsInProgressAsCallback() {
+        final ProgressEvent<ResourceModel, CallbackContext> event = HandlerMetrics.record("CreateHandler", logger,
+                metrics -> ProgressEvent.<ResourceModel, CallbackContext>builder().status(OperationStatus.IN_PROGRESS).build());
+
+        assertThat(event.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        final JSONObject emf = new JSONObject(loggedLine());
+        assertThat(emf.getLong(HandlerMetrics.CALLBACKS)).isEqualTo(1L);
+        assertThat(emf.has("HandlerTime")).isTrue();
+    }
+
+    @Test
+    public void recordLogsMetricsWhenHandlerThrows() {
+        Assertions.assertThrows(IllegalStateException.class, () -> HandlerMetrics.record("DeleteHandler", logger, metrics -> {
+            metrics.countCall("DeleteManagedPrefixList");
+            throw new IllegalStateException();
+        }));
+
+        final JSONObject emf = new JSONObject(loggedLine());
+        assertThat(emf.getLong("DeleteManagedPrefixListCalls")).isEqualTo(1L);
+        assertThat(emf.has(HandlerMetrics.CALLBACKS)).isFalse();
+    }
+
+    private String loggedLine() {
+        final ArgumentCaptor<String> line = ArgumentCaptor.forClass(String.class);
+        verify(logger).log(line.capture());
+        return line.getValue();
+    }
+}
@@ -0,0 +1,26 @@
+package software.amazon.ec2.prefixlist;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Keeps every exported invocation in memory, so tests can assert on the spans a handler produced
+ */
+class InMemorySpanExporter implements SpanExporter {
+    private final List<Tracer> traces = new ArrayList<>();
+
+    @Override
+    public synchronized void export(final Tracer tracer) {
+        traces.add(tracer);
+    }
+
+    synchronized List<Tracer> getTraces() {
+        return new ArrayList<>(traces);
+    }
+
+    synchronized List<Tracer.Span> getSpans() {
+        final List<Tracer.Span> spans = new ArrayList<>();
+        traces.forEach(tracer -> spans.addAll(tracer.getSpans()));
+        return spans;
+    }
+}
@@ -1,8 +1,14 @@
 package software.amazon.ec2.prefixlist;
 
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
 import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsRequest;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
+import com.amazonaws.services.ec2.model.ManagedPrefixList;
 import com.google.common.collect.ImmutableList;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
 import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.OperationStatus;
@@ -20,15 +26,27 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT;
 import static software.amazon.ec2.prefixlist.TestHelper.GET_ENTRIES_REQUEST;
 import static software.amazon.ec2.prefixlist.TestHelper.GET_ENTRIES_RESULT;
+import static software.amazon.ec2.prefixlist.TestHelper.INVOKERS;
+import static software.amazon.ec2.prefixlist.TestHelper.LIST_DESCRIBE_REQUEST;
+import static software.amazon.ec2.prefixlist.TestHelper.NEXT_TOKEN;
+import static software.amazon.ec2.prefixlist.TestHelper.OWNER_ID;
 import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST;
 import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ENTRIES;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ENTRIES_NO_MODIFICATION;
+import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_HANDLER_REQUEST_WITH_NEXT_TOKEN;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID;
+import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_CREATED;
 import static software.amazon.ec2.prefixlist.TestHelper.convertToEntries;
 import static software.amazon.ec2.prefixlist.TestHelper.convertToResourceModelTags;
+import static software.amazon.ec2.prefixlist.TestHelper.metricsLine;
 
 @ExtendWith(MockitoExtension.class)
 public class ListHandlerTest {
@@ -43,17 +61,19 @@ public class ListHandlerTest {
 
     @BeforeEach
     public void setup() {
-        handler = new ListHandler();
+        handler = new ListHandler(ModuleHelper.DEFAULT_LIST_CONCURRENCY, ModuleHelper.DEFAULT_LIST_PAGE_SIZE,
+                ModuleHelper.DEFAULT_LIST_TIME_BUDGET_MILLIS, INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES));
     }
 
     @AfterEach
     public void after() {
+        verify(logger, atLeastOnce()).log(metricsLine());
         verifyNoMoreInteractions(proxy, logger);
     }
 
     @Test
     public void handleRequestSimpleSuccess() {
-        doReturn(DESCRIBE_RESULT).when(proxy).injectCredentialsAndInvoke(eq(new DescribeManagedPrefixListsRequest()),any());
+        doReturn(DESCRIBE_RESULT).when(proxy).injectCredentialsAndInvoke(eq(LIST_DESCRIBE_REQUEST),any());
         doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
 
         final ProgressEvent<ResourceModel, CallbackContext> response =
@@ -77,8 +97,224 @@ public class ListHandlerTest {
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(0);
         assertThat(response.getResourceModel()).isNull();
         assertThat(response.getResourceModels()).isNotNull();
-        assertThat(response.getResourceModels().equals(expectedResourceModels));
+        assertThat(response.getResourceModels()).isEqualTo(expectedResourceModels);
+        assertThat(response.getNextToken()).isNull();
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
     }
+
+    @Test
+    public void handleRequestWithParallelEntryFetchKeepsOrder() {
+        final ManagedPrefixList secondPrefixList = PREFIX_LIST.clone().withPrefixListId("pl-2");
+        final ManagedPrefixList thirdPrefixList = PREFIX_LIST.clone().withPrefixListId("pl-3");
+        final DescribeManagedPrefixListsResult describeResult = new DescribeManagedPrefixListsResult()
+                .withPrefixLists(ImmutableList.of(PREFIX_LIST, secondPrefixList, thirdPrefixList));
+        doReturn(describeResult).when(proxy).injectCredentialsAndInvoke(eq(LIST_DESCRIBE_REQUEST),any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+        doReturn(new GetManagedPrefixListEntriesResult().withEntries(PREFIX_LIST_ENTRIES_NO_MODIFICATION))
+                .when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST.clone().withPrefixListId("pl-2")),any());
+        doReturn(new GetManagedPrefixListEntriesResult())
+                .when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST.clone().withPrefixListId("pl-3")),any());
+
+        final ListHandler concurrentHandler =
+                new ListHandler(3, ModuleHelper.DEFAULT_LIST_PAGE_SIZE, ModuleHelper.DEFAULT_LIST_TIME_BUDGET_MILLIS,
+                        INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES));
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                concurrentHandler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).extracting(ResourceModel::getPrefixListId)
+                .containsExactly(PREFIX_LIST.getPrefixListId(), "pl-2", "pl-3");
+        assertThat(response.getResourceModels().get(0).getEntries()).isEqualTo(convertToEntries(PREFIX_LIST_ENTRIES));
+        assertThat(response.getResourceModels().get(1).getEntries()).isEqualTo(convertToEntries(PREFIX_LIST_ENTRIES_NO_MODIFICATION));
+        assertThat(response.getResourceModels().get(2).getEntries()).isEmpty();
+        verify(proxy, times(4)).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestRetriesThrottledEntryFetch() {
+        final AmazonEC2Exception throttlingException = new AmazonEC2Exception("Rate exceeded");
+        throttlingException.setErrorCode("RequestLimitExceeded");
+        doReturn(DESCRIBE_RESULT).when(proxy).injectCredentialsAndInvoke(eq(LIST_DESCRIBE_REQUEST),any());
+        doThrow(throttlingException).doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels().get(0).getEntries()).isEqualTo(convertToEntries(PREFIX_LIST_ENTRIES));
+        verify(proxy, times(3)).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestPropagatesNonThrottlingError() {
+        final AmazonEC2Exception accessDenied = new AmazonEC2Exception("Denied");
+        accessDenied.setErrorCode("UnauthorizedOperation");
+        doReturn(DESCRIBE_RESULT).when(proxy).injectCredentialsAndInvoke(eq(LIST_DESCRIBE_REQUEST),any());
+        doThrow(accessDenied).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        Assertions.assertThrows(AmazonEC2Exception.class, () ->
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger));
+    }
+
+    @Test
+    public void handleRequestHonorsAndEmitsNextToken() {
+        final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest()
+                .withMaxResults(1)
+                .withNextToken(NEXT_TOKEN);
+        doReturn(DESCRIBE_RESULT.clone().withNextToken("token-2")).when(proxy).injectCredentialsAndInvoke(eq(describeRequest),any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new ListHandler(1, 1, 60_000, INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES))
+                        .handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_NEXT_TOKEN, null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModels()).hasSize(1);
+        assertThat(response.getNextToken()).isEqualTo("token-2");
+    }
+
+    @Test
+    public void handleRequestFillsPageAcrossDescribeCalls() {
+        final DescribeManagedPrefixListsRequest firstRequest = new DescribeManagedPrefixListsRequest().withMaxResults(2);
+        final DescribeManagedPrefixListsRequest secondRequest = new DescribeManagedPrefixListsRequest()
+                .withMaxResults(1)
+                .withNextToken("token-2");
+        doReturn(DESCRIBE_RESULT.clone().withNextToken("token-2")).when(proxy).injectCredentialsAndInvoke(eq(firstRequest),any());
+        doReturn(DESCRIBE_RESULT.clone().withNextToken("token-3")).when(proxy).injectCredentialsAndInvoke(eq(secondRequest),any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new ListHandler(1, 2, 60_000, INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES))
+                        .handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getResourceModels()).hasSize(2);
+        assertThat(response.getNextToken()).isEqualTo("token-3");
+        // Both pages describe the same prefix list version, so the second entry read is served from the cache
+        verify(proxy, times(3)).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestStopsWhenTimeBudgetIsSpent() {
+        final DescribeManagedPrefixListsRequest describeRequest = new DescribeManagedPrefixListsRequest().withMaxResults(2);
+        doReturn(DESCRIBE_RESULT.clone().withNextToken("token-2")).when(proxy).injectCredentialsAndInvoke(eq(describeRequest),any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                new ListHandler(1, 2, 0, INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES))
+                        .handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getResourceModels()).hasSize(1);
+        assertThat(response.getNextToken()).isEqualTo("token-2");
+        verify(proxy, times(2)).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestScopesToCallerAndSkipsAwsManagedLists() {
+        final ManagedPrefixList awsManagedPrefixList = PREFIX_LIST.clone().withPrefixListId("pl-aws").withOwnerId(ModuleHelper.AWS_OWNER_ID);
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(ImmutableList.of(awsManagedPrefixList, PREFIX_LIST)))
+                .when(proxy).injectCredentialsAndInvoke(
+                        eq(listDescribeRequest(new Filter(ModuleHelper.OWNER_ID_FILTER, ImmutableList.of(OWNER_ID)))), any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, accountRequest(), null, logger);
+
+        assertThat(response.getResourceModels()).extracting(ResourceModel::getPrefixListId)
+                .containsExactly(PREFIX_LIST.getPrefixListId());
+        verify(proxy, times(2)).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestAddsConfiguredFilters() {
+        final List<Filter> filters = ModuleHelper.parseFilters(" prefix-list-name = a , b ;malformed; =x;state=");
+        doReturn(new DescribeManagedPrefixListsResult()).when(proxy).injectCredentialsAndInvoke(eq(listDescribeRequest(
+                new Filter("prefix-list-name", ImmutableList.of("a", "b")),
+                new Filter(ModuleHelper.OWNER_ID_FILTER, ImmutableList.of(OWNER_ID)))), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new ListHandler(ModuleHelper.DEFAULT_LIST_CONCURRENCY,
+                ModuleHelper.DEFAULT_LIST_PAGE_SIZE, ModuleHelper.DEFAULT_LIST_TIME_BUDGET_MILLIS, filters, false, INVOKERS,
+                new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES), ClientBuilder.DEFAULT_FACTORY)
+                .handleRequest(proxy, accountRequest(), null, logger);
+
+        assertThat(response.getResourceModels()).isEmpty();
+        verify(proxy).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestConfiguredOwnerFilterReplacesCallerScope() {
+        final List<Filter> filters = ModuleHelper.parseFilters("owner-id=" + OWNER_ID + ",444455556666");
+        doReturn(new DescribeManagedPrefixListsResult()).when(proxy).injectCredentialsAndInvoke(eq(listDescribeRequest(
+                new Filter(ModuleHelper.OWNER_ID_FILTER, ImmutableList.of(OWNER_ID, "444455556666")))), any());
+
+        new ListHandler(ModuleHelper.DEFAULT_LIST_CONCURRENCY, ModuleHelper.DEFAULT_LIST_PAGE_SIZE,
+                ModuleHelper.DEFAULT_LIST_TIME_BUDGET_MILLIS, filters, false, INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES),
+                ClientBuilder.DEFAULT_FACTORY).handleRequest(proxy, accountRequest(), null, logger);
+
+        verify(proxy).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestKeepsAwsManagedListsAConfiguredOwnerFilterAsksFor() {
+        final List<Filter> filters = ModuleHelper.parseFilters("owner-id=" + ModuleHelper.AWS_OWNER_ID);
+        final ManagedPrefixList awsManagedPrefixList = PREFIX_LIST.clone().withPrefixListId("pl-aws").withOwnerId(ModuleHelper.AWS_OWNER_ID);
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(ImmutableList.of(awsManagedPrefixList)))
+                .when(proxy).injectCredentialsAndInvoke(eq(listDescribeRequest(
+                        new Filter(ModuleHelper.OWNER_ID_FILTER, ImmutableList.of(ModuleHelper.AWS_OWNER_ID)))), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new ListHandler(ModuleHelper.DEFAULT_LIST_CONCURRENCY,
+                ModuleHelper.DEFAULT_LIST_PAGE_SIZE, ModuleHelper.DEFAULT_LIST_TIME_BUDGET_MILLIS, filters, true, INVOKERS,
+                new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES), ClientBuilder.DEFAULT_FACTORY)
+                .handleRequest(proxy, accountRequest(), null, logger);
+
+        assertThat(response.getResourceModels()).extracting(ResourceModel::getPrefixListId).containsExactly("pl-aws");
+        verify(proxy).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestIdentifierProjectionSkipsEntryReads() {
+        final ManagedPrefixList secondPrefixList = PREFIX_LIST.clone().withPrefixListId("pl-2");
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(ImmutableList.of(PREFIX_LIST, secondPrefixList)))
+                .when(proxy).injectCredentialsAndInvoke(eq(LIST_DESCRIBE_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response = new ListHandler(ModuleHelper.DEFAULT_LIST_CONCURRENCY,
+                ModuleHelper.DEFAULT_LIST_PAGE_SIZE, ModuleHelper.DEFAULT_LIST_TIME_BUDGET_MILLIS, ImmutableList.of(), true,
+                INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES), ClientBuilder.DEFAULT_FACTORY)
+                .handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getResourceModels()).containsExactly(
+                ResourceModel.builder()
+                        .prefixListId(PREFIX_LIST.getPrefixListId())
+                        .prefixListName(PREFIX_LIST.getPrefixListName())
+                        .addressFamily(PREFIX_LIST.getAddressFamily())
+                        .maxEntries(PREFIX_LIST.getMaxEntries())
+                        .version(PREFIX_LIST.getVersion().intValue())
+                        .ownerId(PREFIX_LIST.getOwnerId())
+                        .arn(PREFIX_LIST.getPrefixListArn())
+                        .build(),
+                ResourceModel.builder()
+                        .prefixListId("pl-2")
+                        .prefixListName(PREFIX_LIST.getPrefixListName())
+                        .addressFamily(PREFIX_LIST.getAddressFamily())
+                        .maxEntries(PREFIX_LIST.getMaxEntries())
+                        .version(PREFIX_LIST.getVersion().intValue())
+                        .ownerId(PREFIX_LIST.getOwnerId())
+                        .arn(PREFIX_LIST.getPrefixListArn())
+                        .build());
+        verify(proxy).injectCredentialsAndInvoke(any(), any());
+    }
+
+    // Built afresh because the SDK lazily creates the filter list, which a clone would share with LIST_DESCRIBE_REQUEST
+    private static DescribeManagedPrefixListsRequest listDescribeRequest(final Filter... filters) {
+        return new DescribeManagedPrefixListsRequest()
+                .withMaxResults(ModuleHelper.DEFAULT_LIST_PAGE_SIZE)
+                .withFilters(filters);
+    }
+
+    private static ResourceHandlerRequest<ResourceModel> accountRequest() {
+        return ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(RESOURCE_MODEL_CREATED)
+                .awsAccountId(OWNER_ID)
+                .build();
+    }
 }
@@ -0,0 +1,219 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
+import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.LoggerProxy;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Runs many create -> read -> update -> delete lifecycles at once against FakeEc2 on a virtual clock.
+ * Each handler invocation runs at its scheduled time and callbacks are rescheduled after the delay the
+ * handler asked for. Fake latency, throttling backoff and stabilization polls advance the clock
+ * instead of blocking, so thousands of lifecycles finish in seconds. The report counts invocations,
+ * callbacks, API calls and throttles per operation.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=software.amazon.ec2.prefixlist.LoadDriver -Dexec.args="<lifecycles> <throttleRate> <latencyMillis>"
+ */
+class LoadDriver {
+    static final long INVOCATION_TIMEOUT_MILLIS = 60_000L;
+    static final int MAX_ENTRIES = 20;
+    static final int INITIAL_ENTRIES = 5;
+
+    enum Operation { CREATE, READ, UPDATE, DELETE }
+
+    private final AtomicLong clock = new AtomicLong();
+    private final FakeEc2 ec2;
+    private final Map<Operation, BaseHandler<CallbackContext>> handlers = new EnumMap<>(Operation.class);
+    private final Logger logger = message -> { };
+    private long invocationDeadline;
+    private final AmazonWebServicesClientProxy proxy = new AmazonWebServicesClientProxy(
+            new LoggerProxy(), new Credentials("access-key", "secret-key", "session-token"),
+            () -> invocationDeadline - clock.get());
+
+    LoadDriver(final double throttleRate, final long latencyMillis, final long transitionMillis) {
+        this.ec2 = new FakeEc2(clock::get)
+                .withTransitionMillis(transitionMillis)
+                .withLatency(latencyMillis, clock::addAndGet)
+                .withThrottleRate(throttleRate, 42L);
+        final StabilizationWaiter waiter = new StabilizationWaiter(StabilizationWaiter.DEFAULT_MAX_POLLS,
+                StabilizationWaiter.DEFAULT_POLL_INTERVAL_MILLIS, AmazonWebServicesClientProxy::getRemainingTimeInMillis, clock::addAndGet);
+        final Ec2Invoker.Factory invokers = (invokerProxy, metrics) -> new Ec2Invoker(invokerProxy, metrics,
+                AmazonWebServicesClientProxy::getRemainingTimeInMillis, ActionRateLimiter.UNLIMITED, clock::addAndGet);
+        final ClientBuilder.Factory clients = region -> ec2;
+        final EntryCache entryCache = new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES);
+        handlers.put(Operation.CREATE, new CreateHandler(waiter, invokers, clients));
+        handlers.put(Operation.READ, new ReadHandler(invokers, entryCache, clients));
+        handlers.put(Operation.UPDATE, new UpdateHandler(waiter, invokers, entryCache, clients));
+        handlers.put(Operation.DELETE, new DeleteHandler(waiter, invokers, clients));
+    }
+
+    public static void main(final String[] args) {
+        final int lifecycles = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        final double throttleRate = args.length > 1 ? Double.parseDouble(args[1]) : 0.02;
+        final long latencyMillis = args.length > 2 ? Long.parseLong(args[2]) : 50L;
+        System.out.println(new LoadDriver(throttleRate, latencyMillis, FakeEc2.DEFAULT_TRANSITION_MILLIS).run(lifecycles));
+    }
+
+    FakeEc2 getEc2() {
+        return ec2;
+    }
+
+    Report run(final int lifecycles) {
+        final Report report = new Report();
+        final PriorityQueue<Lifecycle> pending = new PriorityQueue<>((left, right) -> left.nextInvocationAt != right.nextInvocationAt
+                ? Long.compare(left.nextInvocationAt, right.nextInvocationAt)
+                : Integer.compare(left.index, right.index));
+        for (int i = 0; i < lifecycles; i++) {
+            pending.add(new Lifecycle(i));
+        }
+
+        while (!pending.isEmpty()) {
+            final Lifecycle lifecycle = pending.poll();
+            final boolean more = invoke(lifecycle, report.get(lifecycle.operation));
+            report.virtualMillis = Math.max(report.virtualMillis, clock.get());
+            if (more) {
+                pending.add(lifecycle);
+            }
+        }
+        report.callsByAction = ec2.getCallsByAction();
+        return report;
+    }
+
+    /*
+     * Runs one handler invocation at the lifecycle's scheduled time, returning whether the lifecycle has more work
+     */
+    private boolean invoke(final Lifecycle lifecycle, final OperationStats stats) {
+        // Every lifecycle runs on its own timeline; the fake only compares a prefix list against its own transitions
+        clock.set(lifecycle.nextInvocationAt);
+        invocationDeadline = lifecycle.nextInvocationAt + INVOCATION_TIMEOUT_MILLIS;
+        final long callsBefore = ec2.getTotalCalls();
+        final long throttlesBefore = ec2.getThrottles();
+        if (lifecycle.context == null) {
+            lifecycle.operationStartedAt = lifecycle.nextInvocationAt;
+        }
+
+        ProgressEvent<ResourceModel, CallbackContext> event;
+        try {
+            event = handlers.get(lifecycle.operation).handleRequest(proxy, lifecycle.request(), lifecycle.context, logger);
+        } catch (final RuntimeException ex) {
+            event = ProgressEvent.<ResourceModel, CallbackContext>builder()
+                    .status(OperationStatus.FAILED)
+                    .message(ex.getClass().getSimpleName())
+                    .build();
+        }
+        stats.invocations++;
+        stats.apiCalls += ec2.getTotalCalls() - callsBefore;
+        stats.throttles += ec2.getThrottles() - throttlesBefore;
+
+        if (event.getStatus() == OperationStatus.IN_PROGRESS) {
+            stats.callbacks++;
+            lifecycle.context = event.getCallbackContext();
+            lifecycle.nextInvocationAt = clock.get() + Math.max(event.getCallbackDelaySeconds(), 0) * 1_000L;
+            return true;
+        }
+        if (event.getStatus() == OperationStatus.FAILED) {
+            stats.failed++;
+            return false;
+        }
+
+        stats.completed++;
+        stats.totalMillis += clock.get() - lifecycle.operationStartedAt;
+        if (lifecycle.operation == Operation.CREATE) {
+            lifecycle.prefixListId = event.getResourceModel().getPrefixListId();
+        }
+        if (lifecycle.operation == Operation.DELETE) {
+            return false;
+        }
+        lifecycle.operation = Operation.values()[lifecycle.operation.ordinal() + 1];
+        lifecycle.context = null;
+        lifecycle.nextInvocationAt = clock.get();
+        return true;
+    }
+
+    private static class Lifecycle {
+        final int index;
+        Operation operation = Operation.CREATE;
+        CallbackContext context;
+        String prefixListId;
+        long nextInvocationAt;
+        long operationStartedAt;
+
+        Lifecycle(final int index) {
+            this.index = index;
+        }
+
+        ResourceHandlerRequest<ResourceModel> request() {
+            // The update drops the first entry, adds two more and retags
+            final boolean updated = operation == Operation.UPDATE;
+            final List<Entry> entries = new ArrayList<>();
+            for (int i = updated ? 1 : 0; i < INITIAL_ENTRIES + (updated ? 2 : 0); i++) {
+                entries.add(Entry.builder()
+                        .cidr(String.format("10.%d.%d.%d/32", (index >>> 8) & 0xFF, index & 0xFF, i))
+                        .description("entry " + i)
+                        .build());
+            }
+            final ResourceModel model = ResourceModel.builder()
+                    .prefixListId(prefixListId)
+                    .prefixListName("load-" + index)
+                    .addressFamily(ModuleHelper.ADDRESS_FAMILY_IPV4)
+                    .maxEntries(MAX_ENTRIES)
+                    .entries(entries)
+                    .tags(ImmutableList.of(Tag.builder().key("Stage").value(updated ? "updated" : "created").build()))
+                    .build();
+            return ResourceHandlerRequest.<ResourceModel>builder()
+                    .desiredResourceState(model)
+                    .region(FakeEc2.REGION)
+                    .build();
+        }
+    }
+
+    static class OperationStats {
+        long invocations;
+        long callbacks;
+        long apiCalls;
+        long throttles;
+        long completed;
+        long failed;
+        long totalMillis;
+    }
+
+    static class Report {
+        final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+        Map<String, Long> callsByAction;
+        long virtualMillis;
+
+        Report() {
+            for (final Operation operation : Operation.values()) {
+                operations.put(operation, new OperationStats());
+            }
+        }
+
+        OperationStats get(final Operation operation) {
+            return operations.get(operation);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder report = new StringBuilder(String.format("%-8s %10s %10s %10s %10s %10s %10s %12s %14s%n",
+                    "", "completed", "failed", "invokes", "callbacks", "api calls", "throttles", "calls/op", "virtual ms/op"));
+            operations.forEach((operation, stats) -> report.append(String.format("%-8s %10d %10d %10d %10d %10d %10d %12.2f %14.0f%n",
+                    operation, stats.completed, stats.failed, stats.invocations, stats.callbacks, stats.apiCalls, stats.throttles,
+                    stats.completed + stats.failed == 0 ? 0.0 : (double) stats.apiCalls / (stats.completed + stats.failed),
+                    stats.completed == 0 ? 0.0 : (double) stats.totalMillis / stats.completed)));
+            callsByAction.forEach((action, calls) -> report.append(String.format("%-32s %10d%n", action, calls)));
+            return report.append(String.format("virtual time %d ms%n", virtualMillis)).toString();
+        }
+    }
+}
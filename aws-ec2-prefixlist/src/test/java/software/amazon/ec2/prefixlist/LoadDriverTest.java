@@ -0,0 +1,56 @@
+package software.amazon.ec2.prefixlist;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadDriverTest {
+
+    @Test
+    public void runCompletesEveryLifecycleAgainstTheFake() {
+        final LoadDriver driver = new LoadDriver(0.0, 20L, FakeEc2.DEFAULT_TRANSITION_MILLIS);
+
+        final LoadDriver.Report report = driver.run(200);
+
+        for (final LoadDriver.Operation operation : LoadDriver.Operation.values()) {
+            assertThat(report.get(operation).completed).as(operation.name()).isEqualTo(200L);
+            assertThat(report.get(operation).failed).as(operation.name()).isEqualTo(0L);
+        }
+        assertThat(report.get(LoadDriver.Operation.CREATE).apiCalls).isGreaterThanOrEqualTo(400L);
+        assertThat(report.callsByAction).containsKeys("CreateManagedPrefixList", "ModifyManagedPrefixList", "DeleteManagedPrefixList");
+        assertThat(driver.getEc2().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void runAbsorbsThrottlingThroughInvokerRetries() {
+        final LoadDriver driver = new LoadDriver(0.1, 20L, 10_000L);
+
+        final LoadDriver.Report report = driver.run(200);
+
+        long throttles = 0;
+        for (final LoadDriver.Operation operation : LoadDriver.Operation.values()) {
+            assertThat(report.get(operation).failed).as(operation.name()).isEqualTo(0L);
+            throttles += report.get(operation).throttles;
+        }
+        assertThat(throttles).isGreaterThan(0L);
+        // Transitions outlast the stabilization polls, so creates and deletes hand off to callbacks
+        assertThat(report.get(LoadDriver.Operation.CREATE).callbacks).isGreaterThan(0L);
+        assertThat(report.get(LoadDriver.Operation.DELETE).callbacks).isGreaterThan(0L);
+        assertThat(report.toString()).contains("CREATE", "api calls");
+    }
+
+    @Test
+    public void runRebasesUpdatesOverConcurrentWriters() {
+        final LoadDriver driver = new LoadDriver(0.0, 20L, FakeEc2.DEFAULT_TRANSITION_MILLIS);
+        driver.getEc2().withConcurrentWriteRate(0.1, 7L);
+
+        final LoadDriver.Report report = driver.run(200);
+
+        // Every update lands despite the other writer, after planning again against its version
+        assertThat(driver.getEc2().getConcurrentWrites()).isGreaterThan(0L);
+        assertThat(report.get(LoadDriver.Operation.UPDATE).completed).isEqualTo(200L);
+        assertThat(report.get(LoadDriver.Operation.UPDATE).failed).isEqualTo(0L);
+        assertThat(report.callsByAction.get("ModifyManagedPrefixList"))
+                .isEqualTo(200L + driver.getEc2().getConcurrentWrites());
+    }
+}
@@ -0,0 +1,50 @@
+package software.amazon.ec2.prefixlist;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelFetcherTest {
+
+    @Test
+    public void mapOrderedReturnsResultsInInputOrder() {
+        assertThat(ParallelFetcher.mapOrdered(ImmutableList.of(1, 2, 3, 4, 5), input -> input * 10, 3))
+                .containsExactly(10, 20, 30, 40, 50);
+    }
+
+    @Test
+    public void mapOrderedLetsInFlightWorkersFinishBeforeThrowing() {
+        final CountDownLatch othersStarted = new CountDownLatch(2);
+        final AtomicInteger running = new AtomicInteger();
+
+        // The first item fails only once the other two are mid-call
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ParallelFetcher.mapOrdered(ImmutableList.of(0, 1, 2), input -> {
+            if (input == 0) {
+                await(othersStarted);
+                throw new IllegalArgumentException("Injected failure");
+            }
+            running.incrementAndGet();
+            othersStarted.countDown();
+            ModuleHelper.sleepQuietly(200L);
+            running.decrementAndGet();
+            return input;
+        }, 3));
+
+        assertThat(running).hasValue(0);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package software.amazon.ec2.prefixlist;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PollingDelayPolicyTest {
+
+    @Test
+    public void getDelaySecondsStartsShortForSmallChanges() {
+        assertThat(PollingDelayPolicy.getDelaySeconds(0, 0, 1)).isEqualTo(1);
+        assertThat(PollingDelayPolicy.getDelaySeconds(1, 1, 1)).isEqualTo(2);
+        assertThat(PollingDelayPolicy.getDelaySeconds(2, 3, 1)).isEqualTo(4);
+    }
+
+    @Test
+    public void getDelaySecondsStartsLongerForLargeChanges() {
+        assertThat(PollingDelayPolicy.getDelaySeconds(0, 0, 200)).isEqualTo(2);
+        assertThat(PollingDelayPolicy.getDelaySeconds(0, 0, 1000)).isEqualTo(PollingDelayPolicy.MAX_BASE_DELAY_SECONDS);
+    }
+
+    @Test
+    public void getDelaySecondsIsBoundedByElapsedTimeAndMaximum() {
+        assertThat(PollingDelayPolicy.getDelaySeconds(0, 100, 1)).isEqualTo(20);
+        assertThat(PollingDelayPolicy.getDelaySeconds(40, 0, 1)).isEqualTo(PollingDelayPolicy.MAX_DELAY_SECONDS);
+        assertThat(PollingDelayPolicy.getDelaySeconds(0, 1000, 1)).isEqualTo(PollingDelayPolicy.MAX_DELAY_SECONDS);
+    }
+
+    @Test
+    public void nextDelaySecondsRecordsAttemptsInContext() {
+        final CallbackContext context = CallbackContext.builder().build();
+
+        assertThat(PollingDelayPolicy.nextDelaySeconds(context, 0)).isEqualTo(1);
+        assertThat(PollingDelayPolicy.nextDelaySeconds(context, 0)).isEqualTo(2);
+
+        assertThat(context.getPollAttempts()).isEqualTo(2);
+        assertThat(context.getLastPollDelaySeconds()).isEqualTo(2);
+        assertThat(context.getTotalPollDelaySeconds()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,91 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.PrefixListState;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.ec2.prefixlist.PrefixListStabilizer.Operation.CREATE;
+import static software.amazon.ec2.prefixlist.PrefixListStabilizer.Operation.DELETE;
+import static software.amazon.ec2.prefixlist.PrefixListStabilizer.Operation.UPDATE;
+import static software.amazon.ec2.prefixlist.PrefixListStabilizer.Outcome.CONTINUE;
+import static software.amazon.ec2.prefixlist.PrefixListStabilizer.Outcome.FAILED;
+import static software.amazon.ec2.prefixlist.PrefixListStabilizer.Outcome.SUCCESS;
+import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_CREATED;
+
+public class PrefixListStabilizerTest {
+
+    @Test
+    public void transitionsCoverEveryStateForEveryOperation() {
+        for (final PrefixListStabilizer.Operation operation : PrefixListStabilizer.Operation.values()) {
+            assertThat(PrefixListStabilizer.TRANSITIONS.get(operation)).containsOnlyKeys(PrefixListState.values());
+        }
+    }
+
+    @Test
+    public void evaluateEndsEachOperationOnItsOwnTerminalStates() {
+        for (final PrefixListStabilizer.Operation operation : PrefixListStabilizer.Operation.values()) {
+            final String prefix = operation == UPDATE ? "modify" : operation.name().toLowerCase();
+            assertThat(PrefixListStabilizer.evaluate(operation, prefix + "-in-progress")).isEqualTo(CONTINUE);
+            assertThat(PrefixListStabilizer.evaluate(operation, prefix + "-complete")).isEqualTo(SUCCESS);
+            assertThat(PrefixListStabilizer.evaluate(operation, prefix + "-failed")).isEqualTo(FAILED);
+        }
+    }
+
+    @Test
+    public void evaluateWaitsForRestoresAndFailsOnDeletesUnderCreateAndUpdate() {
+        for (final PrefixListStabilizer.Operation operation : new PrefixListStabilizer.Operation[] {CREATE, UPDATE}) {
+            assertThat(PrefixListStabilizer.evaluate(operation, "restore-in-progress")).isEqualTo(CONTINUE);
+            assertThat(PrefixListStabilizer.evaluate(operation, "restore-complete")).isEqualTo(SUCCESS);
+            assertThat(PrefixListStabilizer.evaluate(operation, "delete-in-progress")).isEqualTo(FAILED);
+        }
+        assertThat(PrefixListStabilizer.evaluate(DELETE, "restore-complete")).isEqualTo(CONTINUE);
+        assertThat(PrefixListStabilizer.evaluate(DELETE, "modify-complete")).isEqualTo(CONTINUE);
+    }
+
+    @Test
+    public void evaluateFailsCreateAndUpdateOnEveryFailedState() {
+        for (final PrefixListStabilizer.Operation operation : new PrefixListStabilizer.Operation[] {CREATE, UPDATE}) {
+            for (final PrefixListState state : PrefixListState.values()) {
+                if (state.toString().endsWith("-failed")) {
+                    assertThat(PrefixListStabilizer.evaluate(operation, state.toString())).as("%s %s", operation, state).isEqualTo(FAILED);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void evaluateWaitsForTheModifyUnderUpdate() {
+        assertThat(PrefixListStabilizer.evaluate(UPDATE, "create-complete")).isEqualTo(CONTINUE);
+        assertThat(PrefixListStabilizer.evaluate(UPDATE, "modify-in-progress")).isEqualTo(CONTINUE);
+    }
+
+    @Test
+    public void evaluateKeepsPollingOnUnknownStates() {
+        assertThat(PrefixListStabilizer.evaluate(CREATE, null)).isEqualTo(CONTINUE);
+        assertThat(PrefixListStabilizer.evaluate(UPDATE, "archive-in-progress")).isEqualTo(CONTINUE);
+    }
+
+    @Test
+    public void getProgressEventUsesThePluggedDelayPolicy() {
+        final PrefixListStabilizer stabilizer = new PrefixListStabilizer((context, entryChangeCount) -> 7 + entryChangeCount);
+        final CallbackContext context = CallbackContext.builder().mutationStarted(true).build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> continuing =
+                stabilizer.getProgressEvent(UPDATE, "modify-in-progress", RESOURCE_MODEL_CREATED, context, 3, () -> null);
+        final ProgressEvent<ResourceModel, CallbackContext> failed =
+                stabilizer.getProgressEvent(UPDATE, "modify-failed", RESOURCE_MODEL_CREATED, context, 3, () -> null);
+        final ProgressEvent<ResourceModel, CallbackContext> succeeded =
+                stabilizer.getProgressEvent(UPDATE, "modify-complete", RESOURCE_MODEL_CREATED, context, 3, () -> RESOURCE_MODEL_CREATED);
+
+        assertThat(continuing.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(continuing.getCallbackDelaySeconds()).isEqualTo(10);
+        assertThat(continuing.getCallbackContext()).isSameAs(context);
+        assertThat(failed.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(failed.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
+        assertThat(succeeded.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(succeeded.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
+        assertThat(succeeded.getCallbackContext()).isNull();
+    }
+}
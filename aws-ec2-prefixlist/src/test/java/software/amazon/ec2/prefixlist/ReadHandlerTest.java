@@ -1,5 +1,9 @@
 package software.amazon.ec2.prefixlist;
 
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
+import com.google.common.collect.ImmutableList;
+import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
@@ -14,20 +18,37 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_REQUEST;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_WITH_TAGS;
 import static software.amazon.ec2.prefixlist.TestHelper.GET_ENTRIES_REQUEST;
+import static software.amazon.ec2.prefixlist.TestHelper.INVOKERS;
+import static software.amazon.ec2.prefixlist.TestHelper.NEXT_TOKEN;
 import static software.amazon.ec2.prefixlist.TestHelper.GET_ENTRIES_RESULT_NO_MODIFICATION;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1_MODIFIED;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_2;
 import static software.amazon.ec2.prefixlist.TestHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND;
 import static software.amazon.ec2.prefixlist.TestHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ENTRY_1_MODIFIED;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ENTRY_2;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_WITH_TAGS;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_CREATED;
+import static software.amazon.ec2.prefixlist.TestHelper.VERSION_2;
+import static software.amazon.ec2.prefixlist.TestHelper.loggedMetrics;
+import static software.amazon.ec2.prefixlist.TestHelper.metricsLine;
 
 @ExtendWith(MockitoExtension.class)
 public class ReadHandlerTest {
@@ -42,10 +63,11 @@ public class ReadHandlerTest {
 
     @BeforeEach
     public void setup() {
-        handler = new ReadHandler();
+        handler = new ReadHandler(INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES));
     }
     @AfterEach
     public void after() {
+        verify(logger, atLeastOnce()).log(metricsLine());
         verifyNoMoreInteractions(proxy, logger);
     }
 
@@ -67,12 +89,90 @@ public class ReadHandlerTest {
         assertThat(response.getErrorCode()).isNull();
     }
 
+    @Test
+    public void handleRequestServesUnchangedVersionFromEntryCache() {
+        doReturn(DESCRIBE_RESULT_WITH_TAGS).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST),any());
+        doReturn(GET_ENTRIES_RESULT_NO_MODIFICATION).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> firstResponse =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+        final ProgressEvent<ResourceModel, CallbackContext> secondResponse =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(secondResponse.getResourceModel()).isEqualTo(firstResponse.getResourceModel());
+        verify(proxy, times(2)).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        assertThat(loggedMetrics(logger).getLong(HandlerMetrics.ENTRY_CACHE_HITS)).isEqualTo(1L);
+    }
+
+    @Test
+    public void handleRequestFollowsEntryPages() {
+        doReturn(DESCRIBE_RESULT_WITH_TAGS).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST),any());
+        doReturn(new GetManagedPrefixListEntriesResult().withEntries(PREFIX_LIST_ENTRY_1_MODIFIED).withNextToken(NEXT_TOKEN))
+                .when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+        doReturn(new GetManagedPrefixListEntriesResult().withEntries(PREFIX_LIST_ENTRY_2))
+                .when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST.clone().withNextToken(NEXT_TOKEN)),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel().getEntries()).isEqualTo(ImmutableList.of(ENTRY_1_MODIFIED, ENTRY_2));
+
+        final JSONObject metrics = loggedMetrics(logger);
+        assertThat(metrics.getString(HandlerMetrics.HANDLER_DIMENSION)).isEqualTo("ReadHandler");
+        assertThat(metrics.getLong("DescribeManagedPrefixListsCalls")).isEqualTo(1L);
+        assertThat(metrics.getLong("GetManagedPrefixListEntriesCalls")).isEqualTo(2L);
+        assertThat(metrics.getLong(HandlerMetrics.PAGES_FETCHED)).isEqualTo(2L);
+        assertThat(metrics.has(HandlerMetrics.CALLBACKS)).isFalse();
+        assertThat(metrics.has("ReadEntriesTime")).isTrue();
+    }
+
+    @Test
+    public void handleRequestReadsEntriesWhileDescribing() {
+        final CountDownLatch entriesRequested = new CountDownLatch(1);
+        // Describe only answers once the entries were requested, which a sequential read would never do
+        doAnswer(invocation -> {
+            assertThat(entriesRequested.await(5, TimeUnit.SECONDS)).isTrue();
+            return DESCRIBE_RESULT_WITH_TAGS;
+        }).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doAnswer(invocation -> {
+            entriesRequested.countDown();
+            return GET_ENTRIES_RESULT_NO_MODIFICATION;
+        }).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
+    }
+
+    @Test
+    public void handleRequestRereadsEntriesWhenVersionChanged() {
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(PREFIX_LIST_WITH_TAGS.clone().withVersion(VERSION_2)))
+                .when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT_NO_MODIFICATION).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        doReturn(new GetManagedPrefixListEntriesResult().withEntries(PREFIX_LIST_ENTRY_1_MODIFIED, PREFIX_LIST_ENTRY_2))
+                .when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST.clone().withTargetVersion(VERSION_2)), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
+
+        assertThat(response.getResourceModel().getVersion()).isEqualTo((int) VERSION_2);
+        assertThat(response.getResourceModel().getEntries()).isEqualTo(ImmutableList.of(ENTRY_1_MODIFIED, ENTRY_2));
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST.clone().withTargetVersion(VERSION_2)), any());
+    }
+
     @Test()
     public void handleRequestWithPrefixListNotFound() {
         INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION.setErrorCode(INVALID_PREFIX_LIST_ID_NOT_FOUND);
         doThrow(INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doThrow(INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
         Assertions.assertThrows(CfnNotFoundException.class, () -> {
             handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, null, logger);
         });
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
     }
 }
@@ -0,0 +1,86 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+public class StabilizationWaiterTest {
+
+    @Mock
+    private AmazonWebServicesClientProxy proxy;
+
+    private final List<Long> sleeps = new ArrayList<>();
+
+    @Test
+    public void awaitReturnsFirstSettledValue() {
+        final StabilizationWaiter waiter = new StabilizationWaiter(3, 500L, p -> 60_000L, sleeps::add);
+        final AtomicInteger polls = new AtomicInteger();
+
+        final Optional<Integer> value = waiter.await(proxy, polls::incrementAndGet, poll -> poll == 2);
+
+        assertThat(value).contains(2);
+        assertThat(polls.get()).isEqualTo(2);
+        assertThat(sleeps.size()).isEqualTo(2);
+        assertThat(sleeps.get(0)).isEqualTo(500L);
+    }
+
+    @Test
+    public void awaitReturnsEmptyWhenPollsAreExhausted() {
+        final StabilizationWaiter waiter = new StabilizationWaiter(3, 500L, p -> 60_000L, sleeps::add);
+        final AtomicInteger polls = new AtomicInteger();
+
+        final Optional<Integer> value = waiter.await(proxy, polls::incrementAndGet, poll -> false);
+
+        assertThat(value).isEmpty();
+        assertThat(polls.get()).isEqualTo(3);
+        assertThat(sleeps.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void awaitDoesNotPollWithoutEnoughRemainingTime() {
+        final StabilizationWaiter waiter = new StabilizationWaiter(3, 500L,
+                p -> StabilizationWaiter.REMAINING_TIME_RESERVE_MILLIS, sleeps::add);
+        final AtomicInteger polls = new AtomicInteger();
+
+        final Optional<Integer> value = waiter.await(proxy, polls::incrementAndGet, poll -> true);
+
+        assertThat(value).isEmpty();
+        assertThat(polls.get()).isEqualTo(0);
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    public void awaitStopsWaitingOnServiceException() {
+        final StabilizationWaiter waiter = new StabilizationWaiter(3, 500L, p -> 60_000L, sleeps::add);
+        final AtomicInteger polls = new AtomicInteger();
+
+        final Optional<Integer> value = waiter.await(proxy, () -> {
+            polls.incrementAndGet();
+            throw new AmazonEC2Exception("Rate exceeded");
+        }, poll -> true);
+
+        assertThat(value).isEmpty();
+        assertThat(polls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void noWaitNeverPolls() {
+        final AtomicInteger polls = new AtomicInteger();
+
+        final Optional<Integer> value = StabilizationWaiter.NO_WAIT.await(proxy, polls::incrementAndGet, poll -> true);
+
+        assertThat(value).isEmpty();
+        assertThat(polls.get()).isEqualTo(0);
+    }
+}
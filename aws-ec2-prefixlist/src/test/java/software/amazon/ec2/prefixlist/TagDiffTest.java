@@ -0,0 +1,50 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.Tag;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagDiffTest {
+
+    @Test
+    public void computeCreatesOnlyNewAndChangedKeysAndDeletesOnlyRemovedKeys() {
+        final TagDiff diff = TagDiff.compute(
+                ImmutableList.of(tag("Purpose", "Old"), tag("Team", "Network"), tag("Stage", "Beta")),
+                ImmutableList.of(tag("Purpose", "Testing"), tag("Team", "Network"), tag("Owner", "Ops")));
+
+        assertThat(diff.getTagsToCreate()).containsExactly(tag("Purpose", "Testing"), tag("Owner", "Ops"));
+        assertThat(diff.getTagsToDelete()).containsExactly(new Tag().withKey("Stage"));
+        assertThat(diff.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void computeIsEmptyForSameTagsInDifferentOrder() {
+        final TagDiff diff = TagDiff.compute(
+                ImmutableList.of(tag("Purpose", "Testing"), tag("Team", "Network")),
+                ImmutableList.of(tag("Team", "Network"), tag("Purpose", "Testing")));
+
+        assertThat(diff.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void computeTreatsMissingValueAsEmpty() {
+        final TagDiff diff = TagDiff.compute(ImmutableList.of(tag("Purpose", "")), ImmutableList.of(new Tag().withKey("Purpose")));
+
+        assertThat(diff.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void computeHandlesNullLists() {
+        assertThat(TagDiff.compute(null, null).isEmpty()).isTrue();
+        assertThat(TagDiff.compute(null, ImmutableList.of(tag("Purpose", "Testing"))).getTagsToCreate())
+                .containsExactly(tag("Purpose", "Testing"));
+        assertThat(TagDiff.compute(ImmutableList.of(tag("Purpose", "Testing")), null).getTagsToDelete())
+                .containsExactly(new Tag().withKey("Purpose"));
+    }
+
+    private static Tag tag(final String key, final String value) {
+        return new Tag().withKey(key).withValue(value);
+    }
+}
@@ -17,11 +17,19 @@ import com.amazonaws.services.ec2.model.PrefixListEntry;
 import com.amazonaws.services.ec2.model.RemovePrefixListEntry;
 import com.amazonaws.services.ec2.model.TagSpecification;
 import com.google.common.collect.ImmutableList;
+import org.json.JSONObject;
+import org.mockito.ArgumentCaptor;
+import software.amazon.cloudformation.proxy.Logger;
 import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
 class TestHelper {
     static final String ADDRESS_FAMILY_4 = "IPv4";
     static final String ADDRESS_FAMILY_6 = "IPv6";
@@ -35,7 +43,7 @@ class TestHelper {
     static final long VERSION_1 = 1;
     static final long VERSION_2 = 2;
     static final String PREFIX_LIST_ID = "pl-123456";
-    static final Integer POLLING_DELAY_SECONDS = 5;
+    static final Integer POLLING_DELAY_SECONDS = 1;
     static final String INVALID_PREFIX_LIST_ID_NOT_FOUND = "InvalidPrefixListID.NotFound";
     static final String CREATE_IN_PROGRESS = "create-in-progress";
     static final String CREATE_COMPLETE = "create-complete";
@@ -45,6 +53,7 @@ class TestHelper {
     static final String CREATE_FAILED = "create-failed";
     static final String MODIFY_FAILED = "modify-failed";
     static final String DELETE_FAILED = "delete-failed";
+    static final String DELETE_COMPLETE = "delete-complete";
     static final Integer MAX_ENTRIES_5 = 5;
     static final Integer MAX_ENTRIES_6 = 6;
     static final String OWNER_ID = "123456789";
@@ -164,6 +173,13 @@ class TestHelper {
             .desiredResourceState(RESOURCE_MODEL_CREATED)
             .build();
 
+    static final String NEXT_TOKEN = "next-token";
+
+    static final ResourceHandlerRequest<ResourceModel> RESOURCE_HANDLER_REQUEST_WITH_NEXT_TOKEN = ResourceHandlerRequest.<ResourceModel>builder()
+            .desiredResourceState(RESOURCE_MODEL_CREATED)
+            .nextToken(NEXT_TOKEN)
+            .build();
+
     static final ResourceHandlerRequest<ResourceModel> RESOURCE_HANDLER_REQUEST_WITH_DIFFERENT_PREFIX_LIST_NAME = ResourceHandlerRequest.<ResourceModel>builder()
             .desiredResourceState(RESOURCE_MODEL_WITH_DIFFERENT_PREFIX_LIST_NAME)
             .build();
@@ -215,6 +231,7 @@ class TestHelper {
     static final ManagedPrefixList PREFIX_LIST_DELETE_IN_PROGRESS = PREFIX_LIST.clone().withState(DELETE_IN_PROGRESS);
 
     static final ManagedPrefixList PREFIX_LIST_DELETE_FAILED = PREFIX_LIST.clone().withState(DELETE_FAILED);
+    static final ManagedPrefixList PREFIX_LIST_DELETE_COMPLETE = PREFIX_LIST.clone().withState(DELETE_COMPLETE);
 
     static final ManagedPrefixList PREFIX_LIST_WITH_TAGS = PREFIX_LIST.clone().withTags(EC2_TAG_LIST);
 
@@ -223,6 +240,11 @@ class TestHelper {
     static final DescribeManagedPrefixListsRequest DESCRIBE_REQUEST = new DescribeManagedPrefixListsRequest()
             .withPrefixListIds(ImmutableList.of(PREFIX_LIST_ID));
 
+    static final int LIST_PAGE_SIZE = 100;
+
+    static final DescribeManagedPrefixListsRequest LIST_DESCRIBE_REQUEST = new DescribeManagedPrefixListsRequest()
+            .withMaxResults(LIST_PAGE_SIZE);
+
     static final DescribeManagedPrefixListsResult DESCRIBE_RESULT = new DescribeManagedPrefixListsResult()
             .withPrefixLists(ImmutableList.of(PREFIX_LIST));
 
@@ -256,6 +278,9 @@ class TestHelper {
     static final DescribeManagedPrefixListsResult DESCRIBE_RESULT_DELETE_FAILED = new DescribeManagedPrefixListsResult()
             .withPrefixLists(ImmutableList.of(PREFIX_LIST_DELETE_FAILED));
 
+    static final DescribeManagedPrefixListsResult DESCRIBE_RESULT_DELETE_COMPLETE = new DescribeManagedPrefixListsResult()
+            .withPrefixLists(ImmutableList.of(PREFIX_LIST_DELETE_COMPLETE));
+
     static final DescribeManagedPrefixListsResult DESCRIBE_RESULT_UPDATED_MAX_ENTRIES = new DescribeManagedPrefixListsResult()
             .withPrefixLists(ImmutableList.of(PREFIX_LIST_WITH_UPDATED_MAX_ENTRIES));
 
@@ -263,8 +288,12 @@ class TestHelper {
             .withPrefixLists(ImmutableList.of(PREFIX_LIST_WITH_UPDATED_ADDRESS_FAMILY));
 
     // GetManagedPrefixList Requests and Results
+    static final int ENTRIES_MAX_RESULTS = 100;
+
     static final GetManagedPrefixListEntriesRequest GET_ENTRIES_REQUEST = new GetManagedPrefixListEntriesRequest()
-            .withPrefixListId(PREFIX_LIST_ID);
+            .withPrefixListId(PREFIX_LIST_ID)
+            .withMaxResults(ENTRIES_MAX_RESULTS)
+            .withTargetVersion(VERSION_1);
 
     static final GetManagedPrefixListEntriesResult GET_ENTRIES_RESULT = new GetManagedPrefixListEntriesResult()
             .withEntries(PREFIX_LIST_ENTRIES);
@@ -292,7 +321,12 @@ class TestHelper {
     static final DeleteTagsResult DELETE_TAGS_RESULT = new DeleteTagsResult();
 
     // CallbackContexts
-    static final CallbackContext CONTEXT_MUTATION_NOT_STARTED = CallbackContext.builder().build();
+    static final String TRACE_ID = "1-5f5a4f00-0123456789abcdef01234567";
+    static final String TRACE_ID_PATTERN = "1-[0-9a-f]{8}-[0-9a-f]{24}";
+
+    static final CallbackContext CONTEXT_MUTATION_NOT_STARTED = CallbackContext.builder()
+            .traceId(TRACE_ID)
+            .build();
 
     static final CallbackContext CONTEXT_TAGS_UPDATED = CONTEXT_MUTATION_NOT_STARTED.toBuilder()
             .tagsUpdated(true)
@@ -310,6 +344,50 @@ class TestHelper {
             .prefixListId(PREFIX_LIST_ID)
             .build();
 
+    // A handler called without a callback context starts a new trace, whose id is asserted and then swapped for TRACE_ID
+    static CallbackContext withStubbedTraceId(final CallbackContext context) {
+        assertThat(context.getTraceId()).matches(TRACE_ID_PATTERN);
+        return context.toBuilder().traceId(TRACE_ID).build();
+    }
+
+    static CallbackContext afterFirstPoll(final CallbackContext context) {
+        return context.toBuilder()
+                .pollAttempts(1)
+                .lastPollDelaySeconds(POLLING_DELAY_SECONDS)
+                .totalPollDelaySeconds(POLLING_DELAY_SECONDS)
+                .build();
+    }
+
+    // Polls up to three times without sleeping, with plenty of invocation time left
+    static final StabilizationWaiter IMMEDIATE_WAITER = new StabilizationWaiter(3, 0L, proxy -> 60_000L, millis -> { });
+
+    // Invokes through the proxy without rate limiting or backoff sleeps, with plenty of invocation time left
+    static final Ec2Invoker.Factory INVOKERS = (proxy, metrics) ->
+            new Ec2Invoker(proxy, metrics, p -> 60_000L, ActionRateLimiter.UNLIMITED, millis -> { });
+
+    // Every handler invocation ends with one embedded metric format line
+    static boolean isMetricsLine(final String line) {
+        return line != null && line.startsWith("{") && line.contains("\"_aws\"");
+    }
+
+    static String metricsLine() {
+        return argThat(TestHelper::isMetricsLine);
+    }
+
+    static String logLine() {
+        return argThat(line -> !isMetricsLine(line));
+    }
+
+    static JSONObject loggedMetrics(final Logger logger) {
+        final ArgumentCaptor<String> lines = ArgumentCaptor.forClass(String.class);
+        verify(logger, atLeastOnce()).log(lines.capture());
+        return lines.getAllValues().stream()
+                .filter(TestHelper::isMetricsLine)
+                .map(JSONObject::new)
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new AssertionError("No metrics were logged"));
+    }
+
     // EC2 Exception
     static final AmazonEC2Exception INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION = new AmazonEC2Exception("Id Not Found");
 
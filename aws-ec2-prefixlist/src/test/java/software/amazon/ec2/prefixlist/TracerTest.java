@@ -0,0 +1,113 @@
+package software.amazon.ec2.prefixlist;
+
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.cloudformation.proxy.OperationStatus;
+import software.amazon.cloudformation.proxy.ProgressEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ID;
+import static software.amazon.ec2.prefixlist.TestHelper.TRACE_ID_PATTERN;
+
+public class TracerTest {
+    private final AtomicLong clock = new AtomicLong(1_000L);
+
+    @Test
+    public void newTraceIdStartsAtTheClocksEpochSecond() {
+        clock.set(1_600_000_000_999L);
+
+        assertThat(new Tracer("CreateHandler", clock::get).getTraceId()).startsWith("1-5f5e1000-");
+    }
+
+    @Test
+    public void joinCarriesTheTraceIdAcrossCallbacks() {
+        final CallbackContext context = CallbackContext.builder().build();
+        final Tracer first = new Tracer("UpdateHandler", clock::get);
+        first.join(context);
+
+        final Tracer callback = new Tracer("UpdateHandler", clock::get);
+        callback.join(context.toBuilder().build());
+
+        assertThat(first.getTraceId()).matches(TRACE_ID_PATTERN);
+        assertThat(context.getTraceId()).isEqualTo(first.getTraceId());
+        assertThat(callback.getTraceId()).isEqualTo(first.getTraceId());
+    }
+
+    @Test
+    public void traceRecordsTimingAndOutcome() {
+        final Tracer tracer = new Tracer("ReadHandler", clock::get);
+
+        tracer.trace("GetManagedPrefixListEntries", PREFIX_LIST_ID, 2, 1, () -> clock.addAndGet(40L));
+        Assertions.assertThrows(AmazonEC2Exception.class, () -> tracer.trace("DescribeManagedPrefixLists", PREFIX_LIST_ID, null, 1, () -> {
+            final AmazonEC2Exception exception = new AmazonEC2Exception("Injected failure");
+            exception.setErrorCode("RequestLimitExceeded");
+            throw exception;
+        }));
+
+        final List<Tracer.Span> spans = tracer.getSpans();
+        assertThat(spans).hasSize(2);
+        assertThat(spans.get(0).getAction()).isEqualTo("GetManagedPrefixListEntries");
+        assertThat(spans.get(0).getPage()).isEqualTo(2);
+        assertThat(spans.get(0).getOutcome()).isEqualTo(Tracer.SUCCESS_OUTCOME);
+        assertThat(spans.get(0).getEndMillis() - spans.get(0).getStartMillis()).isEqualTo(40L);
+        assertThat(spans.get(1).getOutcome()).isEqualTo("RequestLimitExceeded");
+        assertThat(spans.get(1).getPage()).isNull();
+    }
+
+    @Test
+    public void recordExportsTheInvocationsSpans() {
+        final InMemorySpanExporter exporter = new InMemorySpanExporter();
+        final List<String> lines = new ArrayList<>();
+        final CallbackContext context = CallbackContext.builder().build();
+
+        HandlerMetrics.record("DeleteHandler", lines::add, exporter, metrics -> {
+            metrics.getTracer().join(context);
+            metrics.getTracer().trace("DeleteManagedPrefixList", PREFIX_LIST_ID, null, 1, () -> null);
+            return ProgressEvent.<ResourceModel, CallbackContext>builder()
+                    .callbackContext(context)
+                    .status(OperationStatus.IN_PROGRESS)
+                    .build();
+        });
+
+        assertThat(exporter.getTraces()).hasSize(1);
+        assertThat(exporter.getTraces().get(0).getTraceId()).isEqualTo(context.getTraceId());
+        assertThat(exporter.getSpans()).extracting(Tracer.Span::getAction).containsExactly("DeleteManagedPrefixList");
+        // Only the metrics line is logged; the exporter owns span output
+        assertThat(lines).hasSize(1);
+    }
+
+    @Test
+    public void xRaySegmentNestsOneSubsegmentPerAttempt() {
+        final Tracer tracer = new Tracer("UpdateHandler", clock::get);
+        Assertions.assertThrows(AmazonEC2Exception.class, () -> tracer.trace("ModifyManagedPrefixList", PREFIX_LIST_ID, null, 1, () -> {
+            final AmazonEC2Exception exception = new AmazonEC2Exception("Injected failure");
+            exception.setErrorCode("Throttling");
+            throw exception;
+        }));
+        tracer.trace("ModifyManagedPrefixList", PREFIX_LIST_ID, null, 2, () -> clock.addAndGet(250L));
+        final List<String> lines = new ArrayList<>();
+
+        new XRaySpanExporter(lines::add).export(tracer);
+
+        assertThat(lines).hasSize(1);
+        final JSONObject segment = new JSONObject(lines.get(0));
+        assertThat(segment.getString("trace_id")).isEqualTo(tracer.getTraceId());
+        assertThat(segment.getString("name")).isEqualTo(ResourceModel.TYPE_NAME);
+        assertThat(segment.getJSONObject("annotations").getString(XRaySpanExporter.HANDLER_ANNOTATION)).isEqualTo("UpdateHandler");
+        assertThat(segment.getDouble("start_time")).isEqualTo(1.0);
+        final JSONObject throttled = segment.getJSONArray("subsegments").getJSONObject(0);
+        final JSONObject succeeded = segment.getJSONArray("subsegments").getJSONObject(1);
+        assertThat(throttled.getBoolean("throttle")).isTrue();
+        assertThat(throttled.getJSONObject("annotations").getString(XRaySpanExporter.PREFIX_LIST_ID_ANNOTATION)).isEqualTo(PREFIX_LIST_ID);
+        assertThat(succeeded.has("error")).isFalse();
+        assertThat(succeeded.getJSONObject("annotations").getInt(XRaySpanExporter.ATTEMPT_ANNOTATION)).isEqualTo(2);
+        assertThat(succeeded.getDouble("end_time") - succeeded.getDouble("start_time")).isEqualTo(0.25);
+        assertThat(succeeded.getJSONObject("aws").getString("operation")).isEqualTo("ModifyManagedPrefixList");
+    }
+}
@@ -1,31 +1,51 @@
 package software.amazon.ec2.prefixlist;
 
+import com.amazonaws.services.ec2.model.AddPrefixListEntry;
+import com.amazonaws.services.ec2.model.AmazonEC2Exception;
+import com.amazonaws.services.ec2.model.DeleteTagsRequest;
+import com.amazonaws.services.ec2.model.DescribeManagedPrefixListsResult;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesRequest;
+import com.amazonaws.services.ec2.model.GetManagedPrefixListEntriesResult;
+import com.amazonaws.services.ec2.model.ManagedPrefixList;
 import com.amazonaws.services.ec2.model.ModifyManagedPrefixListRequest;
 import com.amazonaws.services.ec2.model.ModifyManagedPrefixListResult;
+import com.amazonaws.services.ec2.model.PrefixListEntry;
 import com.google.common.collect.ImmutableList;
+import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import software.amazon.cloudformation.exceptions.CfnInvalidRequestException;
 import software.amazon.cloudformation.exceptions.CfnNotFoundException;
 import software.amazon.cloudformation.proxy.AmazonWebServicesClientProxy;
+import software.amazon.cloudformation.proxy.Credentials;
 import software.amazon.cloudformation.proxy.Logger;
+import software.amazon.cloudformation.proxy.LoggerProxy;
 import software.amazon.cloudformation.proxy.OperationStatus;
 import software.amazon.cloudformation.proxy.ProgressEvent;
+import software.amazon.cloudformation.proxy.ResourceHandlerRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static software.amazon.ec2.prefixlist.TestHelper.ADD_PREFIX_LIST_ENTRY_1_MODIFIED;
 import static software.amazon.ec2.prefixlist.TestHelper.ADD_PREFIX_LIST_ENTRY_2;
+import static software.amazon.ec2.prefixlist.TestHelper.CIDR_3;
 import static software.amazon.ec2.prefixlist.TestHelper.CONTEXT_MUTATION_NOT_STARTED;
 import static software.amazon.ec2.prefixlist.TestHelper.CONTEXT_MUTATION_STARTED_AND_TAGS_UPDATED;
 import static software.amazon.ec2.prefixlist.TestHelper.CONTEXT_TAGS_UPDATED;
@@ -41,12 +61,22 @@ import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_MODIFY_I
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_UPDATED_ADDRESS_FAMILY;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_UPDATED_MAX_ENTRIES;
 import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_WITH_MODIFIED_NAME;
+import static software.amazon.ec2.prefixlist.TestHelper.DESCRIBE_RESULT_WITH_TAGS;
 import static software.amazon.ec2.prefixlist.TestHelper.GET_ENTRIES_REQUEST;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_1_MODIFIED;
+import static software.amazon.ec2.prefixlist.TestHelper.ENTRY_2;
 import static software.amazon.ec2.prefixlist.TestHelper.GET_ENTRIES_RESULT;
 import static software.amazon.ec2.prefixlist.TestHelper.GET_ENTRIES_RESULT_NO_MODIFICATION;
+import static software.amazon.ec2.prefixlist.TestHelper.IMMEDIATE_WAITER;
 import static software.amazon.ec2.prefixlist.TestHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND;
 import static software.amazon.ec2.prefixlist.TestHelper.INVALID_PREFIX_LIST_ID_NOT_FOUND_EXCEPTION;
+import static software.amazon.ec2.prefixlist.TestHelper.INVOKERS;
+import static software.amazon.ec2.prefixlist.TestHelper.MODIFY_COMPLETE;
 import static software.amazon.ec2.prefixlist.TestHelper.NOT_UPDATABLE_MESSAGE;
+import static software.amazon.ec2.prefixlist.TestHelper.POLLING_DELAY_SECONDS;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ENTRY_1;
+import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ENTRY_2;
 import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_ID;
 import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_MODIFIED;
 import static software.amazon.ec2.prefixlist.TestHelper.PREFIX_LIST_NAME;
@@ -58,7 +88,14 @@ import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_HANDLER_REQUEST
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_MODIFIED;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_WITH_DIFFERENT_PREFIX_LIST_NAME;
 import static software.amazon.ec2.prefixlist.TestHelper.RESOURCE_MODEL_CREATED;
+import static software.amazon.ec2.prefixlist.TestHelper.TAG_KEY_1;
 import static software.amazon.ec2.prefixlist.TestHelper.VERSION_1;
+import static software.amazon.ec2.prefixlist.TestHelper.VERSION_2;
+import static software.amazon.ec2.prefixlist.TestHelper.afterFirstPoll;
+import static software.amazon.ec2.prefixlist.TestHelper.convertToEntries;
+import static software.amazon.ec2.prefixlist.TestHelper.loggedMetrics;
+import static software.amazon.ec2.prefixlist.TestHelper.metricsLine;
+import static software.amazon.ec2.prefixlist.TestHelper.logLine;
 
 @ExtendWith(MockitoExtension.class)
 public class UpdateHandlerTest {
@@ -73,11 +110,12 @@ public class UpdateHandlerTest {
 
     @BeforeEach
     public void setup() {
-        handler = new UpdateHandler();
+        handler = new UpdateHandler(StabilizationWaiter.NO_WAIT, INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES));
     }
 
     @AfterEach
     public void after() {
+        verify(logger, atLeastOnce()).log(metricsLine());
         verifyNoMoreInteractions(proxy, logger);
     }
 
@@ -91,6 +129,23 @@ public class UpdateHandlerTest {
         });
     }
 
+    @Test
+    public void handleRequestRejectsInvalidEntriesBeforeAnyCall() {
+        final ResourceModel model = ResourceModel.builder()
+                .maxEntries(RESOURCE_MODEL_MODIFIED.getMaxEntries())
+                .addressFamily(RESOURCE_MODEL_MODIFIED.getAddressFamily())
+                .prefixListName(RESOURCE_MODEL_MODIFIED.getPrefixListName())
+                .prefixListId(PREFIX_LIST_ID)
+                .entries(ImmutableList.of(ENTRY_2, ENTRY_2))
+                .tags(RESOURCE_MODEL_MODIFIED.getTags())
+                .build();
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .build();
+
+        Assertions.assertThrows(CfnInvalidRequestException.class, () -> handler.handleRequest(proxy, request, null, logger));
+    }
+
     @Test
     public void handleRequestWithOnlyTagUpdate() {
         doReturn(DESCRIBE_RESULT).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST),any());
@@ -112,6 +167,46 @@ public class UpdateHandlerTest {
         assertThat(response.getErrorCode()).isNull();
     }
 
+    @Test
+    public void handleRequestWithChangedAndRemovedTagsTouchesOnlyThoseKeys() {
+        final ManagedPrefixList prefixListWithOldTags = PREFIX_LIST.clone().withTags(
+                new com.amazonaws.services.ec2.model.Tag().withKey(TAG_KEY_1).withValue("Old"),
+                new com.amazonaws.services.ec2.model.Tag().withKey("Stage").withValue("Beta"));
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(prefixListWithOldTags))
+                .when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT_NO_MODIFICATION).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        doReturn(CREATE_TAGS_RESULT).when(proxy).injectCredentialsAndInvoke(eq(CREATE_TAGS_REQUEST), any());
+        final DeleteTagsRequest deleteTagsRequest = new DeleteTagsRequest()
+                .withResources(PREFIX_LIST_ID)
+                .withTags(new com.amazonaws.services.ec2.model.Tag().withKey("Stage"));
+        doReturn(DELETE_TAGS_RESULT).when(proxy).injectCredentialsAndInvoke(eq(deleteTagsRequest), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_MUTATION_NOT_STARTED, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
+        verify(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(CREATE_TAGS_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(deleteTagsRequest), any());
+    }
+
+    @Test
+    public void handleRequestWithUnchangedTagsMakesNoTagCalls() {
+        doReturn(DESCRIBE_RESULT_WITH_TAGS).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT_NO_MODIFICATION).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_MUTATION_NOT_STARTED, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        verify(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+    }
+
     @Test
     public void handleRequestWithOnlyNameUpdate() {
         doReturn(DESCRIBE_RESULT_WITH_MODIFIED_NAME).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST),any());
@@ -163,7 +258,18 @@ public class UpdateHandlerTest {
 
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
-        assertThat(response.getCallbackContext()).isEqualTo(CONTEXT_MUTATION_STARTED_AND_TAGS_UPDATED);
+        // The context records the plan by base version and hash rather than carrying the entries
+        final EntryUpdatePlan plan = EntryUpdatePlan.compute(VERSION_1,
+                convertToEntries(GET_ENTRIES_RESULT.getEntries()), RESOURCE_MODEL_CREATED.getEntries());
+        assertThat(plan.getAddEntries()).containsExactly(ENTRY_1_MODIFIED, ENTRY_2);
+        assertThat(plan.getRemoveCidrs()).containsExactly(CIDR_3);
+        assertThat(response.getCallbackContext()).isEqualTo(CONTEXT_MUTATION_STARTED_AND_TAGS_UPDATED.toBuilder()
+                .planBaseVersion(VERSION_1)
+                .planHash(plan.getHash())
+                .chunkCount(1)
+                .chunkEntryCount(3)
+                .expectedVersion(VERSION_2)
+                .build());
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(0);
 
         assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
@@ -171,7 +277,118 @@ public class UpdateHandlerTest {
         assertThat(response.getResourceModels()).isNull();
         assertThat(response.getMessage()).isNull();
         assertThat(response.getErrorCode()).isNull();
-        verify(logger).log(any());
+        verify(logger).log(logLine());
+
+        final JSONObject metrics = loggedMetrics(logger);
+        assertThat(metrics.getString(HandlerMetrics.HANDLER_DIMENSION)).isEqualTo("UpdateHandler");
+        assertThat(metrics.getLong("DescribeManagedPrefixListsCalls")).isEqualTo(1L);
+        assertThat(metrics.getLong("GetManagedPrefixListEntriesCalls")).isEqualTo(1L);
+        assertThat(metrics.getLong("ModifyManagedPrefixListCalls")).isEqualTo(1L);
+        assertThat(metrics.getLong(HandlerMetrics.PAGES_FETCHED)).isEqualTo(1L);
+        assertThat(metrics.getLong(HandlerMetrics.ENTRIES_DIFFED)).isEqualTo(4L);
+        assertThat(metrics.getLong(HandlerMetrics.CALLBACKS)).isEqualTo(1L);
+        assertThat(metrics.has("MutateTime")).isTrue();
+    }
+
+    @Test
+    public void handleRequestWithEntryUpdateSettlingWithinInvocation() {
+        handler = new UpdateHandler(IMMEDIATE_WAITER, INVOKERS, new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES));
+        // The first poll still shows the previous version, so the waiter keeps polling until the modify is visible
+        doReturn(DESCRIBE_RESULT, DESCRIBE_RESULT, DESCRIBE_RESULT_MODIFY_COMPLETE)
+                .when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+
+        final ModifyManagedPrefixListRequest modifyRequest = new ModifyManagedPrefixListRequest()
+                .withCurrentVersion(VERSION_1)
+                .withAddEntries(ImmutableList.of(ADD_PREFIX_LIST_ENTRY_1_MODIFIED, ADD_PREFIX_LIST_ENTRY_2))
+                .withRemoveEntries(ImmutableList.of(REMOVE_PREFIX_LIST_ENTRY_3))
+                .withPrefixListId(PREFIX_LIST_ID)
+                .withPrefixListName(PREFIX_LIST_NAME);
+        doReturn(new ModifyManagedPrefixListResult().withPrefixList(PREFIX_LIST_MODIFIED))
+                .when(proxy).injectCredentialsAndInvoke(eq(modifyRequest), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_TAGS_UPDATED, logger);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_MODIFIED);
+        assertThat(response.getCallbackContext()).isNull();
+        assertThat(response.getMessage()).isNull();
+        assertThat(response.getErrorCode()).isNull();
+        verify(proxy, times(3)).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(modifyRequest), any());
+        verify(logger).log(logLine());
+    }
+
+    @Test
+    public void handleRequestWithLargeEntryUpdateAppliesChunksInVersionOrder() {
+        final List<Entry> desiredEntries = new ArrayList<>();
+        final List<AddPrefixListEntry> addPrefixListEntries = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            final String cidr = String.format("10.0.%d.%d/32", i / 256, i % 256);
+            desiredEntries.add(Entry.builder().cidr(cidr).build());
+            addPrefixListEntries.add(new AddPrefixListEntry().withCidr(cidr));
+        }
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(ResourceModel.builder()
+                        .prefixListId(PREFIX_LIST_ID)
+                        .prefixListName(PREFIX_LIST_NAME)
+                        .addressFamily(PREFIX_LIST.getAddressFamily())
+                        .maxEntries(200)
+                        .entries(desiredEntries)
+                        .build())
+                .build();
+        final ManagedPrefixList prefixList = PREFIX_LIST.clone().withMaxEntries(200);
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(prefixList))
+                .when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST),any());
+        doReturn(new GetManagedPrefixListEntriesResult()).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST),any());
+
+        final ModifyManagedPrefixListRequest firstChunk = new ModifyManagedPrefixListRequest()
+                .withPrefixListId(PREFIX_LIST_ID)
+                .withPrefixListName(PREFIX_LIST_NAME)
+                .withCurrentVersion(VERSION_1)
+                .withAddEntries(addPrefixListEntries.subList(0, 100))
+                .withRemoveEntries(ImmutableList.of());
+        doReturn(new ModifyManagedPrefixListResult()).when(proxy).injectCredentialsAndInvoke(eq(firstChunk),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> firstResponse =
+                handler.handleRequest(proxy, request, CONTEXT_TAGS_UPDATED, logger);
+
+        assertThat(firstResponse.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(firstResponse.getCallbackContext().getChunkIndex()).isEqualTo(0);
+        assertThat(firstResponse.getCallbackContext().getExpectedVersion()).isEqualTo(VERSION_2);
+
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(prefixList.clone().withVersion(VERSION_2).withState(MODIFY_COMPLETE)))
+                .when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST),any());
+        final ModifyManagedPrefixListRequest secondChunk = new ModifyManagedPrefixListRequest()
+                .withPrefixListId(PREFIX_LIST_ID)
+                .withCurrentVersion(VERSION_2)
+                .withAddEntries(addPrefixListEntries.subList(100, 150))
+                .withRemoveEntries(ImmutableList.of());
+        doReturn(new ModifyManagedPrefixListResult()).when(proxy).injectCredentialsAndInvoke(eq(secondChunk),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> secondResponse =
+                handler.handleRequest(proxy, request, firstResponse.getCallbackContext(), logger);
+
+        assertThat(secondResponse.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(secondResponse.getCallbackContext().getChunkIndex()).isEqualTo(1);
+        assertThat(secondResponse.getCallbackContext().getExpectedVersion()).isEqualTo(VERSION_2 + 1);
+
+        doReturn(new DescribeManagedPrefixListsResult().withPrefixLists(prefixList.clone().withVersion(VERSION_2 + 1).withState(MODIFY_COMPLETE)))
+                .when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST),any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> finalResponse =
+                handler.handleRequest(proxy, request, secondResponse.getCallbackContext(), logger);
+
+        assertThat(finalResponse.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(finalResponse.getResourceModel().getVersion()).isEqualTo((int) VERSION_2 + 1);
+        verify(proxy).injectCredentialsAndInvoke(eq(firstChunk), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(secondChunk), any());
+        verify(proxy, times(6)).injectCredentialsAndInvoke(any(), any());
+        verify(logger, times(2)).log(logLine());
+        verify(logger, times(3)).log(metricsLine());
     }
 
     @Test
@@ -183,7 +400,7 @@ public class UpdateHandlerTest {
 
         assertThat(response).isNotNull();
         assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
-        assertThat(response.getCallbackContext()).isEqualTo(CONTEXT_MUTATION_STARTED_AND_TAGS_UPDATED);
+        assertThat(response.getCallbackContext()).isEqualTo(afterFirstPoll(CONTEXT_MUTATION_STARTED_AND_TAGS_UPDATED));
         assertThat(response.getCallbackDelaySeconds()).isEqualTo(TestHelper.POLLING_DELAY_SECONDS);
 
         assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_CREATED);
@@ -228,6 +445,176 @@ public class UpdateHandlerTest {
         assertThat(response.getErrorCode()).isNull();
     }
 
+    @Test
+    public void handleRequestWaitsForTheLastChunksVersionBeforeReportingSuccess() {
+        final CallbackContext lastChunkApplied = CONTEXT_MUTATION_STARTED_AND_TAGS_UPDATED.toBuilder()
+                .chunkCount(1)
+                .expectedVersion(VERSION_2)
+                .build();
+        // The first describe still shows the previous modify at the version before the last chunk
+        final DescribeManagedPrefixListsResult lagging = new DescribeManagedPrefixListsResult()
+                .withPrefixLists(PREFIX_LIST.clone().withState(MODIFY_COMPLETE).withVersion(VERSION_1));
+        when(proxy.injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any())).thenReturn(lagging, DESCRIBE_RESULT_MODIFY_COMPLETE);
+
+        final ProgressEvent<ResourceModel, CallbackContext> lagged =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, lastChunkApplied, logger);
+
+        assertThat(lagged.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(lagged.getCallbackContext()).isEqualTo(afterFirstPoll(lastChunkApplied));
+        assertThat(lagged.getCallbackDelaySeconds()).isEqualTo(POLLING_DELAY_SECONDS);
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, lagged.getCallbackContext(), logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(response.getResourceModel()).isEqualTo(RESOURCE_MODEL_MODIFIED);
+        verify(proxy, times(2)).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+    }
+
+    @Test
+    public void handleRequestWaitsForChangeInProgressBeforePlanning() {
+        doReturn(DESCRIBE_RESULT_MODIFY_IN_PROGRESS).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy)
+                .injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST.clone().withTargetVersion(null)), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_TAGS_UPDATED, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackContext()).isEqualTo(afterFirstPoll(CONTEXT_TAGS_UPDATED));
+        assertThat(response.getCallbackDelaySeconds()).isEqualTo(POLLING_DELAY_SECONDS);
+        verify(proxy, times(2)).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handlerRequestFailsWhenPlanNoLongerMatchesBaseEntries() {
+        when(proxy.injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any())).thenReturn(DESCRIBE_RESULT_MODIFY_COMPLETE);
+        when(proxy.injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any())).thenReturn(GET_ENTRIES_RESULT);
+        final CallbackContext context = CONTEXT_MUTATION_STARTED_AND_TAGS_UPDATED.toBuilder()
+                .planBaseVersion(VERSION_1)
+                .planHash("stale")
+                .chunkCount(2)
+                .expectedVersion(VERSION_2)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, context, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getMessage()).isEqualTo("Entries changed while the update was in progress.");
+        verify(proxy, times(2)).injectCredentialsAndInvoke(any(), any());
+    }
+
+    @Test
+    public void handleRequestRebasesWhenAnotherWriterChangedTheList() {
+        // The other writer already added entry 2 and removed entry 3, so only entry 1's description is left to change
+        doReturn(DESCRIBE_RESULT, new DescribeManagedPrefixListsResult().withPrefixLists(PREFIX_LIST_MODIFIED))
+                .when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        doReturn(new GetManagedPrefixListEntriesResult().withEntries(PREFIX_LIST_ENTRY_1, PREFIX_LIST_ENTRY_2))
+                .when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST.clone().withTargetVersion(VERSION_2)), any());
+        final ModifyManagedPrefixListRequest staleModifyRequest = new ModifyManagedPrefixListRequest()
+                .withCurrentVersion(VERSION_1)
+                .withAddEntries(ImmutableList.of(ADD_PREFIX_LIST_ENTRY_1_MODIFIED, ADD_PREFIX_LIST_ENTRY_2))
+                .withRemoveEntries(ImmutableList.of(REMOVE_PREFIX_LIST_ENTRY_3))
+                .withPrefixListId(PREFIX_LIST_ID)
+                .withPrefixListName(PREFIX_LIST_NAME);
+        doThrow(versionMismatch()).when(proxy).injectCredentialsAndInvoke(eq(staleModifyRequest), any());
+        final ModifyManagedPrefixListRequest rebasedModifyRequest = new ModifyManagedPrefixListRequest()
+                .withCurrentVersion(VERSION_2)
+                .withAddEntries(ImmutableList.of(ADD_PREFIX_LIST_ENTRY_1_MODIFIED))
+                .withPrefixListId(PREFIX_LIST_ID)
+                .withPrefixListName(PREFIX_LIST_NAME);
+        doReturn(new ModifyManagedPrefixListResult()).when(proxy).injectCredentialsAndInvoke(eq(rebasedModifyRequest), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_TAGS_UPDATED, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackContext().getRebaseCount()).isEqualTo(1);
+        assertThat(response.getCallbackContext().getPlanBaseVersion()).isEqualTo(VERSION_2);
+        assertThat(response.getCallbackContext().getChunkEntryCount()).isEqualTo(1);
+        assertThat(response.getCallbackContext().getExpectedVersion()).isEqualTo(VERSION_2 + 1);
+        verify(proxy, times(2)).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(proxy, times(2)).injectCredentialsAndInvoke(any(GetManagedPrefixListEntriesRequest.class), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(staleModifyRequest), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(rebasedModifyRequest), any());
+        verify(logger, times(2)).log(logLine());
+        assertThat(loggedMetrics(logger).getLong(HandlerMetrics.REBASES)).isEqualTo(1L);
+    }
+
+    @Test
+    public void handleRequestWaitsOutAnotherChangeInsteadOfRebasing() {
+        doReturn(DESCRIBE_RESULT).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        doThrow(incorrectState()).when(proxy).injectCredentialsAndInvoke(any(ModifyManagedPrefixListRequest.class), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_TAGS_UPDATED, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackDelaySeconds()).isEqualTo(POLLING_DELAY_SECONDS);
+        assertThat(response.getCallbackContext().isMutationStarted()).isFalse();
+        assertThat(response.getCallbackContext().getRebaseCount()).isZero();
+        verify(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        verify(proxy).injectCredentialsAndInvoke(any(ModifyManagedPrefixListRequest.class), any());
+        assertThat(loggedMetrics(logger).has(HandlerMetrics.REBASES)).isFalse();
+    }
+
+    @Test
+    public void handleRequestRebasesBeforeTheNextChunkWhenAnotherWriterModifiedTheList() {
+        final AtomicLong clock = new AtomicLong();
+        final FakeEc2 ec2 = new FakeEc2(clock::get).withTransitionMillis(0L);
+        final ClientBuilder.Factory clients = region -> ec2;
+        final AmazonWebServicesClientProxy fakeProxy = new AmazonWebServicesClientProxy(new LoggerProxy(),
+                new Credentials("access-key", "secret-key", "session-token"), () -> 60_000L);
+        final ResourceModel created = runToCompletion(new CreateHandler(StabilizationWaiter.NO_WAIT, INVOKERS, clients),
+                fakeProxy, chunkedModel(null, 1), clock).getResourceModel();
+        final UpdateHandler updateHandler = new UpdateHandler(StabilizationWaiter.NO_WAIT, INVOKERS,
+                new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES), clients);
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(chunkedModel(created.getPrefixListId(), ModuleHelper.MAX_ENTRIES_PER_MODIFY + 50))
+                .region(FakeEc2.REGION)
+                .build();
+
+        final ProgressEvent<ResourceModel, CallbackContext> firstChunk = updateHandler.handleRequest(fakeProxy, request, null, logger);
+        ec2.modifyManagedPrefixList(new ModifyManagedPrefixListRequest()
+                .withPrefixListId(created.getPrefixListId())
+                .withCurrentVersion(firstChunk.getCallbackContext().getExpectedVersion())
+                .withAddEntries(new AddPrefixListEntry().withCidr("192.168.0.0/24")));
+        final ProgressEvent<ResourceModel, CallbackContext> response = updateHandler.handleRequest(
+                fakeProxy, request, firstChunk.getCallbackContext(), logger);
+
+        assertThat(firstChunk.getCallbackContext().getChunkCount()).isEqualTo(2);
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS);
+        assertThat(response.getCallbackContext().getRebaseCount()).isEqualTo(1);
+        assertThat(response.getCallbackContext().getChunkCount()).isEqualTo(1);
+        // The first chunk, the other writer's modify and the rebased chunk; no modify was sent on the stale version
+        assertThat(ec2.getCalls("ModifyManagedPrefixList")).isEqualTo(3L);
+        verify(logger, times(4)).log(logLine());
+    }
+
+    @Test
+    public void handleRequestFailsOnceTheRebaseBudgetIsSpent() {
+        doReturn(DESCRIBE_RESULT).when(proxy).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        doReturn(GET_ENTRIES_RESULT).when(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        doThrow(versionMismatch()).when(proxy).injectCredentialsAndInvoke(any(ModifyManagedPrefixListRequest.class), any());
+
+        final ProgressEvent<ResourceModel, CallbackContext> response =
+                handler.handleRequest(proxy, RESOURCE_HANDLER_REQUEST_WITH_PREFIX_LIST_ID, CONTEXT_TAGS_UPDATED, logger);
+
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(response.getMessage()).isEqualTo("Prefix list kept changing during the update; gave up after 3 rebases.");
+        final int attempts = ModuleHelper.MAX_VERSION_CONFLICT_REBASES + 1;
+        verify(proxy, times(attempts)).injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any());
+        // The base version's entries are read once and then served from the cache
+        verify(proxy).injectCredentialsAndInvoke(eq(GET_ENTRIES_REQUEST), any());
+        verify(proxy, times(attempts)).injectCredentialsAndInvoke(any(ModifyManagedPrefixListRequest.class), any());
+        verify(logger, times(ModuleHelper.MAX_VERSION_CONFLICT_REBASES)).log(logLine());
+        assertThat(loggedMetrics(logger).getLong(HandlerMetrics.REBASES)).isEqualTo(ModuleHelper.MAX_VERSION_CONFLICT_REBASES);
+    }
+
     @Test
     public void handlerRequestWithUpdateOnMaxEntries() {
         when(proxy.injectCredentialsAndInvoke(eq(DESCRIBE_REQUEST), any())).thenReturn(DESCRIBE_RESULT_UPDATED_MAX_ENTRIES);
@@ -253,4 +640,92 @@ public class UpdateHandlerTest {
         assertThat(response.getResourceModels()).isNull();
         assertThat(response.getMessage()).isEqualTo(NOT_UPDATABLE_MESSAGE);
     }
+
+    @Test
+    public void handleRequestHasNothingToChangeAfterAnAggregatingCreateAndRead() {
+        final AtomicLong clock = new AtomicLong();
+        final FakeEc2 ec2 = new FakeEc2(clock::get).withTransitionMillis(0L);
+        final ClientBuilder.Factory clients = region -> ec2;
+        final EntryCache entryCache = new EntryCache(EntryCache.DEFAULT_MAX_ENTRIES);
+        final AmazonWebServicesClientProxy fakeProxy = new AmazonWebServicesClientProxy(new LoggerProxy(),
+                new Credentials("access-key", "secret-key", "session-token"), () -> 60_000L);
+        final List<Entry> templateEntries = ImmutableList.of(
+                Entry.builder().cidr("10.0.0.0/25").description("web").build(),
+                Entry.builder().cidr("10.0.0.128/25").description("web").build());
+
+        final ResourceModel created = runToCompletion(new CreateHandler(StabilizationWaiter.NO_WAIT, INVOKERS, clients),
+                fakeProxy, aggregatingModel(null, templateEntries), clock).getResourceModel();
+        // The stack reads with its template's properties and the created identifier
+        final ResourceModel read = runToCompletion(new ReadHandler(INVOKERS, entryCache, clients),
+                fakeProxy, aggregatingModel(created.getPrefixListId(), templateEntries), clock).getResourceModel();
+        final ProgressEvent<ResourceModel, CallbackContext> response = runToCompletion(
+                new UpdateHandler(StabilizationWaiter.NO_WAIT, INVOKERS, entryCache, clients),
+                fakeProxy, aggregatingModel(created.getPrefixListId(), templateEntries), clock);
+
+        assertThat(ec2.getManagedPrefixListEntries(new GetManagedPrefixListEntriesRequest().withPrefixListId(created.getPrefixListId()))
+                .getEntries()).extracting(PrefixListEntry::getCidr).containsExactly("10.0.0.0/24");
+        assertThat(read.getEntries()).isEqualTo(templateEntries);
+        assertThat(response.getStatus()).isEqualTo(OperationStatus.SUCCESS);
+        assertThat(ec2.getCalls("ModifyManagedPrefixList")).isZero();
+        // Only the create announced a change
+        verify(logger).log(logLine());
+    }
+
+    private static ResourceModel aggregatingModel(final String prefixListId, final List<Entry> entries) {
+        return ResourceModel.builder()
+                .prefixListId(prefixListId)
+                .prefixListName(PREFIX_LIST_NAME)
+                .addressFamily(RESOURCE_MODEL_MODIFIED.getAddressFamily())
+                .maxEntries(RESOURCE_MODEL_MODIFIED.getMaxEntries())
+                .entries(entries)
+                .aggregateEntries(true)
+                .build();
+    }
+
+    // Calls the handler back, after the delay it asked for on the virtual clock, until it stops returning IN_PROGRESS
+    private ProgressEvent<ResourceModel, CallbackContext> runToCompletion(
+            final BaseHandler<CallbackContext> handler,
+            final AmazonWebServicesClientProxy proxy,
+            final ResourceModel model,
+            final AtomicLong clock) {
+        final ResourceHandlerRequest<ResourceModel> request = ResourceHandlerRequest.<ResourceModel>builder()
+                .desiredResourceState(model)
+                .region(FakeEc2.REGION)
+                .build();
+        CallbackContext context = null;
+        ProgressEvent<ResourceModel, CallbackContext> event;
+        do {
+            event = handler.handleRequest(proxy, request, context, logger);
+            context = event.getCallbackContext();
+            clock.addAndGet(event.getCallbackDelaySeconds() * 1_000L);
+        } while (event.getStatus() == OperationStatus.IN_PROGRESS);
+        return event;
+    }
+
+    // Desired entries 10.1.0.0/32, 10.1.0.1/32, ...
+    private static ResourceModel chunkedModel(final String prefixListId, final int entryCount) {
+        final List<Entry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            entries.add(Entry.builder().cidr(String.format("10.1.%d.%d/32", i >>> 8, i & 0xFF)).build());
+        }
+        return ResourceModel.builder()
+                .prefixListId(prefixListId)
+                .prefixListName(PREFIX_LIST_NAME)
+                .addressFamily(RESOURCE_MODEL_MODIFIED.getAddressFamily())
+                .maxEntries(2 * ModuleHelper.MAX_ENTRIES_PER_MODIFY)
+                .entries(entries)
+                .build();
+    }
+
+    private static AmazonEC2Exception incorrectState() {
+        final AmazonEC2Exception exception = new AmazonEC2Exception("The prefix list is in state modify-in-progress.");
+        exception.setErrorCode(ModuleHelper.INCORRECT_STATE_ERROR_CODE);
+        return exception;
+    }
+
+    private static AmazonEC2Exception versionMismatch() {
+        final AmazonEC2Exception exception = new AmazonEC2Exception("The prefix list version does not match.");
+        exception.setErrorCode("PrefixListVersionMismatch");
+        return exception;
+    }
 }